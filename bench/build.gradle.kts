@@ -0,0 +1,44 @@
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import net.ltgt.gradle.errorprone.ErrorProneOptions
+
+plugins {
+    java
+}
+
+description = "Fast Quartz JMH benchmarks"
+
+val jmhVersion = "1.37"
+
+dependencies {
+    implementation(project(":mod"))
+    implementation(testFixtures(project(":engine")))
+    implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+// The JMH annotation processor emits harness code that trips Error Prone; only lint our own sources.
+tasks.withType<JavaCompile>().configureEach {
+    (options as ExtensionAware).extensions.configure<ErrorProneOptions>("errorprone") {
+        excludedPaths.set(".*/build/generated/.*")
+    }
+}
+
+val jmhResultsDir = layout.buildDirectory.dir("results/jmh")
+
+// ./gradlew :bench:jmh [-Pjmh.include=<regex>] runs every benchmark with the GC/allocation profiler and
+// keeps one timestamped JSON result file per run.
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and archives the JSON results."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val include = providers.gradleProperty("jmh.include").orElse(".*")
+    val resultsDir = jmhResultsDir
+    doFirst {
+        val dir = resultsDir.get().asFile
+        dir.mkdirs()
+        val stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))
+        args(include.get(), "-prof", "gc", "-rf", "json", "-rff", dir.resolve("jmh-$stamp.json").path)
+    }
+}
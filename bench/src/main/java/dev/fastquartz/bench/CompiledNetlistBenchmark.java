@@ -0,0 +1,123 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.netlist.CompiledIsland;
+import dev.fastquartz.engine.netlist.CompiledNetlist;
+import dev.fastquartz.engine.netlist.IslandCompiler;
+import dev.fastquartz.engine.netlist.NetlistBuilder;
+import dev.fastquartz.engine.testing.ComponentPlacement;
+import dev.fastquartz.engine.testing.SyntheticTopology;
+import dev.fastquartz.engine.testing.TopologyGenerator;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ticks per second of a farm of free-running clocks, evaluated by the {@link CompiledNetlist}
+ * interpreter or by one {@link CompiledIsland} per clock. Comparators reading containers keep no
+ * input, since the netlist does not model containers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompiledNetlistBenchmark {
+  @Param({"4096", "65536"})
+  int blocks;
+
+  @Param({"interpreted", "compiled"})
+  String mode;
+
+  private CompiledNetlist netlist;
+  private CompiledIsland[] islands;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SyntheticTopology topology =
+        new TopologyGenerator(0xC10CL).generate(TopologyGenerator.Kind.CLOCK_FARM, blocks);
+    Set<BlockPos> dust = new HashSet<>(topology.dust());
+    DustCsrBuilder dustBuilder = topology.newBuilder();
+    Map<BlockPos, Integer> componentAt = new HashMap<>();
+    for (ComponentPlacement component : topology.components()) {
+      componentAt.put(component.pos(), component.componentId());
+      if (component.input() != null && dust.contains(component.input())) {
+        dustBuilder.addTap(component.input());
+      }
+    }
+    DustCsrGraph graph = dustBuilder.build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    for (ComponentPlacement component : topology.components()) {
+      int bits = component.kind().stateBits(component.delay(), 0);
+      int row =
+          switch (component.kind()) {
+            case TORCH -> builder.addTorch(component.pos(), bits);
+            case REPEATER -> builder.addRepeater(component.pos(), bits, component.delay());
+            default -> builder.addComparator(component.pos(), bits, false);
+          };
+      builder.drivePort(row, new DustPort(component.componentId(), 0));
+    }
+    for (ComponentPlacement component : topology.components()) {
+      BlockPos input = component.input();
+      if (input == null) {
+        continue;
+      }
+      if (dust.contains(input)) {
+        builder.readDust(component.componentId(), input);
+      } else if (componentAt.containsKey(input)) {
+        builder.readComponent(component.componentId(), componentAt.get(input));
+      }
+    }
+    netlist = builder.build(propagator);
+
+    IslandCompiler compiler = new IslandCompiler();
+    List<CompiledIsland> compiled = new ArrayList<>();
+    BitSet covered = new BitSet();
+    for (int row = covered.nextClearBit(0);
+        row < netlist.rowCount();
+        row = covered.nextClearBit(row)) {
+      CompiledIsland island = compiler.compile(netlist, row);
+      for (int member : island.rows()) {
+        covered.set(member);
+      }
+      compiled.add(island);
+    }
+    islands = compiled.toArray(new CompiledIsland[0]);
+  }
+
+  @Benchmark
+  public int tick() {
+    if (mode.equals("interpreted")) {
+      return netlist.tick(null);
+    }
+    for (CompiledIsland island : islands) {
+      island.tick();
+    }
+    return islands.length;
+  }
+}
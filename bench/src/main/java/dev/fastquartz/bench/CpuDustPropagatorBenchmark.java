@@ -0,0 +1,163 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustChangeBuffer;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.testing.TopologyGenerator;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link CpuDustPropagator#propagate(int[], int[], int, DustChangeBuffer)} while a
+ * handful of sources toggle per operation.
+ *
+ * <p>In {@link #propagate}, {@code reorderForLocality} compares the default Y/Z/X node order with
+ * the reverse Cuthill–McKee renumbering, and {@code kernel} compares the bucket queues with the
+ * linked frontier used for large islands. {@link #propagateIslandSweep} runs both kernels over
+ * square islands of {@code islandNodes} nodes each; the size where the frontier starts to win
+ * calibrates {@link CpuDustPropagator#FRONTIER_MIN_ISLAND_NODES}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CpuDustPropagatorBenchmark {
+  private static final int STEP_COUNT = 1 << 10;
+
+  /** Generated layouts of the topology generator. */
+  @State(Scope.Thread)
+  public static class Topology {
+    @Param({"DUST_GRID", "BUSES", "MEMORY_ARRAY"})
+    TopologyGenerator.Kind topology;
+
+    @Param({"4096", "262144"})
+    int blocks;
+
+    @Param({"false", "true"})
+    boolean reorderForLocality;
+
+    @Param({"buckets", "frontier"})
+    String kernel;
+
+    @Param({"false", "true"})
+    boolean incremental;
+
+    @Param({"4"})
+    int sourcesPerStep;
+
+    final Workload workload = new Workload();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      DustCsrGraph graph =
+          new TopologyGenerator(0xD057L)
+              .generate(topology, blocks)
+              .newBuilder()
+              .reorderForLocality(reorderForLocality)
+              .build();
+      workload.setUp(graph, kernel, incremental, sourcesPerStep);
+    }
+  }
+
+  /** Equal square islands covering about {@code totalNodes} nodes, for the kernel crossover. */
+  @State(Scope.Thread)
+  public static class IslandSweep {
+    @Param({"16", "64", "128", "256", "512", "1024", "4096"})
+    int islandNodes;
+
+    @Param({"buckets", "frontier"})
+    String kernel;
+
+    @Param({"65536"})
+    int totalNodes;
+
+    @Param({"4"})
+    int sourcesPerStep;
+
+    final Workload workload = new Workload();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      int side = Math.max(2, (int) Math.round(Math.sqrt(islandNodes)));
+      int islands = Math.max(1, totalNodes / (side * side));
+      int perRow = (int) Math.ceil(Math.sqrt(islands));
+      DustCsrBuilder builder = new DustCsrBuilder();
+      for (int island = 0; island < islands; island++) {
+        int originX = (island % perRow) * (side + 1);
+        int originZ = (island / perRow) * (side + 1);
+        for (int x = 0; x < side; x++) {
+          for (int z = 0; z < side; z++) {
+            builder.addDust(BlockPos.of(originX + x, 64, originZ + z));
+          }
+        }
+      }
+      workload.setUp(builder.build(), kernel, true, sourcesPerStep);
+    }
+  }
+
+  /** A propagator and a fixed ring of random source toggles. */
+  static final class Workload {
+    private CpuDustPropagator propagator;
+    private final DustChangeBuffer changes = new DustChangeBuffer();
+    private int[][] stepNodes;
+    private int[][] stepLevels;
+    private int sourcesPerStep;
+    private int step;
+
+    void setUp(DustCsrGraph graph, String kernel, boolean incremental, int sourcesPerStep) {
+      int frontierMinIslandNodes = kernel.equals("frontier") ? 1 : Integer.MAX_VALUE;
+      propagator = new CpuDustPropagator(incremental, frontierMinIslandNodes);
+      propagator.reset(graph);
+      this.sourcesPerStep = sourcesPerStep;
+
+      // Sources are drawn by position, so renumbered variants of a graph toggle the same blocks.
+      long[] positions = new long[graph.nodeCount()];
+      for (int nodeId = 0; nodeId < positions.length; nodeId++) {
+        positions[nodeId] = graph.nodePositionKey(nodeId);
+      }
+      Arrays.sort(positions);
+      SplittableRandom random = new SplittableRandom(0x5E77L);
+      stepNodes = new int[STEP_COUNT][sourcesPerStep];
+      stepLevels = new int[STEP_COUNT][sourcesPerStep];
+      for (int s = 0; s < STEP_COUNT; s++) {
+        for (int i = 0; i < sourcesPerStep; i++) {
+          BlockPos pos = BlockPos.fromLong(positions[random.nextInt(positions.length)]);
+          stepNodes[s][i] = graph.nodeForPosition(pos).getAsInt();
+          stepLevels[s][i] = random.nextBoolean() ? 0 : DustPropagator.MAX_POWER_LEVEL;
+        }
+      }
+    }
+
+    int next() {
+      int s = step++ & (STEP_COUNT - 1);
+      return propagator.propagate(stepNodes[s], stepLevels[s], sourcesPerStep, changes);
+    }
+  }
+
+  @Benchmark
+  public int propagate(Topology state) {
+    return state.workload.next();
+  }
+
+  @Benchmark
+  public int propagateIslandSweep(IslandSweep state) {
+    return state.workload.next();
+  }
+}
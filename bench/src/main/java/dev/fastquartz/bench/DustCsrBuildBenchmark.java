@@ -0,0 +1,52 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.testing.TopologyGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Cost of {@link DustCsrBuilder#build()} on generated layouts, with and without renumbering. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DustCsrBuildBenchmark {
+  @Param({"DUST_GRID", "BUSES", "MEMORY_ARRAY"})
+  TopologyGenerator.Kind topology;
+
+  @Param({"1024", "65536"})
+  int blocks;
+
+  @Param({"false", "true"})
+  boolean reorderForLocality;
+
+  private DustCsrBuilder builder;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    builder =
+        new TopologyGenerator(0xB11DL)
+            .generate(topology, blocks)
+            .newBuilder()
+            .reorderForLocality(reorderForLocality);
+  }
+
+  @Benchmark
+  public DustCsrGraph build() {
+    return builder.build();
+  }
+}
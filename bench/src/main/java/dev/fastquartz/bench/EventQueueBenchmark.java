@@ -0,0 +1,98 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.event.EventKey;
+import dev.fastquartz.engine.event.EventQueue;
+import dev.fastquartz.engine.event.EventType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Schedule/poll cost of {@link EventQueue} at different queue depths. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventQueueBenchmark {
+  private static final int DELAY_COUNT = 1 << 12;
+  private static final Integer PAYLOAD = 1;
+
+  @Param({"64", "4096", "262144"})
+  int depth;
+
+  private EventQueue<Integer> queue;
+  private EventKey[] keys;
+  private int[] delays;
+  private int delayCursor;
+
+  @Setup(Level.Trial)
+  public void setUpKeys() {
+    SplittableRandom random = new SplittableRandom(depth);
+    keys = new EventKey[depth];
+    for (int i = 0; i < depth; i++) {
+      keys[i] = randomKey(random, random.nextInt(512));
+    }
+    delays = new int[DELAY_COUNT];
+    for (int i = 0; i < DELAY_COUNT; i++) {
+      // Mostly short redstone delays with the occasional long timer.
+      delays[i] = random.nextInt(16) == 0 ? random.nextInt(4096) : random.nextInt(8);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void fillQueue() {
+    queue = new EventQueue<>();
+    for (EventKey key : keys) {
+      queue.schedule(key, PAYLOAD);
+    }
+    delayCursor = 0;
+  }
+
+  /** Steady state: every poll is replaced by one event a few ticks later, keeping the depth. */
+  @Benchmark
+  public EventQueue.Event<Integer> pollThenReschedule() {
+    EventQueue.Event<Integer> event = queue.poll();
+    int delay = delays[delayCursor++ & (DELAY_COUNT - 1)];
+    EventKey key = event.key();
+    queue.schedule(
+        EventKey.of(key.tick() + delay, key.micro(), key.regionId(), key.localOrder()), PAYLOAD);
+    return event;
+  }
+
+  /** Fills an empty queue to the configured depth and drains it completely. */
+  @Benchmark
+  public void scheduleAndDrain(Blackhole blackhole) {
+    EventQueue<Integer> fresh = new EventQueue<>();
+    for (EventKey key : keys) {
+      fresh.schedule(key, PAYLOAD);
+    }
+    EventQueue.Event<Integer> event;
+    while ((event = fresh.poll()) != null) {
+      blackhole.consume(event);
+    }
+  }
+
+  private static EventKey randomKey(SplittableRandom random, long tick) {
+    return EventKey.forBlock(
+        tick,
+        random.nextInt(10),
+        random.nextInt(16),
+        random.nextInt(64),
+        random.nextInt(384),
+        random.nextInt(64),
+        EventType.SCHEDULED);
+  }
+}
@@ -0,0 +1,85 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.FastQuartzEngine;
+import dev.fastquartz.mod.server.RedstoneTickRouter;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.server.world.ServerTickScheduler;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ticks.TickPriority;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end cost of routing scheduled ticks through {@link RedstoneTickRouter}: a field of
+ * repeater-like chains each re-schedule themselves until they have fired a fixed number of times,
+ * and the world is ticked until every chain has drained.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedstoneTickRouterBenchmark {
+  private static final int FIRES_PER_CHAIN = 32;
+  private static final TickPriority[] PRIORITIES = TickPriority.values();
+
+  @Param({"256", "16384"})
+  int chains;
+
+  private BlockPos[] positions;
+  private int[] delays;
+  private int fired;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(chains);
+    positions = new BlockPos[chains];
+    delays = new int[chains];
+    for (int i = 0; i < chains; i++) {
+      positions[i] = BlockPos.of(random.nextInt(-512, 512), 64, random.nextInt(-512, 512));
+      delays[i] = 1 + random.nextInt(4);
+    }
+  }
+
+  @Benchmark
+  public int drainChains() {
+    ServerWorld world = new ServerWorld(FastQuartzEngine.create(20));
+    ServerTickScheduler scheduler = world.blockTickScheduler();
+    fired = 0;
+    for (int i = 0; i < chains; i++) {
+      int chain = i;
+      ServerTickScheduler.ScheduledTickReceiver receiver =
+          new ServerTickScheduler.ScheduledTickReceiver() {
+            private int remaining = FIRES_PER_CHAIN;
+
+            @Override
+            public void run(ServerWorld serverWorld, BlockPos pos) {
+              fired++;
+              if (--remaining > 0) {
+                scheduler.scheduleTick(
+                    pos, this, delays[chain], PRIORITIES[remaining % PRIORITIES.length]);
+              }
+            }
+          };
+      scheduler.scheduleTick(positions[i], receiver, delays[i]);
+    }
+    int expected = chains * FIRES_PER_CHAIN;
+    while (fired < expected) {
+      world.tick(() -> true);
+    }
+    return fired;
+  }
+}
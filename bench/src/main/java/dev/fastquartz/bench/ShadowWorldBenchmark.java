@@ -0,0 +1,143 @@
+package dev.fastquartz.bench;
+
+import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.ShadowWorld;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Read, write and commit cost of {@link ShadowWorld} when a fixed set of sections is touched at
+ * different densities (blocks written per 16×16×16 section).
+ *
+ * <p>Each operation leaves the overlay empty again (a commit clears it), so one world per iteration
+ * serves every invocation without per-invocation setup skewing these microsecond-scale timings.
+ * {@link #writeThenReadBack} therefore includes a commit; its read-back cost is the difference to
+ * {@link #writeAndCommit}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShadowWorldBenchmark {
+  private static final int SECTIONS_PER_AXIS = 4;
+
+  @Param({"16", "256", "4096"})
+  int blocksPerSection;
+
+  private BlockPos[] positions;
+  private CountingDelegate delegate;
+  private ShadowWorld world;
+
+  @Setup(Level.Trial)
+  public void setUpPositions() {
+    SplittableRandom random = new SplittableRandom(blocksPerSection);
+    int sectionCount = SECTIONS_PER_AXIS * SECTIONS_PER_AXIS;
+    positions = new BlockPos[sectionCount * blocksPerSection];
+    int next = 0;
+    for (int section = 0; section < sectionCount; section++) {
+      int baseX = (section % SECTIONS_PER_AXIS) * 16;
+      int baseZ = (section / SECTIONS_PER_AXIS) * 16;
+      int[] locals = shuffledLocals(random);
+      for (int i = 0; i < blocksPerSection; i++) {
+        int local = locals[i];
+        positions[next++] =
+            BlockPos.of(baseX + (local & 15), 64 + (local >>> 8), baseZ + ((local >>> 4) & 15));
+      }
+    }
+    // Interleave sections so writes do not arrive pre-sorted.
+    for (int i = positions.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      BlockPos swap = positions[i];
+      positions[i] = positions[j];
+      positions[j] = swap;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void setUpWorld() {
+    delegate = new CountingDelegate();
+    world = new ShadowWorld(delegate);
+  }
+
+  @Benchmark
+  public int writeAndCommit() {
+    for (int i = 0; i < positions.length; i++) {
+      world.setBlockStateBits(positions[i], i + 1);
+    }
+    world.commit();
+    return delegate.writes;
+  }
+
+  @Benchmark
+  public int writeThenReadBack(Blackhole blackhole) {
+    for (int i = 0; i < positions.length; i++) {
+      world.setBlockStateBits(positions[i], i + 1);
+    }
+    for (BlockPos pos : positions) {
+      blackhole.consume(world.getBlockStateBits(pos));
+    }
+    world.commit();
+    return delegate.writes;
+  }
+
+  @Benchmark
+  public void readThrough(Blackhole blackhole) {
+    for (BlockPos pos : positions) {
+      blackhole.consume(world.getBlockStateBits(pos));
+    }
+  }
+
+  private static int[] shuffledLocals(SplittableRandom random) {
+    int[] locals = new int[4096];
+    for (int i = 0; i < locals.length; i++) {
+      locals[i] = i;
+    }
+    for (int i = locals.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = locals[i];
+      locals[i] = locals[j];
+      locals[j] = swap;
+    }
+    return locals;
+  }
+
+  private static final class CountingDelegate implements ShadowWorld.Delegate {
+    int writes;
+
+    @Override
+    public int getBlockStateBits(BlockPos pos) {
+      return pos.y();
+    }
+
+    @Override
+    public void setBlockStateBits(BlockPos pos, int stateBits) {
+      writes++;
+    }
+
+    @Override
+    public void scheduleTick(BlockPos pos, int delayTicks, int priority) {}
+
+    @Override
+    public void markNeighborChanged(BlockPos pos, BlockPos source) {}
+
+    @Override
+    public int readContainerSignal(BlockPos pos) {
+      return 0;
+    }
+  }
+}
@@ -9,7 +9,11 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 
-/** Factory for deterministic wrappers around vanilla component logic. */
+/**
+ * Factory for deterministic wrappers around vanilla component logic. Adapters evaluate through the
+ * context's reusable {@link ComponentContext#worldAccess(BlockPos) world access}, so applying an
+ * adapter allocates no world facade.
+ */
 public final class ComponentAdapters {
   private static final Comparator<BlockPos> BLOCK_POS_ORDER =
       Comparator.comparingInt(BlockPos::y)
@@ -154,7 +158,7 @@ public final class ComponentAdapters {
     public void apply(ComponentContext context, BlockPos componentPos, int stateBits) {
       Objects.requireNonNull(context, "context");
       Objects.requireNonNull(componentPos, "componentPos");
-      ComponentWorldAccess world = context.createWorldAccess(componentPos);
+      ComponentWorldAccess world = context.worldAccess(componentPos);
       preRun.run(world, componentPos, stateBits);
       logic.run(world, componentPos, stateBits);
     }
@@ -183,7 +187,7 @@ public final class ComponentAdapters {
       if (!context.observerPulseTracker().shouldEmit(context.tick(), observerPos, observedPos)) {
         return;
       }
-      ComponentWorldAccess world = context.createWorldAccess(observerPos);
+      ComponentWorldAccess world = context.worldAccess(observerPos);
       logic.run(world, observerPos, observedPos, oldStateBits, newStateBits);
     }
   }
@@ -199,7 +203,7 @@ public final class ComponentAdapters {
     public void apply(ComponentContext context, BlockPos componentPos, int stateBits) {
       Objects.requireNonNull(context, "context");
       Objects.requireNonNull(componentPos, "componentPos");
-      ComponentWorldAccess world = context.createWorldAccess(componentPos);
+      ComponentWorldAccess world = context.worldAccess(componentPos);
       PistonTransaction transaction = logic.evaluate(world, componentPos, stateBits);
       Objects.requireNonNull(transaction, "transaction");
 
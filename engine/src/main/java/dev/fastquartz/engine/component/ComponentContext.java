@@ -7,12 +7,16 @@ import java.util.Objects;
 /**
  * Execution context shared by component adapters. It bundles the shadow world view and the
  * deterministic registries used during a micro-phase.
+ *
+ * <p>A context is owned by a single worker and is not thread-safe: {@link #worldAccess(BlockPos)}
+ * hands out one shared, re-targeted handle.
  */
 public final class ComponentContext {
   private final ShadowWorld shadowWorld;
   private final ContainerSnapshotRegistry containerSnapshots;
   private final ObserverPulseTracker observerPulseTracker;
   private final long tick;
+  private ComponentWorldAccess worldAccess;
 
   public ComponentContext(
       ShadowWorld shadowWorld,
@@ -48,4 +52,19 @@ public final class ComponentContext {
   public ComponentWorldAccess createWorldAccess(BlockPos sourcePos) {
     return new ComponentWorldAccess(shadowWorld, containerSnapshots, sourcePos);
   }
+
+  /**
+   * Returns this context's reusable world access, re-targeted at {@code sourcePos}. The handle is
+   * only valid until the next call; logic that must keep a view should use {@link
+   * #createWorldAccess(BlockPos)}.
+   */
+  public ComponentWorldAccess worldAccess(BlockPos sourcePos) {
+    ComponentWorldAccess access = worldAccess;
+    if (access == null) {
+      access = createWorldAccess(sourcePos);
+      worldAccess = access;
+      return access;
+    }
+    return access.retarget(sourcePos);
+  }
 }
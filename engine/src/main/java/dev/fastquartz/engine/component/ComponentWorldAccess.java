@@ -7,11 +7,16 @@ import java.util.Objects;
 /**
  * Minimal world facade exposed to vanilla component logic. All writes are staged in the associated
  * {@link ShadowWorld} overlay to preserve deterministic ordering.
+ *
+ * <p>A handle can be {@linkplain #retarget(BlockPos) re-targeted} at a new default neighbour update
+ * source, so one instance owned by a {@link ComponentContext} serves every component evaluated
+ * through it.
  */
 public final class ComponentWorldAccess {
   private final ShadowWorld shadowWorld;
   private final ContainerSnapshotRegistry containerSnapshots;
-  private final BlockPos defaultSource;
+  private final ContainerSnapshotRegistry.ContainerReader containerReader;
+  private BlockPos defaultSource;
 
   public ComponentWorldAccess(
       ShadowWorld shadowWorld,
@@ -20,6 +25,18 @@ public final class ComponentWorldAccess {
     this.shadowWorld = Objects.requireNonNull(shadowWorld, "shadowWorld");
     this.containerSnapshots = Objects.requireNonNull(containerSnapshots, "containerSnapshots");
     this.defaultSource = Objects.requireNonNull(defaultSource, "defaultSource");
+    this.containerReader = (x, y, z) -> shadowWorld.readContainerSignal(BlockPos.of(x, y, z));
+  }
+
+  /** Points this handle at a new implicit neighbour update source and returns it. */
+  public ComponentWorldAccess retarget(BlockPos defaultSource) {
+    this.defaultSource = Objects.requireNonNull(defaultSource, "defaultSource");
+    return this;
+  }
+
+  /** Returns the source used by {@link #markNeighborChanged(BlockPos)}. */
+  public BlockPos defaultSource() {
+    return defaultSource;
   }
 
   public int getBlockStateBits(BlockPos pos) {
@@ -49,7 +66,7 @@ public final class ComponentWorldAccess {
 
   public int readContainerSignal(BlockPos pos) {
     Objects.requireNonNull(pos, "pos");
-    return containerSnapshots.snapshot(pos, () -> shadowWorld.readContainerSignal(pos));
+    return containerSnapshots.snapshot(pos.x(), pos.y(), pos.z(), containerReader);
   }
 
   public ShadowWorld shadowWorld() {
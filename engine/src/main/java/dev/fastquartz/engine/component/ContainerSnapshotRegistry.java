@@ -1,8 +1,7 @@
 package dev.fastquartz.engine.component;
 
 import dev.fastquartz.engine.world.BlockPos;
-import java.util.HashMap;
-import java.util.Map;
+import dev.fastquartz.engine.world.LongIntMap;
 import java.util.Objects;
 import java.util.function.IntSupplier;
 
@@ -13,23 +12,56 @@ import java.util.function.IntSupplier;
  * supplied reader is invoked and the value is memoised. Subsequent reads return the same cached
  * value even if the underlying container changes. The caller is responsible for resetting or
  * discarding the registry between ticks.
+ *
+ * <p>Snapshots live in a {@link LongIntMap} keyed by {@link BlockPos#asLong()}, so {@link #clear()}
+ * takes constant time and lookups never box.
  */
 public final class ContainerSnapshotRegistry {
-  private final Map<BlockPos, Integer> snapshots = new HashMap<>();
+  private static final int MIN_CAPACITY = 64;
+
+  private final LongIntMap snapshots = new LongIntMap(MIN_CAPACITY / 2);
+
+  /** Reads the current signal of the container at the given coordinates. */
+  @FunctionalInterface
+  public interface ContainerReader {
+    int read(int x, int y, int z);
+  }
 
   /** Retrieves the cached signal for {@code pos}, loading it via {@code reader} if absent. */
   public int snapshot(BlockPos pos, IntSupplier reader) {
     Objects.requireNonNull(pos, "pos");
     Objects.requireNonNull(reader, "reader");
-    Integer cached = snapshots.get(pos);
-    if (cached != null) {
-      return cached;
+    long key = pos.asLong();
+    int slot = snapshots.find(key);
+    if (slot != LongIntMap.NO_SLOT) {
+      return snapshots.valueAt(slot);
     }
     int value = reader.getAsInt();
-    snapshots.put(pos, value);
+    snapshots.put(key, value);
     return value;
   }
 
+  /**
+   * Retrieves the cached signal for the given coordinates, loading it via {@code reader} if absent.
+   * Hits allocate nothing.
+   */
+  public int snapshot(int x, int y, int z, ContainerReader reader) {
+    Objects.requireNonNull(reader, "reader");
+    long key = BlockPos.asLong(x, y, z);
+    int slot = snapshots.find(key);
+    if (slot != LongIntMap.NO_SLOT) {
+      return snapshots.valueAt(slot);
+    }
+    int value = reader.read(x, y, z);
+    snapshots.put(key, value);
+    return value;
+  }
+
+  /** Returns the number of snapshots taken since the last {@link #clear()}. */
+  public int size() {
+    return snapshots.size();
+  }
+
   /** Clears all cached entries. */
   public void clear() {
     snapshots.clear();
@@ -1,14 +1,26 @@
 package dev.fastquartz.engine.component;
 
 import dev.fastquartz.engine.world.BlockPos;
-import java.util.HashSet;
+import dev.fastquartz.engine.world.LongIntMap;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Set;
 
-/** Tracks observer emissions to ensure Stable-logic coalescing behaviour. */
+/**
+ * Tracks observer emissions to ensure Stable-logic coalescing behaviour.
+ *
+ * <p>Each observer that emitted this tick maps, through a {@link LongIntMap}, to the head of a
+ * chain of the sources it emitted for. A new tick clears the map in constant time and rewinds the
+ * chain storage, so neither the per-tick reset nor a membership check allocates anything.
+ */
 public final class ObserverPulseTracker {
+  private static final int NO_ENTRY = -1;
+  private static final int MIN_CAPACITY = 64;
+
+  private final LongIntMap heads = new LongIntMap(MIN_CAPACITY / 2);
   private long tick = Long.MIN_VALUE;
-  private final Set<ObserverKey> emitted = new HashSet<>();
+  private long[] entrySources = new long[MIN_CAPACITY];
+  private int[] entryNext = new int[MIN_CAPACITY];
+  private int entryCount;
 
   /**
    * Returns {@code true} if an observer at {@code observerPos} may emit for {@code sourcePos}
@@ -18,14 +30,38 @@ public final class ObserverPulseTracker {
   public boolean shouldEmit(long currentTick, BlockPos observerPos, BlockPos sourcePos) {
     Objects.requireNonNull(observerPos, "observerPos");
     Objects.requireNonNull(sourcePos, "sourcePos");
+    return shouldEmit(currentTick, observerPos.asLong(), sourcePos.asLong());
+  }
+
+  /**
+   * Primitive form of {@link #shouldEmit(long, BlockPos, BlockPos)} taking positions packed with
+   * {@link BlockPos#asLong()}.
+   */
+  public boolean shouldEmit(long currentTick, long observerKey, long sourceKey) {
     if (currentTick != tick) {
       tick = currentTick;
-      emitted.clear();
+      heads.clear();
+      entryCount = 0;
     }
-    return emitted.add(new ObserverKey(observerPos, sourcePos));
-  }
-
-  private record ObserverKey(BlockPos observer, BlockPos source) {
-    // value object for coalescing keys
+    int slot = heads.find(observerKey);
+    int head = slot == LongIntMap.NO_SLOT ? NO_ENTRY : heads.valueAt(slot);
+    for (int entry = head; entry != NO_ENTRY; entry = entryNext[entry]) {
+      if (entrySources[entry] == sourceKey) {
+        return false;
+      }
+    }
+    if (entryCount == entrySources.length) {
+      entrySources = Arrays.copyOf(entrySources, entryCount * 2);
+      entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+    }
+    int entry = entryCount++;
+    entrySources[entry] = sourceKey;
+    entryNext[entry] = head;
+    if (slot == LongIntMap.NO_SLOT) {
+      heads.put(observerKey, entry);
+    } else {
+      heads.setValueAt(slot, entry);
+    }
+    return true;
   }
 }
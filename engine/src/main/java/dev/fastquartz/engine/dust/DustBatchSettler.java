@@ -0,0 +1,195 @@
+package dev.fastquartz.engine.dust;
+
+import java.util.Objects;
+
+/**
+ * Settles one dust graph under many independent source assignments at once.
+ *
+ * <p>Instances are laid out struct-of-arrays: the levels of node {@code n} for a block of instances
+ * occupy one contiguous run, so relaxing an edge is a branch-free {@code max} over that run that
+ * the JIT can vectorize. Each island is settled on its own with max-plus relaxation, which reaches
+ * the same fixed point as {@link CpuDustPropagator}. Nodes are swept in breadth-first order so
+ * levels usually settle in a few sweeps. Every edge costs at least one level, so a level above 0
+ * crosses at most 14 edges and the island stops changing after at most {@value
+ * DustPropagator#MAX_POWER_LEVEL} sweeps; one more sweep confirms it. The scratch array holds one
+ * block of the largest island. No propagator state is read or written; results are returned per
+ * instance.
+ */
+public final class DustBatchSettler {
+  /** Instances settled together; bounds the scratch array to {@code maxIslandSize * BLOCK} ints. */
+  static final int BLOCK = 64;
+
+  private final int nodeCount;
+  private final int[] islandIds;
+  private final int[] islandRowShift;
+  private final int[] rowEdgeIndex;
+  private final int[] edgeDeltas;
+  private final int[] edgeWeights;
+  private final int[] islandNodeIndex;
+  private final int[] islandNodes;
+  private final int[] nodePosition;
+  private final int maxIslandSize;
+
+  /**
+   * Creates a settler for {@code graph}; instances can be reused across calls. The settler reads
+   * the graph's shared edge lanes.
+   *
+   * @throws IllegalArgumentException if an edge weight is not positive or an island is too large
+   *     for a block of scratch to fit in one array
+   */
+  public DustBatchSettler(DustCsrGraph graph) {
+    Objects.requireNonNull(graph, "graph");
+    DustCsrGraph.EdgeLanes lanes = graph.edgeLanes();
+    this.nodeCount = graph.nodeCount();
+    this.islandIds = lanes.islandIds;
+    this.islandRowShift = lanes.islandRowShift;
+    this.rowEdgeIndex = lanes.rowEdgeIndex;
+    this.edgeDeltas = lanes.edgeDeltas;
+    this.edgeWeights = lanes.edgeWeights;
+    for (int weight : edgeWeights) {
+      if (weight < 1) {
+        throw new IllegalArgumentException("edge weights must be positive");
+      }
+    }
+
+    int islandCount = 0;
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      islandCount = Math.max(islandCount, islandIds[nodeId] + 1);
+    }
+    this.islandNodeIndex = new int[islandCount + 1];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      islandNodeIndex[islandIds[nodeId] + 1]++;
+    }
+    int largest = 0;
+    for (int island = 0; island < islandCount; island++) {
+      largest = Math.max(largest, islandNodeIndex[island + 1]);
+      islandNodeIndex[island + 1] += islandNodeIndex[island];
+    }
+    if ((long) largest * BLOCK > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("island of " + largest + " nodes is too large");
+    }
+    this.maxIslandSize = largest;
+    this.islandNodes = new int[nodeCount];
+    this.nodePosition = new int[nodeCount];
+    orderIslandsBreadthFirst();
+  }
+
+  /**
+   * Fills {@link #islandNodes} with the nodes of every island in breadth-first order over its
+   * internal edges, starting from its lowest unvisited node, and records each node's position.
+   */
+  private void orderIslandsBreadthFirst() {
+    int[] fill = new int[islandNodeIndex.length - 1];
+    System.arraycopy(islandNodeIndex, 0, fill, 0, fill.length);
+    boolean[] visited = new boolean[nodeCount];
+    for (int start = 0; start < nodeCount; start++) {
+      if (visited[start]) {
+        continue;
+      }
+      int island = islandIds[start];
+      int head = fill[island];
+      visited[start] = true;
+      islandNodes[fill[island]++] = start;
+      while (head < fill[island]) {
+        int nodeId = islandNodes[head++];
+        int row = nodeId + islandRowShift[island];
+        for (int edge = rowEdgeIndex[row]; edge < rowEdgeIndex[row + 1]; edge++) {
+          int target = nodeId + edgeDeltas[edge];
+          if (islandIds[target] == island && !visited[target]) {
+            visited[target] = true;
+            islandNodes[fill[island]++] = target;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      nodePosition[islandNodes[i]] = i;
+    }
+  }
+
+  /**
+   * Settles every source assignment independently.
+   *
+   * @param sourceLevels one array per instance holding the source level of every node
+   * @return one array per instance holding the settled level of every node
+   */
+  public int[][] settle(int[][] sourceLevels) {
+    Objects.requireNonNull(sourceLevels, "sourceLevels");
+    for (int instance = 0; instance < sourceLevels.length; instance++) {
+      int[] sources = Objects.requireNonNull(sourceLevels[instance], "sourceLevels[instance]");
+      if (sources.length != nodeCount) {
+        throw new IllegalArgumentException(
+            "instance "
+                + instance
+                + " has "
+                + sources.length
+                + " source levels, expected "
+                + nodeCount);
+      }
+      for (int level : sources) {
+        if (level < 0 || level > DustPropagator.MAX_POWER_LEVEL) {
+          throw new IllegalArgumentException("powerLevel must be in [0, 15]");
+        }
+      }
+    }
+
+    int[][] result = new int[sourceLevels.length][nodeCount];
+    int[] levels = new int[maxIslandSize * Math.min(BLOCK, Math.max(1, sourceLevels.length))];
+    for (int first = 0; first < sourceLevels.length; first += BLOCK) {
+      int width = Math.min(BLOCK, sourceLevels.length - first);
+      for (int island = 0; island + 1 < islandNodeIndex.length; island++) {
+        int start = islandNodeIndex[island];
+        int end = islandNodeIndex[island + 1];
+        for (int lane = 0; lane < width; lane++) {
+          int[] sources = sourceLevels[first + lane];
+          for (int i = start; i < end; i++) {
+            levels[(i - start) * width + lane] = sources[islandNodes[i]];
+          }
+        }
+        settleIsland(island, levels, width);
+        for (int lane = 0; lane < width; lane++) {
+          int[] settled = result[first + lane];
+          for (int i = start; i < end; i++) {
+            settled[islandNodes[i]] = levels[(i - start) * width + lane];
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private void settleIsland(int island, int[] levels, int width) {
+    int start = islandNodeIndex[island];
+    int end = islandNodeIndex[island + 1];
+    int shift = islandRowShift[island];
+    boolean changed = true;
+    for (int sweep = 0; changed && sweep <= DustPropagator.MAX_POWER_LEVEL; sweep++) {
+      changed = false;
+      for (int i = start; i < end; i++) {
+        int nodeId = islandNodes[i];
+        int src = (i - start) * width;
+        int row = nodeId + shift;
+        for (int edge = rowEdgeIndex[row]; edge < rowEdgeIndex[row + 1]; edge++) {
+          int target = nodeId + edgeDeltas[edge];
+          if (islandIds[target] != island) {
+            continue;
+          }
+          int dst = (nodePosition[target] - start) * width;
+          changed |= relax(levels, src, dst, width, edgeWeights[edge]);
+        }
+      }
+    }
+  }
+
+  /** Raises every lane of {@code dst} to {@code src - weight}; returns whether any lane rose. */
+  private static boolean relax(int[] levels, int src, int dst, int width, int weight) {
+    int raised = 0;
+    for (int lane = 0; lane < width; lane++) {
+      int current = levels[dst + lane];
+      int next = Math.max(current, levels[src + lane] - weight);
+      levels[dst + lane] = next;
+      raised |= next - current;
+    }
+    return raised != 0;
+  }
+}
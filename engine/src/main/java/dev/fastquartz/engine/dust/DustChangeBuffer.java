@@ -0,0 +1,91 @@
+package dev.fastquartz.engine.dust;
+
+import java.util.Arrays;
+
+/**
+ * Reusable sink for the nodes whose settled power changed during a propagation.
+ *
+ * <p>Entries are stored in parallel primitive arrays so that a buffer owned by the caller can be
+ * handed to {@link DustPropagator#propagate(int[], int[], int, DustChangeBuffer)} every tick
+ * without allocating. The buffer only grows; {@link #clear()} keeps the backing storage.
+ */
+public final class DustChangeBuffer {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] nodeIds;
+  private int[] oldLevels;
+  private int[] newLevels;
+  private int size;
+
+  /** Creates a buffer with a small default capacity. */
+  public DustChangeBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Creates a buffer pre-sized for {@code initialCapacity} changes. */
+  public DustChangeBuffer(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity must be non-negative");
+    }
+    int capacity = Math.max(1, initialCapacity);
+    this.nodeIds = new int[capacity];
+    this.oldLevels = new int[capacity];
+    this.newLevels = new int[capacity];
+  }
+
+  /** Number of changes currently recorded. */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Node id of the change at {@code index}. */
+  public int nodeId(int index) {
+    checkIndex(index);
+    return nodeIds[index];
+  }
+
+  /** Settled level of the node before the propagation. */
+  public int oldLevel(int index) {
+    checkIndex(index);
+    return oldLevels[index];
+  }
+
+  /** Settled level of the node after the propagation. */
+  public int newLevel(int index) {
+    checkIndex(index);
+    return newLevels[index];
+  }
+
+  /** Discards all recorded changes while retaining the backing storage. */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Copies the recorded node ids into a freshly allocated array. */
+  public int[] nodeIdsToArray() {
+    return Arrays.copyOf(nodeIds, size);
+  }
+
+  void add(int nodeId, int oldLevel, int newLevel) {
+    if (size == nodeIds.length) {
+      int newCapacity = size * 2;
+      nodeIds = Arrays.copyOf(nodeIds, newCapacity);
+      oldLevels = Arrays.copyOf(oldLevels, newCapacity);
+      newLevels = Arrays.copyOf(newLevels, newCapacity);
+    }
+    nodeIds[size] = nodeId;
+    oldLevels[size] = oldLevel;
+    newLevels[size] = newLevel;
+    size++;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package dev.fastquartz.engine.dust;
 import dev.fastquartz.engine.world.BlockPos;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Deque;
@@ -14,7 +15,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
-/** Builds the compressed dust CSR graph from a world snapshot. */
+/**
+ * Builds the compressed dust CSR graph from a world snapshot.
+ *
+ * <p>Graphs store positions packed by {@link BlockPos#asLong(int, int, int)}, so every dust block
+ * and port position must lie within X and Z of {@code [-2^25, 2^25)} and Y of {@code [-2048,
+ * 2048)}; positions outside that range are rejected when added.
+ */
 public final class DustCsrBuilder {
   private static final int[][] NEIGHBOR_OFFSETS = {
     {0, 1, 0}, // up
@@ -33,10 +40,14 @@ public final class DustCsrBuilder {
   private final Set<BlockPos> dustPositions = new HashSet<>();
   private final Map<BlockPos, List<DustPort>> attachmentsByPosition = new HashMap<>();
   private final Map<DustPort, BlockPos> portBindings = new HashMap<>();
+  private final Set<BlockPos> taps = new HashSet<>();
+  private boolean reorderForLocality;
+  private boolean deduplicateIslands;
 
   /** Adds a dust block to the builder. */
   public DustCsrBuilder addDust(BlockPos pos) {
     Objects.requireNonNull(pos, "pos");
+    requirePackable(pos);
     dustPositions.add(pos);
     return this;
   }
@@ -54,6 +65,7 @@ public final class DustCsrBuilder {
   public DustCsrBuilder attachPort(DustPort port, BlockPos dustPos) {
     Objects.requireNonNull(port, "port");
     Objects.requireNonNull(dustPos, "dustPos");
+    requirePackable(dustPos);
     BlockPos existing = portBindings.putIfAbsent(port, dustPos);
     if (existing != null && !existing.equals(dustPos)) {
       throw new IllegalArgumentException("Port " + port + " already attached to " + existing);
@@ -65,6 +77,73 @@ public final class DustCsrBuilder {
     return this;
   }
 
+  /**
+   * Keeps the dust block at {@code dustPos} a node of the built graph, so a reader such as a
+   * netlist row can look up its level directly instead of it being folded into a compressed edge.
+   */
+  public DustCsrBuilder addTap(BlockPos dustPos) {
+    Objects.requireNonNull(dustPos, "dustPos");
+    requirePackable(dustPos);
+    taps.add(dustPos);
+    return this;
+  }
+
+  /**
+   * Enables renumbering nodes for cache locality once the graph is built. Islands are laid out
+   * contiguously and nodes inside an island follow a reverse Cuthill–McKee order instead of the
+   * default Y/Z/X position order. Port and position lookups are remapped accordingly.
+   */
+  public DustCsrBuilder reorderForLocality(boolean enabled) {
+    this.reorderForLocality = enabled;
+    return this;
+  }
+
+  /**
+   * Enables island deduplication. Islands that are translated copies of one another (same relative
+   * node positions and weighted edges) then share a single copy of their node and edge rows,
+   * keeping only a per-island origin. Node ids and all graph accessors are unaffected.
+   */
+  public DustCsrBuilder deduplicateIslands(boolean enabled) {
+    this.deduplicateIslands = enabled;
+    return this;
+  }
+
+  /**
+   * Returns a deterministic 64-bit hash of everything that shapes the built graph: the dust
+   * positions, port attachments, taps and build options. Two builders with equal hashes produce
+   * identical graphs, which lets a persisted graph be reused instead of rebuilt.
+   */
+  public long contentHash() {
+    List<BlockPos> sortedDust = new ArrayList<>(dustPositions);
+    sortedDust.sort(POSITION_ORDER);
+    long hash = mixHash(0L, sortedDust.size());
+    for (BlockPos pos : sortedDust) {
+      hash = mixHash(hash, pos.x());
+      hash = mixHash(hash, pos.y());
+      hash = mixHash(hash, pos.z());
+    }
+    List<Map.Entry<DustPort, BlockPos>> bindings = new ArrayList<>(portBindings.entrySet());
+    bindings.sort((a, b) -> DustPort.compare(a.getKey(), b.getKey()));
+    hash = mixHash(hash, bindings.size());
+    for (Map.Entry<DustPort, BlockPos> binding : bindings) {
+      hash = mixHash(hash, binding.getKey().componentId());
+      hash = mixHash(hash, binding.getKey().portIndex());
+      hash = mixHash(hash, binding.getValue().x());
+      hash = mixHash(hash, binding.getValue().y());
+      hash = mixHash(hash, binding.getValue().z());
+    }
+    List<BlockPos> sortedTaps = new ArrayList<>(taps);
+    sortedTaps.sort(POSITION_ORDER);
+    hash = mixHash(hash, sortedTaps.size());
+    for (BlockPos pos : sortedTaps) {
+      hash = mixHash(hash, pos.x());
+      hash = mixHash(hash, pos.y());
+      hash = mixHash(hash, pos.z());
+    }
+    hash = mixHash(hash, reorderForLocality ? 1 : 0);
+    return mixHash(hash, deduplicateIslands ? 1 : 0);
+  }
+
   /** Builds the compressed dust graph. */
   public DustCsrGraph build() {
     if (dustPositions.isEmpty()) {
@@ -139,8 +218,106 @@ public final class DustCsrBuilder {
 
     Map<DustPort, Integer> portToNode = buildPortMapping(positionToNode);
 
-    return new DustCsrGraph(
-        nodePositions, islandIds, edgeIndex, edgeTargets, edgeWeights, portToNode, positionToNode);
+    DustCsrGraph graph =
+        new DustCsrGraph(
+            nodePositions,
+            islandIds,
+            edgeIndex,
+            edgeTargets,
+            edgeWeights,
+            portToNode,
+            positionToNode);
+    if (reorderForLocality) {
+      graph = DustNodeOrdering.reverseCuthillMcKee(graph);
+    }
+    return deduplicateIslands ? DustIslandTemplates.deduplicate(graph) : graph;
+  }
+
+  /**
+   * Recovers the wire runs compressed into {@code graph}'s edges, which must have been built from
+   * this builder's current dust. Used to write settled levels back to every physical block.
+   */
+  public DustSegmentIndex buildSegmentIndex(DustCsrGraph graph) {
+    Objects.requireNonNull(graph, "graph");
+    Map<BlockPos, List<BlockPos>> adjacency = buildAdjacency();
+    int[] starts = new int[16];
+    int[] ends = new int[16];
+    int[] blockIndex = new int[17];
+    int segmentCount = 0;
+    long[] blocks = new long[16];
+    int blockCount = 0;
+    long[] walked = new long[16];
+    int maxSteps = dustPositions.size();
+
+    for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+      BlockPos nodePos = graph.nodePosition(nodeId);
+      List<BlockPos> neighbours = adjacency.get(nodePos);
+      if (neighbours == null) {
+        throw new IllegalArgumentException(
+            "Graph node " + nodePos + " is not dust in this builder");
+      }
+      for (BlockPos neighbour : neighbours) {
+        int walkedCount = 0;
+        BlockPos previous = nodePos;
+        BlockPos current = neighbour;
+        int endNode = graph.nodeAtKey(current.asLong());
+        while (endNode < 0) {
+          if (walkedCount == walked.length) {
+            walked = Arrays.copyOf(walked, walkedCount * 2);
+          }
+          walked[walkedCount++] = current.asLong();
+          if (walkedCount > maxSteps) {
+            throw new IllegalStateException(
+                "Traversal exceeded dust graph bounds starting from " + nodePos);
+          }
+          BlockPos next = null;
+          for (BlockPos candidate : adjacency.get(current)) {
+            if (!candidate.equals(previous)) {
+              next = candidate;
+              break;
+            }
+          }
+          if (next == null) {
+            break;
+          }
+          previous = current;
+          current = next;
+          endNode = graph.nodeAtKey(current.asLong());
+        }
+        if (endNode < 0 || walkedCount == 0) {
+          continue;
+        }
+        // Every run is walked from both ends; keep the walk from the lower node id (or, for a loop
+        // back to the same node, the direction with the smaller first block).
+        boolean canonical =
+            nodeId < endNode || (nodeId == endNode && walked[0] < walked[walkedCount - 1]);
+        if (!canonical) {
+          continue;
+        }
+        if (segmentCount == starts.length) {
+          starts = Arrays.copyOf(starts, segmentCount * 2);
+          ends = Arrays.copyOf(ends, segmentCount * 2);
+          blockIndex = Arrays.copyOf(blockIndex, segmentCount * 2 + 1);
+        }
+        starts[segmentCount] = nodeId;
+        ends[segmentCount] = endNode;
+        blockIndex[segmentCount] = blockCount;
+        segmentCount++;
+        if (blockCount + walkedCount > blocks.length) {
+          blocks = Arrays.copyOf(blocks, Math.max(blocks.length * 2, blockCount + walkedCount));
+        }
+        System.arraycopy(walked, 0, blocks, blockCount, walkedCount);
+        blockCount += walkedCount;
+      }
+    }
+    blockIndex[segmentCount] = blockCount;
+
+    return new DustSegmentIndex(
+        graph.nodeCount(),
+        Arrays.copyOf(starts, segmentCount),
+        Arrays.copyOf(ends, segmentCount),
+        Arrays.copyOf(blockIndex, segmentCount + 1),
+        Arrays.copyOf(blocks, blockCount));
   }
 
   private void validateAttachmentPositions() {
@@ -150,6 +327,11 @@ public final class DustCsrBuilder {
             "Port " + entry.getKey() + " attached to non-dust position " + entry.getValue());
       }
     }
+    for (BlockPos pos : taps) {
+      if (!dustPositions.contains(pos)) {
+        throw new IllegalStateException("Tap at non-dust position " + pos);
+      }
+    }
   }
 
   private Map<BlockPos, List<BlockPos>> buildAdjacency() {
@@ -204,7 +386,7 @@ public final class DustCsrBuilder {
     for (BlockPos pos : islandPositions) {
       List<BlockPos> neighbours = adjacency.getOrDefault(pos, List.of());
       int degree = neighbours.size();
-      boolean hasAttachment = attachmentsByPosition.containsKey(pos);
+      boolean hasAttachment = attachmentsByPosition.containsKey(pos) || taps.contains(pos);
       boolean isCorner = false;
       if (degree == 2) {
         BlockPos first = neighbours.get(0);
@@ -291,6 +473,19 @@ public final class DustCsrBuilder {
     return mapping;
   }
 
+  private static long mixHash(long hash, long value) {
+    long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+    h ^= h >>> 32;
+    h *= 0xD6E8FEB86659FD93L;
+    return h ^ (h >>> 32);
+  }
+
+  private static void requirePackable(BlockPos pos) {
+    if (!BlockPos.isPackable(pos.x(), pos.y(), pos.z())) {
+      throw new IllegalArgumentException("Position " + pos + " is outside the packable range");
+    }
+  }
+
   private record Traversal(BlockPos target, int weight) {
     // Record used during BFS traversal.
   }
@@ -1,15 +1,45 @@
 package dev.fastquartz.engine.dust;
 
 import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.LongIntMap;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.OptionalInt;
+import java.util.Set;
 
-/** Immutable compressed sparse row representation of the dust network. */
+/**
+ * Immutable compressed sparse row representation of the dust network.
+ *
+ * <p>Storage is bit-packed: island ids, the edge index and edge weights use the minimum bit width
+ * for their largest value, edge targets are stored as zig-zag deltas from their source node (small
+ * after locality ordering), and node positions are packed longs indexed by a primitive
+ * open-addressing table instead of a boxed map. Accessors decode on demand and keep their original
+ * semantics; positions must therefore fit {@link BlockPos#asLong(int, int, int)}.
+ *
+ * <p>Graphs built with {@link DustCsrBuilder#deduplicateIslands(boolean)} additionally share the
+ * node and edge rows of structurally identical islands; node ids, edge indices and every accessor
+ * behave exactly as for the flat layout.
+ *
+ * <p>Graphs are safe to share across threads. Tooling should walk edges with {@link #edgeCursor()}
+ * or the indexed {@link #edgeStart}/{@link #edgeEnd}/{@link #edgeTarget}/{@link #edgeWeight}
+ * accessors, which read the packed storage directly, rather than the copying array accessors.
+ * Settle kernels read flat lanes from {@link #edgeLanes()}, which are decoded once on first use and
+ * shared by every propagator and settler over the graph; {@link #storageBytes()} counts them once
+ * decoded.
+ */
 public final class DustCsrGraph {
+  private static final int NO_NODE = -1;
+
   private static final DustCsrGraph EMPTY =
       new DustCsrGraph(
           List.of(),
@@ -20,13 +50,18 @@ public final class DustCsrGraph {
           Collections.emptyMap(),
           Collections.emptyMap());
 
-  private final List<BlockPos> nodePositions;
-  private final int[] islandIds;
-  private final int[] edgeIndex;
-  private final int[] edgeTargets;
-  private final int[] edgeWeights;
+  private final int nodeCount;
+  private final LongBuffer nodePositions;
+  private final PackedIntArray islandIds;
+  private final PackedIntArray edgeIndex;
+  private final PackedIntArray edgeTargetDeltas;
+  private final PackedIntArray edgeWeights;
   private final Map<DustPort, Integer> portToNode;
-  private final Map<BlockPos, Integer> positionToNode;
+  private final IntBuffer positionIndex;
+  private final int positionCount;
+  private final DustIslandTemplates templates;
+  private final PositionView positionView = new PositionView();
+  private volatile EdgeLanes edgeLanes;
 
   DustCsrGraph(
       List<BlockPos> nodePositions,
@@ -36,24 +71,135 @@ public final class DustCsrGraph {
       int[] edgeWeights,
       Map<DustPort, Integer> portToNode,
       Map<BlockPos, Integer> positionToNode) {
-    this.nodePositions = List.copyOf(nodePositions);
-    this.islandIds = islandIds.clone();
-    this.edgeIndex = edgeIndex.clone();
-    this.edgeTargets = edgeTargets.clone();
-    this.edgeWeights = edgeWeights.clone();
-    this.portToNode = Map.copyOf(portToNode);
-    this.positionToNode = Map.copyOf(positionToNode);
-
-    int nodeCount = this.nodePositions.size();
-    if (this.islandIds.length != nodeCount) {
+    Objects.requireNonNull(nodePositions, "nodePositions");
+    this.nodeCount = nodePositions.size();
+    if (islandIds.length != nodeCount) {
       throw new IllegalArgumentException("islandIds must align with node positions");
     }
-    if (this.edgeIndex.length != nodeCount + 1) {
+    if (edgeIndex.length != nodeCount + 1) {
       throw new IllegalArgumentException("edgeIndex must be nodeCount + 1");
     }
-    if (this.edgeTargets.length != this.edgeWeights.length) {
+    if (edgeTargets.length != edgeWeights.length) {
       throw new IllegalArgumentException("edgeTargets and edgeWeights length mismatch");
     }
+    if (edgeIndex[0] != 0 || edgeIndex[nodeCount] != edgeTargets.length) {
+      throw new IllegalArgumentException("edgeIndex must span all edges");
+    }
+
+    long[] positionKeys = new long[nodeCount];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      positionKeys[nodeId] = nodePositions.get(nodeId).asLong();
+    }
+    this.nodePositions = LongBuffer.wrap(positionKeys);
+
+    int[] targetDeltas = new int[edgeTargets.length];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      if (edgeIndex[nodeId + 1] < edgeIndex[nodeId]) {
+        throw new IllegalArgumentException("edgeIndex must be non-decreasing");
+      }
+      for (int edge = edgeIndex[nodeId]; edge < edgeIndex[nodeId + 1]; edge++) {
+        int target = edgeTargets[edge];
+        if (target < 0 || target >= nodeCount) {
+          throw new IllegalArgumentException("edge target " + target + " out of bounds");
+        }
+        targetDeltas[edge] = zigZag(target - nodeId);
+      }
+    }
+    this.islandIds = PackedIntArray.of(islandIds);
+    this.edgeIndex = PackedIntArray.of(edgeIndex);
+    this.edgeTargetDeltas = PackedIntArray.of(targetDeltas);
+    this.edgeWeights = PackedIntArray.of(edgeWeights);
+    this.portToNode = Map.copyOf(portToNode);
+
+    int[] index = new int[indexCapacity(positionToNode.size())];
+    Arrays.fill(index, NO_NODE);
+    for (Map.Entry<BlockPos, Integer> entry : positionToNode.entrySet()) {
+      int nodeId = entry.getValue();
+      long key = entry.getKey().asLong();
+      if (nodeId < 0 || nodeId >= nodeCount || positionKeys[nodeId] != key) {
+        throw new IllegalArgumentException(
+            "positionToNode must map node positions to their node ids: " + entry);
+      }
+      insertPosition(index, positionKeys, key, nodeId);
+    }
+    this.positionIndex = IntBuffer.wrap(index);
+    this.positionCount = positionToNode.size();
+    this.templates = null;
+  }
+
+  /** Assembles a graph directly over already-encoded storage, e.g. slices of a mapped file. */
+  DustCsrGraph(
+      LongBuffer nodePositions,
+      PackedIntArray islandIds,
+      PackedIntArray edgeIndex,
+      PackedIntArray edgeTargetDeltas,
+      PackedIntArray edgeWeights,
+      Map<DustPort, Integer> portToNode,
+      IntBuffer positionIndex,
+      int positionCount) {
+    this.nodeCount = nodePositions.capacity();
+    if (islandIds.size() != nodeCount || edgeIndex.size() != nodeCount + 1) {
+      throw new IllegalArgumentException("node lanes must align with node positions");
+    }
+    if (edgeTargetDeltas.size() != edgeWeights.size()) {
+      throw new IllegalArgumentException("edge lanes length mismatch");
+    }
+    if (Integer.bitCount(positionIndex.capacity()) != 1) {
+      throw new IllegalArgumentException("position index capacity must be a power of two");
+    }
+    this.nodePositions = nodePositions;
+    this.islandIds = islandIds;
+    this.edgeIndex = edgeIndex;
+    this.edgeTargetDeltas = edgeTargetDeltas;
+    this.edgeWeights = edgeWeights;
+    this.portToNode = Map.copyOf(portToNode);
+    this.positionIndex = positionIndex;
+    this.positionCount = positionCount;
+    this.templates = null;
+  }
+
+  /**
+   * Assembles a deduplicated graph. The position and edge lanes are indexed by template row rather
+   * than node id; {@code templates} maps nodes and edges onto those rows.
+   */
+  DustCsrGraph(
+      int nodeCount,
+      LongBuffer rowPositions,
+      PackedIntArray islandIds,
+      PackedIntArray rowEdgeIndex,
+      PackedIntArray edgeTargetDeltas,
+      PackedIntArray edgeWeights,
+      Map<DustPort, Integer> portToNode,
+      DustIslandTemplates templates) {
+    if (islandIds.size() != nodeCount) {
+      throw new IllegalArgumentException("islandIds must cover every node");
+    }
+    if (rowEdgeIndex.size() != rowPositions.capacity() + 1) {
+      throw new IllegalArgumentException("rowEdgeIndex must be rowCount + 1");
+    }
+    if (edgeTargetDeltas.size() != edgeWeights.size()) {
+      throw new IllegalArgumentException("edge lanes length mismatch");
+    }
+    this.nodeCount = nodeCount;
+    this.nodePositions = rowPositions;
+    this.islandIds = islandIds;
+    this.edgeIndex = rowEdgeIndex;
+    this.edgeTargetDeltas = edgeTargetDeltas;
+    this.edgeWeights = edgeWeights;
+    this.portToNode = Map.copyOf(portToNode);
+    this.templates = Objects.requireNonNull(templates, "templates");
+
+    long[] positionKeys = new long[nodeCount];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      positionKeys[nodeId] = nodePositionKey(nodeId);
+    }
+    int[] index = new int[indexCapacity(nodeCount)];
+    Arrays.fill(index, NO_NODE);
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      insertPosition(index, positionKeys, positionKeys[nodeId], nodeId);
+    }
+    this.positionIndex = IntBuffer.wrap(index);
+    this.positionCount = nodeCount;
   }
 
   /** Returns an empty graph with no nodes or edges. */
@@ -62,39 +208,156 @@ public final class DustCsrGraph {
   }
 
   public int nodeCount() {
-    return nodePositions.size();
+    return nodeCount;
   }
 
   public int edgeCount() {
-    return edgeTargets.length;
+    return templates != null ? templates.edgeCount() : edgeWeights.size();
   }
 
+  /** Position of {@code nodeId}; allocates, so hot paths should use {@link #nodePositionKey}. */
   public BlockPos nodePosition(int nodeId) {
-    return nodePositions.get(nodeId);
+    return BlockPos.fromLong(nodePositionKey(nodeId));
+  }
+
+  /** Returns the packed {@link BlockPos#asLong()} position of {@code nodeId} without allocating. */
+  public long nodePositionKey(int nodeId) {
+    if (templates == null) {
+      return nodePositions.get(nodeId);
+    }
+    int islandId = islandIds.get(nodeId);
+    return templates.absolutePosition(islandId, nodePositions.get(templates.row(nodeId, islandId)));
   }
 
   public int islandId(int nodeId) {
-    return islandIds[nodeId];
+    return islandIds.get(nodeId);
   }
 
   public int[] edgeIndex() {
-    return edgeIndex.clone();
+    if (templates == null) {
+      return edgeIndex.toArray();
+    }
+    int[] index = new int[nodeCount + 1];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      index[nodeId] = edgeStart(nodeId);
+    }
+    index[nodeCount] = edgeCount();
+    return index;
   }
 
   public int[] edgeTargets() {
-    return edgeTargets.clone();
+    int[] targets = new int[edgeCount()];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      int shift = edgeShift(nodeId);
+      int end = edgeEnd(nodeId);
+      for (int edge = edgeStart(nodeId); edge < end; edge++) {
+        targets[edge] = nodeId + unZigZag(edgeTargetDeltas.get(edge - shift));
+      }
+    }
+    return targets;
   }
 
   public int[] edgeWeights() {
-    return edgeWeights.clone();
+    if (templates == null) {
+      return edgeWeights.toArray();
+    }
+    int[] weights = new int[edgeCount()];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      int shift = edgeShift(nodeId);
+      int end = edgeEnd(nodeId);
+      for (int edge = edgeStart(nodeId); edge < end; edge++) {
+        weights[edge] = edgeWeights.get(edge - shift);
+      }
+    }
+    return weights;
+  }
+
+  /** Index of the first outgoing edge of {@code nodeId}. */
+  public int edgeStart(int nodeId) {
+    return edgeIndex.get(row(nodeId)) + edgeShift(nodeId);
+  }
+
+  /** Index one past the last outgoing edge of {@code nodeId}. */
+  public int edgeEnd(int nodeId) {
+    return edgeIndex.get(row(nodeId) + 1) + edgeShift(nodeId);
+  }
+
+  /**
+   * Target node of the edge at {@code edge}, one of the outgoing edges of {@code nodeId} between
+   * {@link #edgeStart} and {@link #edgeEnd}.
+   */
+  public int edgeTarget(int nodeId, int edge) {
+    if (edge < edgeStart(nodeId) || edge >= edgeEnd(nodeId)) {
+      throw new IllegalArgumentException("edge " + edge + " does not leave node " + nodeId);
+    }
+    return nodeId + unZigZag(edgeTargetDeltas.get(edge - edgeShift(nodeId)));
+  }
+
+  /**
+   * Weight of the edge at {@code edge}, one of the outgoing edges of {@code nodeId} between {@link
+   * #edgeStart} and {@link #edgeEnd}. Naming the source keeps the lookup constant time when islands
+   * share template rows.
+   */
+  public int edgeWeight(int nodeId, int edge) {
+    if (edge < edgeStart(nodeId) || edge >= edgeEnd(nodeId)) {
+      throw new IllegalArgumentException("edge " + edge + " does not leave node " + nodeId);
+    }
+    return edgeWeights.get(edge - edgeShift(nodeId));
+  }
+
+  /**
+   * Creates a reusable cursor over outgoing edges. Cursors read the packed storage directly and
+   * allocate nothing while iterating; each cursor must stay confined to one thread.
+   */
+  public EdgeCursor edgeCursor() {
+    return new EdgeCursor();
+  }
+
+  /**
+   * Int lanes of the packed storage for settle kernels, decoded on first use and shared by every
+   * caller afterwards. The lanes mirror the stored rows, so a deduplicated graph decodes each
+   * template once rather than once per island. Callers must not write into the arrays.
+   */
+  EdgeLanes edgeLanes() {
+    EdgeLanes lanes = edgeLanes;
+    if (lanes == null) {
+      synchronized (this) {
+        lanes = edgeLanes;
+        if (lanes == null) {
+          lanes = decodeEdgeLanes();
+          edgeLanes = lanes;
+        }
+      }
+    }
+    return lanes;
+  }
+
+  private EdgeLanes decodeEdgeLanes() {
+    int[] nodeIslands = islandIds.toArray();
+    int islandCount = 0;
+    for (int islandId : nodeIslands) {
+      islandCount = Math.max(islandCount, islandId + 1);
+    }
+    int[] rowShift = new int[islandCount];
+    if (templates != null) {
+      for (int islandId = 0; islandId < islandCount; islandId++) {
+        rowShift[islandId] = templates.rowShift(islandId);
+      }
+    }
+    int[] deltas = edgeTargetDeltas.toArray();
+    for (int edge = 0; edge < deltas.length; edge++) {
+      deltas[edge] = unZigZag(deltas[edge]);
+    }
+    return new EdgeLanes(nodeIslands, rowShift, edgeIndex.toArray(), deltas, edgeWeights.toArray());
   }
 
   public List<Edge> edgesFrom(int nodeId) {
-    int start = edgeIndex[nodeId];
-    int end = edgeIndex[nodeId + 1];
+    int row = row(nodeId);
+    int start = edgeIndex.get(row);
+    int end = edgeIndex.get(row + 1);
     List<Edge> edges = new ArrayList<>(end - start);
     for (int i = start; i < end; i++) {
-      edges.add(new Edge(edgeTargets[i], edgeWeights[i]));
+      edges.add(new Edge(nodeId + unZigZag(edgeTargetDeltas.get(i)), edgeWeights.get(i)));
     }
     return edges;
   }
@@ -107,16 +370,338 @@ public final class DustCsrGraph {
 
   public OptionalInt nodeForPosition(BlockPos pos) {
     Objects.requireNonNull(pos, "pos");
-    Integer node = positionToNode.get(pos);
-    return node != null ? OptionalInt.of(node) : OptionalInt.empty();
+    int node = nodeAt(pos.x(), pos.y(), pos.z());
+    return node != NO_NODE ? OptionalInt.of(node) : OptionalInt.empty();
+  }
+
+  /** Allocation-free position lookup; returns {@code -1} when no node sits at the coordinates. */
+  public int nodeAt(int x, int y, int z) {
+    if (!BlockPos.isPackable(x, y, z)) {
+      return NO_NODE;
+    }
+    return nodeAtKey(BlockPos.asLong(x, y, z));
+  }
+
+  /** Looks up the node whose packed position equals {@code key}; {@code -1} if there is none. */
+  public int nodeAtKey(long key) {
+    int mask = positionIndex.capacity() - 1;
+    for (int slot = LongIntMap.hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int nodeId = positionIndex.get(slot);
+      if (nodeId == NO_NODE || nodePositionKey(nodeId) == key) {
+        return nodeId;
+      }
+    }
   }
 
   public Map<DustPort, Integer> portToNode() {
     return portToNode;
   }
 
+  /**
+   * Returns the position lookup as an unmodifiable map view over the primitive position index.
+   * Nothing is copied, but lookups box their keys and values; prefer {@link #nodeAt(int, int, int)}
+   * on hot paths.
+   */
   public Map<BlockPos, Integer> positionToNode() {
-    return positionToNode;
+    return positionView;
+  }
+
+  /** Whether structurally identical islands share storage in this graph. */
+  boolean isDeduplicated() {
+    return templates != null;
+  }
+
+  /** Number of distinct island shapes stored, or {@code -1} for a flat graph. */
+  int templateCount() {
+    return templates != null ? templates.templateCount() : -1;
+  }
+
+  /** Template of {@code islandId} in a deduplicated graph; see {@link #isDeduplicated()}. */
+  int templateOf(int islandId) {
+    return templates.templateOf(islandId);
+  }
+
+  /**
+   * Returns this graph in the flat per-node layout the storage accessors below describe, e.g. for
+   * writing to a file. Flat graphs return themselves.
+   */
+  DustCsrGraph flattened() {
+    if (templates == null) {
+      return this;
+    }
+    long[] positions = new long[nodeCount];
+    int[] targetDeltas = new int[edgeCount()];
+    int[] targets = edgeTargets();
+    int[] index = edgeIndex();
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      positions[nodeId] = nodePositionKey(nodeId);
+      for (int edge = index[nodeId]; edge < index[nodeId + 1]; edge++) {
+        targetDeltas[edge] = zigZag(targets[edge] - nodeId);
+      }
+    }
+    return new DustCsrGraph(
+        LongBuffer.wrap(positions),
+        islandIds,
+        PackedIntArray.of(index),
+        PackedIntArray.of(targetDeltas),
+        PackedIntArray.of(edgeWeights()),
+        portToNode,
+        positionIndex.duplicate(),
+        positionCount);
+  }
+
+  LongBuffer nodePositionStorage() {
+    return nodePositions.duplicate();
+  }
+
+  PackedIntArray islandIdStorage() {
+    return islandIds;
+  }
+
+  PackedIntArray edgeIndexStorage() {
+    return edgeIndex;
+  }
+
+  PackedIntArray edgeTargetDeltaStorage() {
+    return edgeTargetDeltas;
+  }
+
+  PackedIntArray edgeWeightStorage() {
+    return edgeWeights;
+  }
+
+  IntBuffer positionIndexStorage() {
+    return positionIndex.duplicate();
+  }
+
+  int positionCount() {
+    return positionCount;
+  }
+
+  /**
+   * Approximate heap footprint of the graph's node, edge and position storage in bytes, including
+   * the decoded {@link #edgeLanes()} once a kernel has requested them.
+   */
+  long storageBytes() {
+    EdgeLanes lanes = edgeLanes;
+    return (long) nodePositions.capacity() * Long.BYTES
+        + (lanes != null ? lanes.storageBytes() : 0)
+        + islandIds.payloadBytes()
+        + edgeIndex.payloadBytes()
+        + edgeTargetDeltas.payloadBytes()
+        + edgeWeights.payloadBytes()
+        + (long) positionIndex.capacity() * Integer.BYTES
+        + (templates != null ? templates.payloadBytes() : 0);
+  }
+
+  /** Storage row of {@code nodeId}: the node itself, or its template row when deduplicated. */
+  private int row(int nodeId) {
+    return templates != null ? templates.row(nodeId, islandIds.get(nodeId)) : nodeId;
+  }
+
+  /** Offset from the stored edge rows of {@code nodeId} to its global edge indices. */
+  private int edgeShift(int nodeId) {
+    return templates != null ? templates.edgeShift(islandIds.get(nodeId)) : 0;
+  }
+
+  private static void insertPosition(int[] index, long[] positionKeys, long key, int nodeId) {
+    int mask = index.length - 1;
+    int slot = LongIntMap.hash(key) & mask;
+    while (index[slot] != NO_NODE) {
+      if (positionKeys[index[slot]] == key) {
+        throw new IllegalArgumentException("duplicate position " + BlockPos.fromLong(key));
+      }
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = nodeId;
+  }
+
+  private static int indexCapacity(int entries) {
+    // Keep the load factor at or below two thirds so linear probes stay short.
+    long minimum = entries + (entries + 1L) / 2;
+    int capacity = 2;
+    while (capacity < minimum) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int unZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /** Allocation-free iterator over the outgoing edges of one node at a time. */
+  public final class EdgeCursor {
+    private int source = NO_NODE;
+    private int edge;
+    private int start;
+    private int end;
+    private int shift;
+
+    private EdgeCursor() {}
+
+    /** Positions the cursor before the first outgoing edge of {@code nodeId}. */
+    public EdgeCursor reset(int nodeId) {
+      if (nodeId < 0 || nodeId >= nodeCount) {
+        throw new IllegalArgumentException("nodeId " + nodeId + " out of bounds");
+      }
+      source = nodeId;
+      shift = edgeShift(nodeId);
+      start = edgeStart(nodeId);
+      end = edgeEnd(nodeId);
+      edge = start - 1;
+      return this;
+    }
+
+    /** Advances to the next edge, returning {@code false} once the node's edges are exhausted. */
+    public boolean next() {
+      if (edge + 1 >= end) {
+        edge = end;
+        return false;
+      }
+      edge++;
+      return true;
+    }
+
+    public int sourceNode() {
+      return source;
+    }
+
+    /** Global index of the current edge. */
+    public int edge() {
+      checkPositioned();
+      return edge;
+    }
+
+    public int targetNode() {
+      checkPositioned();
+      return source + unZigZag(edgeTargetDeltas.get(edge - shift));
+    }
+
+    public int weight() {
+      checkPositioned();
+      return edgeWeights.get(edge - shift);
+    }
+
+    private void checkPositioned() {
+      if (source == NO_NODE || edge < start || edge >= end) {
+        throw new IllegalStateException("cursor is not positioned on an edge");
+      }
+    }
+  }
+
+  /**
+   * Decoded CSR lanes shared by every kernel over one graph; the arrays are never written after
+   * decoding.
+   *
+   * <p>Edges are stored per row: node {@code n} of island {@code i} reads row {@code n +
+   * islandRowShift[i]}, whose edges are {@code [rowEdgeIndex[row], rowEdgeIndex[row + 1])} with
+   * target {@code n + edgeDeltas[edge]}. Flat graphs have one row per node and a zero shift;
+   * islands sharing a template share its rows.
+   */
+  static final class EdgeLanes {
+    final int[] islandIds;
+    final int[] islandRowShift;
+    final int[] rowEdgeIndex;
+    final int[] edgeDeltas;
+    final int[] edgeWeights;
+
+    EdgeLanes(
+        int[] islandIds,
+        int[] islandRowShift,
+        int[] rowEdgeIndex,
+        int[] edgeDeltas,
+        int[] edgeWeights) {
+      this.islandIds = islandIds;
+      this.islandRowShift = islandRowShift;
+      this.rowEdgeIndex = rowEdgeIndex;
+      this.edgeDeltas = edgeDeltas;
+      this.edgeWeights = edgeWeights;
+    }
+
+    /** Edge row of {@code nodeId}. */
+    int row(int nodeId) {
+      return nodeId + islandRowShift[islandIds[nodeId]];
+    }
+
+    /** Heap footprint of the decoded arrays in bytes. */
+    long storageBytes() {
+      return ((long) islandIds.length
+              + islandRowShift.length
+              + rowEdgeIndex.length
+              + edgeDeltas.length
+              + edgeWeights.length)
+          * Integer.BYTES;
+    }
+  }
+
+  /** Read-only map view of the position index. */
+  private final class PositionView extends AbstractMap<BlockPos, Integer> {
+    @Override
+    public int size() {
+      return positionCount;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Integer get(Object key) {
+      if (!(key instanceof BlockPos pos)) {
+        return null;
+      }
+      int nodeId = nodeAt(pos.x(), pos.y(), pos.z());
+      return nodeId != NO_NODE ? nodeId : null;
+    }
+
+    @Override
+    public Set<Map.Entry<BlockPos, Integer>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public int size() {
+          return positionCount;
+        }
+
+        @Override
+        public Iterator<Map.Entry<BlockPos, Integer>> iterator() {
+          return new PositionIterator();
+        }
+      };
+    }
+  }
+
+  /** Walks the occupied slots of the position index. */
+  private final class PositionIterator implements Iterator<Map.Entry<BlockPos, Integer>> {
+    private int slot = advance(0);
+
+    @Override
+    public boolean hasNext() {
+      return slot < positionIndex.capacity();
+    }
+
+    @Override
+    public Map.Entry<BlockPos, Integer> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int nodeId = positionIndex.get(slot);
+      slot = advance(slot + 1);
+      return Map.entry(nodePosition(nodeId), nodeId);
+    }
+
+    private int advance(int from) {
+      int next = from;
+      while (next < positionIndex.capacity() && positionIndex.get(next) == NO_NODE) {
+        next++;
+      }
+      return next;
+    }
   }
 
   /** Lightweight view of an outgoing edge. */
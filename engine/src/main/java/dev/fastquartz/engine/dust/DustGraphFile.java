@@ -0,0 +1,379 @@
+package dev.fastquartz.engine.dust;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Versioned, memory-mappable binary form of a {@link DustCsrGraph}.
+ *
+ * <p>The file is a fixed 64-byte little-endian header followed by 8-byte aligned sections that hold
+ * the graph's storage verbatim: packed node positions, the four bit-packed CSR lanes, the
+ * open-addressing position index and the port table. {@link #map(Path, long)} therefore hands the
+ * mapped sections straight to the graph without decoding them; only the small port table is read
+ * into a map.
+ *
+ * <p>The header records the {@link DustCsrBuilder#contentHash()} of the inputs the graph was built
+ * from. A file whose hash, magic or version does not match is treated as stale and ignored. Since
+ * that hash covers the inputs rather than the file bytes, the payload is also range-checked in one
+ * pass before it is mapped: a corrupt file is ignored instead of failing later lookups.
+ */
+public final class DustGraphFile {
+  /** Current on-disk format version; bump whenever the layout changes. */
+  public static final int FORMAT_VERSION = 1;
+
+  private static final int MAGIC = 0x47445146; // "FQDG" little-endian
+  private static final int HEADER_BYTES = 64;
+  private static final int PORT_RECORD_INTS = 3;
+
+  private DustGraphFile() {}
+
+  /** Writes {@code graph} to {@code path}, replacing any existing file atomically. */
+  public static void write(DustCsrGraph graph, long contentHash, Path path) throws IOException {
+    Objects.requireNonNull(graph, "graph");
+    Objects.requireNonNull(path, "path");
+    // Deduplicated graphs are expanded; the file always holds the flat per-node layout.
+    DustCsrGraph flat = graph.flattened();
+    Layout layout = Layout.of(flat);
+    ByteBuffer buffer =
+        ByteBuffer.allocate(Math.toIntExact(layout.totalBytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.putInt(MAGIC);
+    buffer.putInt(FORMAT_VERSION);
+    buffer.putLong(contentHash);
+    buffer.putInt(layout.nodeCount);
+    buffer.putInt(layout.edgeCount);
+    buffer.putInt(layout.positionCapacity);
+    buffer.putInt(layout.positionCount);
+    buffer.putInt(layout.portCount);
+    buffer.putInt(layout.islandBits);
+    buffer.putInt(layout.indexBits);
+    buffer.putInt(layout.deltaBits);
+    buffer.putInt(layout.weightBits);
+
+    writeLongs(buffer, layout.positionsOffset, flat.nodePositionStorage());
+    writePacked(buffer, layout.islandOffset, flat.islandIdStorage());
+    writePacked(buffer, layout.indexOffset, flat.edgeIndexStorage());
+    writePacked(buffer, layout.deltaOffset, flat.edgeTargetDeltaStorage());
+    writePacked(buffer, layout.weightOffset, flat.edgeWeightStorage());
+
+    IntBuffer index = slice(buffer, layout.positionIndexOffset).asIntBuffer();
+    index.put(flat.positionIndexStorage());
+
+    IntBuffer ports = slice(buffer, layout.portOffset).asIntBuffer();
+    List<Map.Entry<DustPort, Integer>> portEntries = new ArrayList<>(flat.portToNode().entrySet());
+    portEntries.sort((a, b) -> DustPort.compare(a.getKey(), b.getKey()));
+    for (Map.Entry<DustPort, Integer> entry : portEntries) {
+      ports.put(entry.getKey().componentId());
+      ports.put(entry.getKey().portIndex());
+      ports.put(entry.getValue());
+    }
+
+    buffer.clear();
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    boolean moved = false;
+    try {
+      try (FileChannel channel =
+          FileChannel.open(
+              temp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      moved = true;
+    } finally {
+      if (!moved) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  /**
+   * Maps the graph stored at {@code path}. Returns empty when the file is missing, was written by a
+   * different format version, is truncated or corrupt, or was built from inputs other than {@code
+   * expectedContentHash}.
+   */
+  public static Optional<DustCsrGraph> map(Path path, long expectedContentHash) throws IOException {
+    Objects.requireNonNull(path, "path");
+    if (!Files.isRegularFile(path)) {
+      return Optional.empty();
+    }
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+        return Optional.empty();
+      }
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt(0) != MAGIC
+        || buffer.getInt(4) != FORMAT_VERSION
+        || buffer.getLong(8) != expectedContentHash) {
+      return Optional.empty();
+    }
+
+    Layout layout;
+    try {
+      layout =
+          new Layout(
+              buffer.getInt(16),
+              buffer.getInt(20),
+              buffer.getInt(24),
+              buffer.getInt(28),
+              buffer.getInt(32),
+              buffer.getInt(36),
+              buffer.getInt(40),
+              buffer.getInt(44),
+              buffer.getInt(48));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (layout.totalBytes != buffer.capacity()) {
+      return Optional.empty();
+    }
+
+    LongBuffer positions =
+        slice(buffer, layout.positionsOffset).asLongBuffer().limit(layout.nodeCount).slice();
+    PackedIntArray islandIds =
+        readPacked(buffer, layout.islandOffset, layout.islandBits, layout.nodeCount);
+    PackedIntArray edgeIndex =
+        readPacked(buffer, layout.indexOffset, layout.indexBits, layout.nodeCount + 1);
+    PackedIntArray deltas =
+        readPacked(buffer, layout.deltaOffset, layout.deltaBits, layout.edgeCount);
+    PackedIntArray weights =
+        readPacked(buffer, layout.weightOffset, layout.weightBits, layout.edgeCount);
+    IntBuffer positionIndex =
+        slice(buffer, layout.positionIndexOffset)
+            .asIntBuffer()
+            .limit(layout.positionCapacity)
+            .slice();
+
+    Map<DustPort, Integer> portToNode = new HashMap<>();
+    IntBuffer ports = slice(buffer, layout.portOffset).asIntBuffer();
+    for (int i = 0; i < layout.portCount; i++) {
+      int componentId = ports.get();
+      int portIndex = ports.get();
+      int nodeId = ports.get();
+      if (componentId < 0 || portIndex < 0 || nodeId < 0 || nodeId >= layout.nodeCount) {
+        return Optional.empty();
+      }
+      if (portToNode.put(new DustPort(componentId, portIndex), nodeId) != null) {
+        return Optional.empty();
+      }
+    }
+    if (!hasConsistentEdges(layout.nodeCount, islandIds, edgeIndex, deltas)
+        || !hasConsistentPositionIndex(layout.nodeCount, layout.positionCount, positionIndex)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(
+        new DustCsrGraph(
+            positions,
+            islandIds,
+            edgeIndex,
+            deltas,
+            weights,
+            portToNode,
+            positionIndex,
+            layout.positionCount));
+  }
+
+  /**
+   * Maps the graph persisted at {@code path} if it was built from the same inputs as {@code
+   * builder}; otherwise builds a fresh graph and persists it for the next start.
+   */
+  public static DustCsrGraph loadOrBuild(Path path, DustCsrBuilder builder) throws IOException {
+    Objects.requireNonNull(builder, "builder");
+    long contentHash = builder.contentHash();
+    Optional<DustCsrGraph> cached = map(path, contentHash);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    DustCsrGraph graph = builder.build();
+    write(graph, contentHash, path);
+    return graph;
+  }
+
+  /**
+   * Checks that the edge index spans every edge in order, that island ids and edge targets name
+   * nodes, and that edges stay inside their island.
+   */
+  private static boolean hasConsistentEdges(
+      int nodeCount, PackedIntArray islandIds, PackedIntArray edgeIndex, PackedIntArray deltas) {
+    if (edgeIndex.get(0) != 0 || edgeIndex.get(nodeCount) != deltas.size()) {
+      return false;
+    }
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      int islandId = islandIds.get(nodeId);
+      int start = edgeIndex.get(nodeId);
+      int end = edgeIndex.get(nodeId + 1);
+      if (islandId >= nodeCount || end < start || end > deltas.size()) {
+        return false;
+      }
+      for (int edge = start; edge < end; edge++) {
+        int delta = deltas.get(edge);
+        long target = (long) nodeId + ((delta >>> 1) ^ -(delta & 1));
+        if (target < 0 || target >= nodeCount || islandIds.get((int) target) != islandId) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks that the position index holds {@code positionCount} distinct node ids and keeps at least
+   * one empty slot, so every probe sequence terminates.
+   */
+  private static boolean hasConsistentPositionIndex(
+      int nodeCount, int positionCount, IntBuffer positionIndex) {
+    if (positionCount > nodeCount || positionCount >= positionIndex.capacity()) {
+      return false;
+    }
+    BitSet seen = new BitSet(nodeCount);
+    int occupied = 0;
+    for (int slot = 0; slot < positionIndex.capacity(); slot++) {
+      int nodeId = positionIndex.get(slot);
+      if (nodeId == -1) {
+        continue;
+      }
+      if (nodeId < 0 || nodeId >= nodeCount || seen.get(nodeId)) {
+        return false;
+      }
+      seen.set(nodeId);
+      occupied++;
+    }
+    return occupied == positionCount;
+  }
+
+  private static void writeLongs(ByteBuffer buffer, long offset, LongBuffer values) {
+    slice(buffer, offset).asLongBuffer().put(values);
+  }
+
+  private static void writePacked(ByteBuffer buffer, long offset, PackedIntArray values) {
+    values.writeWords(slice(buffer, offset).asLongBuffer());
+  }
+
+  private static PackedIntArray readPacked(ByteBuffer buffer, long offset, int bits, int size) {
+    int words = PackedIntArray.wordCount(size, bits);
+    LongBuffer slice = slice(buffer, offset).asLongBuffer().limit(words).slice();
+    return PackedIntArray.wrap(slice, bits, size);
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, long offset) {
+    return buffer.duplicate().position((int) offset).slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** Section offsets derived from the header counts; shared by the writer and the reader. */
+  private static final class Layout {
+    final int nodeCount;
+    final int edgeCount;
+    final int positionCapacity;
+    final int positionCount;
+    final int portCount;
+    final int islandBits;
+    final int indexBits;
+    final int deltaBits;
+    final int weightBits;
+    final long positionsOffset;
+    final long islandOffset;
+    final long indexOffset;
+    final long deltaOffset;
+    final long weightOffset;
+    final long positionIndexOffset;
+    final long portOffset;
+    final long totalBytes;
+
+    Layout(
+        int nodeCount,
+        int edgeCount,
+        int positionCapacity,
+        int positionCount,
+        int portCount,
+        int islandBits,
+        int indexBits,
+        int deltaBits,
+        int weightBits) {
+      if (nodeCount < 0
+          || edgeCount < 0
+          || positionCapacity < 2
+          || Integer.bitCount(positionCapacity) != 1
+          || positionCount < 0
+          || portCount < 0) {
+        throw new IllegalArgumentException("corrupt dust graph header");
+      }
+      for (int bits : new int[] {islandBits, indexBits, deltaBits, weightBits}) {
+        if (bits < 1 || bits >= Integer.SIZE) {
+          throw new IllegalArgumentException("corrupt dust graph header");
+        }
+      }
+      this.nodeCount = nodeCount;
+      this.edgeCount = edgeCount;
+      this.positionCapacity = positionCapacity;
+      this.positionCount = positionCount;
+      this.portCount = portCount;
+      this.islandBits = islandBits;
+      this.indexBits = indexBits;
+      this.deltaBits = deltaBits;
+      this.weightBits = weightBits;
+
+      long offset = HEADER_BYTES;
+      this.positionsOffset = offset;
+      offset += (long) nodeCount * Long.BYTES;
+      this.islandOffset = offset;
+      offset += (long) PackedIntArray.wordCount(nodeCount, islandBits) * Long.BYTES;
+      this.indexOffset = offset;
+      offset += (long) PackedIntArray.wordCount(nodeCount + 1, indexBits) * Long.BYTES;
+      this.deltaOffset = offset;
+      offset += (long) PackedIntArray.wordCount(edgeCount, deltaBits) * Long.BYTES;
+      this.weightOffset = offset;
+      offset += (long) PackedIntArray.wordCount(edgeCount, weightBits) * Long.BYTES;
+      this.positionIndexOffset = offset;
+      offset += align((long) positionCapacity * Integer.BYTES);
+      this.portOffset = offset;
+      offset += align((long) portCount * PORT_RECORD_INTS * Integer.BYTES);
+      this.totalBytes = offset;
+    }
+
+    static Layout of(DustCsrGraph graph) {
+      return new Layout(
+          graph.nodeCount(),
+          graph.edgeCount(),
+          graph.positionIndexStorage().capacity(),
+          graph.positionCount(),
+          graph.portToNode().size(),
+          graph.islandIdStorage().bitsPerValue(),
+          graph.edgeIndexStorage().bitsPerValue(),
+          graph.edgeTargetDeltaStorage().bitsPerValue(),
+          graph.edgeWeightStorage().bitsPerValue());
+    }
+
+    private static long align(long bytes) {
+      return (bytes + Long.BYTES - 1) & ~(Long.BYTES - 1L);
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package dev.fastquartz.engine.dust;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Island-to-template mapping of a deduplicated {@link DustCsrGraph}.
+ *
+ * <p>Repeated subcircuits (memory cells, ALU slices) produce islands with the same shape at
+ * different offsets. Because islands occupy contiguous id ranges and edge targets are stored as
+ * deltas from their source, two translated copies have identical row storage: the same relative
+ * node positions, edge deltas and weights. Such islands share one template row range; each island
+ * keeps only its first node, first edge, template id and origin.
+ */
+final class DustIslandTemplates {
+  private final PackedIntArray islandFirstNode;
+  private final PackedIntArray islandFirstEdge;
+  private final PackedIntArray islandTemplate;
+  private final LongBuffer islandOrigins;
+  private final PackedIntArray templateRowBase;
+  private final PackedIntArray rowEdgeIndex;
+
+  private DustIslandTemplates(
+      int[] islandFirstNode,
+      int[] islandFirstEdge,
+      int[] islandTemplate,
+      long[] islandOrigins,
+      int[] templateRowBase,
+      PackedIntArray rowEdgeIndex) {
+    this.islandFirstNode = PackedIntArray.of(islandFirstNode);
+    this.islandFirstEdge = PackedIntArray.of(islandFirstEdge);
+    this.islandTemplate = PackedIntArray.of(islandTemplate);
+    this.islandOrigins = LongBuffer.wrap(islandOrigins);
+    this.templateRowBase = PackedIntArray.of(templateRowBase);
+    this.rowEdgeIndex = rowEdgeIndex;
+  }
+
+  /**
+   * Returns {@code graph} with structurally identical islands sharing storage. Graphs whose islands
+   * are not contiguous, increasing id ranges, or that contain edges between islands, are returned
+   * unchanged.
+   */
+  static DustCsrGraph deduplicate(DustCsrGraph graph) {
+    int nodeCount = graph.nodeCount();
+    if (nodeCount == 0 || !hasContiguousIslands(graph)) {
+      return graph;
+    }
+    int[] edgeIndex = graph.edgeIndex();
+    int[] edgeTargets = graph.edgeTargets();
+    int[] edgeWeights = graph.edgeWeights();
+    int islandCount = graph.islandId(nodeCount - 1) + 1;
+
+    int[] firstNode = new int[islandCount + 1];
+    for (int nodeId = nodeCount - 1; nodeId >= 0; nodeId--) {
+      firstNode[graph.islandId(nodeId)] = nodeId;
+    }
+    firstNode[islandCount] = nodeCount;
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      for (int edge = edgeIndex[nodeId]; edge < edgeIndex[nodeId + 1]; edge++) {
+        if (graph.islandId(edgeTargets[edge]) != graph.islandId(nodeId)) {
+          return graph;
+        }
+      }
+    }
+
+    int[] firstEdge = new int[islandCount + 1];
+    int[] templateOf = new int[islandCount];
+    long[] origins = new long[islandCount];
+    List<Shape> templates = new ArrayList<>();
+    Map<Shape, Integer> templateIds = new HashMap<>();
+    for (int islandId = 0; islandId < islandCount; islandId++) {
+      firstEdge[islandId] = edgeIndex[firstNode[islandId]];
+      Shape shape =
+          Shape.of(
+              graph,
+              firstNode[islandId],
+              firstNode[islandId + 1],
+              edgeIndex,
+              edgeTargets,
+              edgeWeights);
+      origins[islandId] = shape.origin;
+      Integer templateId = templateIds.get(shape);
+      if (templateId == null) {
+        templateId = templates.size();
+        templates.add(shape);
+        templateIds.put(shape, templateId);
+      }
+      templateOf[islandId] = templateId;
+    }
+    firstEdge[islandCount] = edgeTargets.length;
+
+    int rowCount = 0;
+    int sharedEdges = 0;
+    int[] rowBase = new int[templates.size() + 1];
+    for (int templateId = 0; templateId < templates.size(); templateId++) {
+      rowBase[templateId] = rowCount;
+      rowCount += templates.get(templateId).relativePositions.length;
+      sharedEdges += templates.get(templateId).edgeDeltas.length;
+    }
+    rowBase[templates.size()] = rowCount;
+
+    long[] relativePositions = new long[rowCount];
+    int[] rowEdgeIndex = new int[rowCount + 1];
+    int[] deltas = new int[sharedEdges];
+    int[] weights = new int[sharedEdges];
+    int edgeCursor = 0;
+    for (int templateId = 0; templateId < templates.size(); templateId++) {
+      Shape shape = templates.get(templateId);
+      int base = rowBase[templateId];
+      System.arraycopy(
+          shape.relativePositions, 0, relativePositions, base, shape.relativePositions.length);
+      for (int local = 0; local < shape.relativePositions.length; local++) {
+        rowEdgeIndex[base + local] = edgeCursor + shape.edgeOffsets[local];
+      }
+      System.arraycopy(shape.edgeDeltas, 0, deltas, edgeCursor, shape.edgeDeltas.length);
+      System.arraycopy(shape.edgeWeights, 0, weights, edgeCursor, shape.edgeWeights.length);
+      edgeCursor += shape.edgeDeltas.length;
+    }
+    rowEdgeIndex[rowCount] = edgeCursor;
+
+    PackedIntArray packedRowEdgeIndex = PackedIntArray.of(rowEdgeIndex);
+    DustIslandTemplates islandTemplates =
+        new DustIslandTemplates(
+            firstNode, firstEdge, templateOf, origins, rowBase, packedRowEdgeIndex);
+    int[] islandIds = new int[nodeCount];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      islandIds[nodeId] = graph.islandId(nodeId);
+    }
+    return new DustCsrGraph(
+        nodeCount,
+        LongBuffer.wrap(relativePositions),
+        PackedIntArray.of(islandIds),
+        packedRowEdgeIndex,
+        PackedIntArray.of(deltas),
+        PackedIntArray.of(weights),
+        graph.portToNode(),
+        islandTemplates);
+  }
+
+  int islandCount() {
+    return islandTemplate.size();
+  }
+
+  int templateCount() {
+    return templateRowBase.size() - 1;
+  }
+
+  int templateOf(int islandId) {
+    return islandTemplate.get(islandId);
+  }
+
+  /** Template row holding the shape of {@code nodeId}, which lives in {@code islandId}. */
+  int row(int nodeId, int islandId) {
+    return nodeId + rowShift(islandId);
+  }
+
+  /** Offset turning a node id of {@code islandId} into its template row. */
+  int rowShift(int islandId) {
+    return templateRowBase.get(islandTemplate.get(islandId)) - islandFirstNode.get(islandId);
+  }
+
+  /** Offset turning a shared edge index of {@code islandId} into its global edge index. */
+  int edgeShift(int islandId) {
+    int sharedFirstEdge = rowEdgeIndex.get(templateRowBase.get(islandTemplate.get(islandId)));
+    return islandFirstEdge.get(islandId) - sharedFirstEdge;
+  }
+
+  int edgeCount() {
+    return islandFirstEdge.get(islandCount());
+  }
+
+  /** Packed position of {@code nodeId} given its template-relative packed position. */
+  long absolutePosition(int islandId, long relative) {
+    long origin = islandOrigins.get(islandId);
+    return BlockPos.asLong(
+        BlockPos.unpackX(origin) + BlockPos.unpackX(relative),
+        BlockPos.unpackY(origin) + BlockPos.unpackY(relative),
+        BlockPos.unpackZ(origin) + BlockPos.unpackZ(relative));
+  }
+
+  long payloadBytes() {
+    return islandFirstNode.payloadBytes()
+        + islandFirstEdge.payloadBytes()
+        + islandTemplate.payloadBytes()
+        + (long) islandOrigins.capacity() * Long.BYTES
+        + templateRowBase.payloadBytes();
+  }
+
+  private static boolean hasContiguousIslands(DustCsrGraph graph) {
+    if (graph.islandId(0) != 0) {
+      return false;
+    }
+    for (int nodeId = 1; nodeId < graph.nodeCount(); nodeId++) {
+      int step = graph.islandId(nodeId) - graph.islandId(nodeId - 1);
+      if (step != 0 && step != 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Translation-invariant shape of one island, compared by value. */
+  private static final class Shape {
+    final long origin;
+    final long[] relativePositions;
+    final int[] edgeOffsets;
+    final int[] edgeDeltas;
+    final int[] edgeWeights;
+    private final int hash;
+
+    private Shape(
+        long origin,
+        long[] relativePositions,
+        int[] edgeOffsets,
+        int[] edgeDeltas,
+        int[] edgeWeights) {
+      this.origin = origin;
+      this.relativePositions = relativePositions;
+      this.edgeOffsets = edgeOffsets;
+      this.edgeDeltas = edgeDeltas;
+      this.edgeWeights = edgeWeights;
+      int h = Arrays.hashCode(relativePositions);
+      h = 31 * h + Arrays.hashCode(edgeOffsets);
+      h = 31 * h + Arrays.hashCode(edgeDeltas);
+      this.hash = 31 * h + Arrays.hashCode(edgeWeights);
+    }
+
+    static Shape of(
+        DustCsrGraph graph,
+        int from,
+        int to,
+        int[] edgeIndex,
+        int[] edgeTargets,
+        int[] edgeWeights) {
+      int minX = Integer.MAX_VALUE;
+      int minY = Integer.MAX_VALUE;
+      int minZ = Integer.MAX_VALUE;
+      for (int nodeId = from; nodeId < to; nodeId++) {
+        long key = graph.nodePositionKey(nodeId);
+        minX = Math.min(minX, BlockPos.unpackX(key));
+        minY = Math.min(minY, BlockPos.unpackY(key));
+        minZ = Math.min(minZ, BlockPos.unpackZ(key));
+      }
+      long origin = BlockPos.asLong(minX, minY, minZ);
+      long[] relative = new long[to - from];
+      for (int nodeId = from; nodeId < to; nodeId++) {
+        long key = graph.nodePositionKey(nodeId);
+        int dx = BlockPos.unpackX(key) - minX;
+        int dy = BlockPos.unpackY(key) - minY;
+        int dz = BlockPos.unpackZ(key) - minZ;
+        if (!BlockPos.isPackable(dx, dy, dz)) {
+          // Too tall to encode relatively; keep the island as its own absolute template.
+          origin = BlockPos.asLong(0, 0, 0);
+          for (int i = from; i < to; i++) {
+            relative[i - from] = graph.nodePositionKey(i);
+          }
+          break;
+        }
+        relative[nodeId - from] = BlockPos.asLong(dx, dy, dz);
+      }
+      int firstEdge = edgeIndex[from];
+      int edgeCount = edgeIndex[to] - firstEdge;
+      int[] offsets = new int[to - from];
+      int[] deltas = new int[edgeCount];
+      int[] weights = new int[edgeCount];
+      for (int nodeId = from; nodeId < to; nodeId++) {
+        offsets[nodeId - from] = edgeIndex[nodeId] - firstEdge;
+        for (int edge = edgeIndex[nodeId]; edge < edgeIndex[nodeId + 1]; edge++) {
+          deltas[edge - firstEdge] = DustCsrGraph.zigZag(edgeTargets[edge] - nodeId);
+          weights[edge - firstEdge] = edgeWeights[edge];
+        }
+      }
+      return new Shape(origin, relative, offsets, deltas, weights);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Shape shape)) {
+        return false;
+      }
+      return hash == shape.hash
+          && Arrays.equals(relativePositions, shape.relativePositions)
+          && Arrays.equals(edgeOffsets, shape.edgeOffsets)
+          && Arrays.equals(edgeDeltas, shape.edgeDeltas)
+          && Arrays.equals(edgeWeights, shape.edgeWeights);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package dev.fastquartz.engine.dust;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renumbers dust graph nodes for cache locality.
+ *
+ * <p>Nodes are grouped so every island occupies a contiguous id range (islands keep their relative
+ * order), and within an island ids follow a reverse Cuthill–McKee traversal. Neighbouring nodes
+ * therefore land close together in the per-node arrays the settle loop walks, which keeps the
+ * frontier inside a few cache lines on large islands.
+ */
+final class DustNodeOrdering {
+  private DustNodeOrdering() {}
+
+  /** Returns a copy of {@code graph} renumbered in reverse Cuthill–McKee order per island. */
+  static DustCsrGraph reverseCuthillMcKee(DustCsrGraph graph) {
+    int nodeCount = graph.nodeCount();
+    if (nodeCount <= 1) {
+      return graph;
+    }
+    int[] edgeIndex = graph.edgeIndex();
+    int[] edgeTargets = graph.edgeTargets();
+    int[] edgeWeights = graph.edgeWeights();
+    int[] newToOld = computeOrder(graph, edgeIndex, edgeTargets);
+    int[] oldToNew = new int[nodeCount];
+    for (int newId = 0; newId < nodeCount; newId++) {
+      oldToNew[newToOld[newId]] = newId;
+    }
+    return renumber(graph, edgeIndex, edgeTargets, edgeWeights, newToOld, oldToNew);
+  }
+
+  private static int[] computeOrder(DustCsrGraph graph, int[] edgeIndex, int[] edgeTargets) {
+    int nodeCount = graph.nodeCount();
+    Map<Integer, List<Integer>> nodesByIsland = new HashMap<>();
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      nodesByIsland.computeIfAbsent(graph.islandId(nodeId), key -> new ArrayList<>()).add(nodeId);
+    }
+    List<Integer> islandOrder = new ArrayList<>(nodesByIsland.keySet());
+    islandOrder.sort(Integer::compare);
+
+    int[] degree = new int[nodeCount];
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      degree[nodeId] = edgeIndex[nodeId + 1] - edgeIndex[nodeId];
+    }
+
+    int[] order = new int[nodeCount];
+    boolean[] visited = new boolean[nodeCount];
+    int[] scratch = new int[nodeCount];
+    int cursor = 0;
+    for (int islandId : islandOrder) {
+      List<Integer> nodes = nodesByIsland.get(islandId);
+      int islandStart = cursor;
+      List<Integer> seeds = new ArrayList<>(nodes);
+      seeds.sort((a, b) -> compareByDegree(degree, a, b));
+      for (int seed : seeds) {
+        if (visited[seed]) {
+          continue;
+        }
+        visited[seed] = true;
+        int head = cursor;
+        order[cursor++] = seed;
+        while (head < cursor) {
+          int nodeId = order[head++];
+          int neighbourCount = 0;
+          for (int edge = edgeIndex[nodeId]; edge < edgeIndex[nodeId + 1]; edge++) {
+            int dst = edgeTargets[edge];
+            if (visited[dst] || graph.islandId(dst) != islandId) {
+              continue;
+            }
+            visited[dst] = true;
+            scratch[neighbourCount++] = dst;
+          }
+          sortByDegree(scratch, neighbourCount, degree);
+          System.arraycopy(scratch, 0, order, cursor, neighbourCount);
+          cursor += neighbourCount;
+        }
+      }
+      reverse(order, islandStart, cursor);
+    }
+    return order;
+  }
+
+  private static DustCsrGraph renumber(
+      DustCsrGraph graph,
+      int[] edgeIndex,
+      int[] edgeTargets,
+      int[] edgeWeights,
+      int[] newToOld,
+      int[] oldToNew) {
+    int nodeCount = graph.nodeCount();
+    List<BlockPos> nodePositions = new ArrayList<>(nodeCount);
+    int[] islandIds = new int[nodeCount];
+    int[] newEdgeIndex = new int[nodeCount + 1];
+    int[] newEdgeTargets = new int[edgeTargets.length];
+    int[] newEdgeWeights = new int[edgeWeights.length];
+    long[] packedEdges = new long[edgeTargets.length];
+
+    int edgeCursor = 0;
+    for (int newId = 0; newId < nodeCount; newId++) {
+      int oldId = newToOld[newId];
+      nodePositions.add(graph.nodePosition(oldId));
+      islandIds[newId] = graph.islandId(oldId);
+      newEdgeIndex[newId] = edgeCursor;
+      int edgeStart = edgeIndex[oldId];
+      int edgeEnd = edgeIndex[oldId + 1];
+      int count = edgeEnd - edgeStart;
+      for (int i = 0; i < count; i++) {
+        int edge = edgeStart + i;
+        packedEdges[i] = ((long) oldToNew[edgeTargets[edge]] << 32) | edgeWeights[edge];
+      }
+      // Keep edges ordered by (target, weight) exactly like the builder emits them.
+      Arrays.sort(packedEdges, 0, count);
+      for (int i = 0; i < count; i++) {
+        newEdgeTargets[edgeCursor] = (int) (packedEdges[i] >>> 32);
+        newEdgeWeights[edgeCursor] = (int) packedEdges[i];
+        edgeCursor++;
+      }
+    }
+    newEdgeIndex[nodeCount] = edgeCursor;
+
+    Map<DustPort, Integer> portToNode = new LinkedHashMap<>();
+    for (Map.Entry<DustPort, Integer> entry : graph.portToNode().entrySet()) {
+      portToNode.put(entry.getKey(), oldToNew[entry.getValue()]);
+    }
+    Map<BlockPos, Integer> positionToNode = new HashMap<>();
+    for (Map.Entry<BlockPos, Integer> entry : graph.positionToNode().entrySet()) {
+      positionToNode.put(entry.getKey(), oldToNew[entry.getValue()]);
+    }
+
+    return new DustCsrGraph(
+        nodePositions,
+        islandIds,
+        newEdgeIndex,
+        newEdgeTargets,
+        newEdgeWeights,
+        portToNode,
+        positionToNode);
+  }
+
+  private static int compareByDegree(int[] degree, int a, int b) {
+    int cmp = Integer.compare(degree[a], degree[b]);
+    return cmp != 0 ? cmp : Integer.compare(a, b);
+  }
+
+  private static void sortByDegree(int[] nodes, int count, int[] degree) {
+    for (int i = 1; i < count; i++) {
+      int value = nodes[i];
+      int j = i - 1;
+      while (j >= 0 && compareByDegree(degree, nodes[j], value) > 0) {
+        nodes[j + 1] = nodes[j];
+        j--;
+      }
+      nodes[j + 1] = value;
+    }
+  }
+
+  private static void reverse(int[] values, int from, int to) {
+    for (int i = from, j = to - 1; i < j; i++, j--) {
+      int tmp = values[i];
+      values[i] = values[j];
+      values[j] = tmp;
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package dev.fastquartz.engine.dust;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel full settle for oversized dust islands.
+ *
+ * <p>Each large island is cut into partitions of consecutive breadth-first order, so a partition is
+ * a connected run of the wire with few cut edges. A settle then proceeds in rounds: every partition
+ * floods its own nodes from its sources and from the levels its neighbours published for the cut
+ * edges in the previous round, then publishes its own cut-edge levels. Partitions only write their
+ * own nodes and published levels are double-buffered per round, so the only synchronisation is the
+ * join at the end of a round. Rounds stop once no published level changes; since the dust fixed
+ * point is unique the levels equal the sequential settle exactly.
+ */
+final class DustPartitionedSettle {
+  private static final int NOT_PARTITIONED = -1;
+
+  private final DustCsrGraph.EdgeLanes lanes;
+  private final int[] islandIds;
+  private final int[] rowEdgeIndex;
+  private final int[] edgeDeltas;
+  private final int[] edgeWeights;
+  private final int[] nodePartition;
+  private final Partition[][] partitionsByIsland;
+  private final int[][] published;
+
+  DustPartitionedSettle(
+      DustCsrGraph.EdgeLanes lanes, int[][] nodesByIsland, int minIslandNodes, int partitionNodes) {
+    this.lanes = lanes;
+    this.islandIds = lanes.islandIds;
+    this.rowEdgeIndex = lanes.rowEdgeIndex;
+    this.edgeDeltas = lanes.edgeDeltas;
+    this.edgeWeights = lanes.edgeWeights;
+    int nodeCount = islandIds.length;
+    this.nodePartition = new int[nodeCount];
+    Arrays.fill(nodePartition, NOT_PARTITIONED);
+    this.partitionsByIsland = new Partition[nodesByIsland.length][];
+    this.published = new int[][] {new int[nodeCount], new int[nodeCount]};
+
+    int nextPartition = 0;
+    for (int islandId = 0; islandId < nodesByIsland.length; islandId++) {
+      int[] nodes = nodesByIsland[islandId];
+      if (nodes.length < minIslandNodes || nodes.length <= partitionNodes) {
+        continue;
+      }
+      int[] order = breadthFirstOrder(islandId, nodes);
+      int count = (order.length + partitionNodes - 1) / partitionNodes;
+      Partition[] partitions = new Partition[count];
+      for (int part = 0; part < count; part++) {
+        int from = part * partitionNodes;
+        int[] members =
+            Arrays.copyOfRange(order, from, Math.min(order.length, from + partitionNodes));
+        Arrays.sort(members);
+        for (int nodeId : members) {
+          nodePartition[nodeId] = nextPartition + part;
+        }
+        partitions[part] = new Partition(nextPartition + part, members);
+      }
+      collectCutEdges(nextPartition, partitions);
+      partitionsByIsland[islandId] = partitions;
+      nextPartition += count;
+    }
+  }
+
+  boolean isPartitioned(int islandId) {
+    return islandId >= 0
+        && islandId < partitionsByIsland.length
+        && partitionsByIsland[islandId] != null;
+  }
+
+  int partitionCount(int islandId) {
+    return partitionsByIsland[islandId].length;
+  }
+
+  /**
+   * Re-settles a partitioned island from scratch on {@code pool}. The island's old levels are saved
+   * into {@code previousLevels} before being cleared.
+   */
+  void settle(
+      int islandId,
+      int[] sourceLevels,
+      int[] settledLevels,
+      int[] previousLevels,
+      ForkJoinPool pool) {
+    Partition[] partitions = partitionsByIsland[islandId];
+    List<Callable<Boolean>> round = new ArrayList<>(partitions.length);
+    for (Partition partition : partitions) {
+      partition.bind(sourceLevels, settledLevels, previousLevels);
+      round.add(partition);
+    }
+    boolean changed = true;
+    for (int roundIndex = 0; changed; roundIndex++) {
+      for (Partition partition : partitions) {
+        partition.round = roundIndex;
+      }
+      changed = false;
+      for (Future<Boolean> result : pool.invokeAll(round)) {
+        changed |= join(result);
+      }
+    }
+  }
+
+  private static boolean join(Future<Boolean> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while settling dust partitions", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Dust partition settle failed", e.getCause());
+    }
+  }
+
+  /** Records, per partition, the nodes it must publish and the edges it receives from others. */
+  private void collectCutEdges(int firstPartition, Partition[] partitions) {
+    int count = partitions.length;
+    IntStack[] out = newStacks(count);
+    IntStack[] sources = newStacks(count);
+    IntStack[] targets = newStacks(count);
+    IntStack[] weights = newStacks(count);
+    for (Partition partition : partitions) {
+      int own = partition.id - firstPartition;
+      for (int nodeId : partition.nodes) {
+        boolean exported = false;
+        int row = lanes.row(nodeId);
+        for (int edge = rowEdgeIndex[row]; edge < rowEdgeIndex[row + 1]; edge++) {
+          int target = nodeId + edgeDeltas[edge];
+          int other = nodePartition[target] - firstPartition;
+          if (other == own || other < 0 || other >= count) {
+            continue;
+          }
+          exported = true;
+          sources[other].push(nodeId);
+          targets[other].push(target);
+          weights[other].push(edgeWeights[edge]);
+        }
+        if (exported) {
+          out[own].push(nodeId);
+        }
+      }
+    }
+    for (int part = 0; part < count; part++) {
+      partitions[part].setCutEdges(out[part], sources[part], targets[part], weights[part]);
+    }
+  }
+
+  private static IntStack[] newStacks(int count) {
+    IntStack[] stacks = new IntStack[count];
+    for (int i = 0; i < count; i++) {
+      stacks[i] = new IntStack();
+    }
+    return stacks;
+  }
+
+  private int[] breadthFirstOrder(int islandId, int[] nodes) {
+    int[] order = new int[nodes.length];
+    boolean[] visited = new boolean[islandIds.length];
+    int head = 0;
+    int tail = 0;
+    for (int seed : nodes) {
+      if (visited[seed]) {
+        continue;
+      }
+      visited[seed] = true;
+      order[tail++] = seed;
+      while (head < tail) {
+        int nodeId = order[head++];
+        int row = lanes.row(nodeId);
+        for (int edge = rowEdgeIndex[row]; edge < rowEdgeIndex[row + 1]; edge++) {
+          int target = nodeId + edgeDeltas[edge];
+          if (islandIds[target] == islandId && !visited[target]) {
+            visited[target] = true;
+            order[tail++] = target;
+          }
+        }
+      }
+    }
+    return order;
+  }
+
+  /** One partition of an island; runs a single round per call. */
+  private final class Partition implements Callable<Boolean> {
+    private final int id;
+    private final int[] nodes;
+    private final int rowShift;
+    private final IntStack[] buckets = new IntStack[DustPropagator.MAX_POWER_LEVEL + 1];
+    private int[] outNodes = new int[0];
+    private int[] inSources = new int[0];
+    private int[] inTargets = new int[0];
+    private int[] inWeights = new int[0];
+
+    private int[] sourceLevels;
+    private int[] settledLevels;
+    private int[] previousLevels;
+    int round;
+
+    Partition(int id, int[] nodes) {
+      this.id = id;
+      this.nodes = nodes;
+      // A partition never spans islands, so all of its nodes share one row shift.
+      this.rowShift = lanes.row(nodes[0]) - nodes[0];
+      for (int level = 0; level < buckets.length; level++) {
+        buckets[level] = new IntStack();
+      }
+    }
+
+    void setCutEdges(IntStack out, IntStack sources, IntStack targets, IntStack weights) {
+      outNodes = out.toArray();
+      inSources = sources.toArray();
+      inTargets = targets.toArray();
+      inWeights = weights.toArray();
+    }
+
+    void bind(int[] sourceLevels, int[] settledLevels, int[] previousLevels) {
+      this.sourceLevels = sourceLevels;
+      this.settledLevels = settledLevels;
+      this.previousLevels = previousLevels;
+    }
+
+    @Override
+    public Boolean call() {
+      if (round == 0) {
+        for (int nodeId : nodes) {
+          previousLevels[nodeId] = settledLevels[nodeId];
+          settledLevels[nodeId] = 0;
+          int level = sourceLevels[nodeId];
+          if (level > 0) {
+            buckets[level].push(nodeId);
+          }
+        }
+      } else {
+        int[] incoming = published[round & 1];
+        for (int i = 0; i < inSources.length; i++) {
+          int level = incoming[inSources[i]] - inWeights[i];
+          if (level > settledLevels[inTargets[i]]) {
+            buckets[level].push(inTargets[i]);
+          }
+        }
+      }
+      drain();
+
+      int[] outgoing = published[(round + 1) & 1];
+      int[] current = published[round & 1];
+      boolean changed = false;
+      for (int nodeId : outNodes) {
+        int level = settledLevels[nodeId];
+        outgoing[nodeId] = level;
+        changed |= round == 0 ? level > 0 : level != current[nodeId];
+      }
+      return changed;
+    }
+
+    private void drain() {
+      for (int level = DustPropagator.MAX_POWER_LEVEL; level > 0; level--) {
+        IntStack bucket = buckets[level];
+        while (!bucket.isEmpty()) {
+          int nodeId = bucket.pop();
+          if (level <= settledLevels[nodeId]) {
+            continue;
+          }
+          settledLevels[nodeId] = level;
+          int row = nodeId + rowShift;
+          for (int edge = rowEdgeIndex[row]; edge < rowEdgeIndex[row + 1]; edge++) {
+            int target = nodeId + edgeDeltas[edge];
+            if (nodePartition[target] != id) {
+              continue;
+            }
+            int next = level - edgeWeights[edge];
+            if (next > settledLevels[target]) {
+              buckets[next].push(target);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static final class IntStack {
+    private int[] elements = new int[8];
+    private int size;
+
+    void push(int value) {
+      if (size == elements.length) {
+        elements = Arrays.copyOf(elements, size * 2);
+      }
+      elements[size++] = value;
+    }
+
+    int pop() {
+      return elements[--size];
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+}
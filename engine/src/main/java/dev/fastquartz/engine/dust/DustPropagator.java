@@ -18,6 +18,17 @@ public interface DustPropagator {
    */
   void reset(DustCsrGraph graph);
 
+  /**
+   * Switches the propagator to a rebuilt graph while keeping power state. Source and settled levels
+   * are carried over to nodes that keep their position; islands whose structure is unchanged keep
+   * their levels as-is and only islands that gained, lost or rewired nodes are re-settled. Port
+   * levels follow their {@link DustPort}, so an island whose ports moved is re-settled as well.
+   *
+   * @param graph the rebuilt compressed graph
+   * @return node identifiers (in {@code graph}) whose level differs from the carried-over level
+   */
+  int[] resetPreservingState(DustCsrGraph graph);
+
   /**
    * Applies the supplied source updates and settles the dust network to a fixed point.
    *
@@ -30,6 +41,56 @@ public interface DustPropagator {
    */
   int[] propagate(List<Source> changedSources);
 
+  /**
+   * Garbage-free variant of {@link #propagate(List)} for the per-tick dust path.
+   *
+   * <p>The first {@code count} entries of {@code nodeIds} and {@code levels} describe the source
+   * updates. The buffer is cleared and then receives every node whose settled level changed,
+   * together with its old and new level, in the same order {@link #propagate(List)} reports them.
+   *
+   * @param nodeIds node identifiers of the updated sources
+   * @param levels power levels emitted into the corresponding nodes
+   * @param count number of leading entries to read from both arrays
+   * @param out caller-owned buffer receiving the changed nodes
+   * @return number of changed nodes written to {@code out}
+   */
+  int propagate(int[] nodeIds, int[] levels, int count, DustChangeBuffer out);
+
+  /**
+   * Applies per-port source updates and settles the dust network to a fixed point.
+   *
+   * <p>Every port of {@link DustCsrGraph#portToNode()} keeps its own level; a node is driven by the
+   * maximum over its ports and any level set directly through {@link #propagate(List)}. Callers
+   * therefore report only the port whose output changed, without re-reading the other components
+   * attached to the same node.
+   *
+   * @param changedPorts collection of port updates (port, level)
+   * @return array of node identifiers whose resolved power level changed as a result of the settle
+   */
+  int[] propagatePorts(List<PortSource> changedPorts);
+
+  /**
+   * Garbage-free variant of {@link #propagatePorts(List)}; ports are identified by the dense index
+   * returned from {@link #portIndex(DustPort)} and the buffer is filled as in {@link
+   * #propagate(int[], int[], int, DustChangeBuffer)}.
+   *
+   * @param portIndices dense indices of the updated ports
+   * @param levels power levels emitted by the corresponding ports
+   * @param count number of leading entries to read from both arrays
+   * @param out caller-owned buffer receiving the changed nodes
+   * @return number of changed nodes written to {@code out}
+   */
+  int propagatePorts(int[] portIndices, int[] levels, int count, DustChangeBuffer out);
+
+  /**
+   * Returns the dense index of {@code port} in the current graph, or {@code -1} when the port is
+   * not attached. Indices are stable until the next reset.
+   */
+  int portIndex(DustPort port);
+
+  /** Returns the level last emitted through the port with dense index {@code portIndex}. */
+  int portLevel(int portIndex);
+
   /** Returns the settled power level for the specified node. */
   int powerLevel(int nodeId);
 
@@ -49,6 +110,20 @@ public interface DustPropagator {
     }
   }
 
+  /** Immutable update describing the power a component emits through one of its dust ports. */
+  record PortSource(DustPort port, int powerLevel) {
+    public PortSource {
+      Objects.requireNonNull(port, "port");
+      if (powerLevel < 0 || powerLevel > MAX_POWER_LEVEL) {
+        throw new IllegalArgumentException("powerLevel must be in [0, 15]");
+      }
+    }
+
+    public static PortSource of(DustPort port, int powerLevel) {
+      return new PortSource(port, powerLevel);
+    }
+  }
+
   /** Utility for validating a non-null source entry. */
   static Source requireNonNull(Source source) {
     return Objects.requireNonNull(source, "source");
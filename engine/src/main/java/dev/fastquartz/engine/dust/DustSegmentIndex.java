@@ -0,0 +1,106 @@
+package dev.fastquartz.engine.dust;
+
+import dev.fastquartz.engine.world.BlockPos;
+
+/**
+ * The physical dust blocks hidden inside compressed edges.
+ *
+ * <p>Every straight or cornerless run of wire between two graph nodes becomes one segment listing
+ * its intermediate blocks in order from the start node. A block {@code d} steps from the start of a
+ * segment of length {@code n} holds {@code max(start - d, end - (n - d), 0)}, so segment levels
+ * follow from the two endpoint levels alone. Built by {@link
+ * DustCsrBuilder#buildSegmentIndex(DustCsrGraph)}.
+ */
+public final class DustSegmentIndex {
+  private final int[] startNodes;
+  private final int[] endNodes;
+  private final int[] blockIndex;
+  private final long[] blockKeys;
+  private final int[] nodeSegmentIndex;
+  private final int[] nodeSegments;
+
+  DustSegmentIndex(
+      int nodeCount, int[] startNodes, int[] endNodes, int[] blockIndex, long[] blockKeys) {
+    this.startNodes = startNodes;
+    this.endNodes = endNodes;
+    this.blockIndex = blockIndex;
+    this.blockKeys = blockKeys;
+
+    int[] counts = new int[nodeCount + 1];
+    for (int segment = 0; segment < startNodes.length; segment++) {
+      counts[startNodes[segment] + 1]++;
+      if (endNodes[segment] != startNodes[segment]) {
+        counts[endNodes[segment] + 1]++;
+      }
+    }
+    for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+      counts[nodeId + 1] += counts[nodeId];
+    }
+    int[] cursor = counts.clone();
+    int[] segments = new int[counts[nodeCount]];
+    for (int segment = 0; segment < startNodes.length; segment++) {
+      segments[cursor[startNodes[segment]]++] = segment;
+      if (endNodes[segment] != startNodes[segment]) {
+        segments[cursor[endNodes[segment]]++] = segment;
+      }
+    }
+    this.nodeSegmentIndex = counts;
+    this.nodeSegments = segments;
+  }
+
+  public int segmentCount() {
+    return startNodes.length;
+  }
+
+  /** Total number of intermediate blocks across all segments. */
+  public int blockCount() {
+    return blockKeys.length;
+  }
+
+  public int startNode(int segment) {
+    return startNodes[segment];
+  }
+
+  public int endNode(int segment) {
+    return endNodes[segment];
+  }
+
+  /** Number of steps from the start node to the end node; one more than the block count. */
+  public int length(int segment) {
+    return blockIndex[segment + 1] - blockIndex[segment] + 1;
+  }
+
+  /** Packed position of the block {@code step} steps from the start node, {@code 1 <= step}. */
+  public long blockKey(int segment, int step) {
+    if (step < 1 || step >= length(segment)) {
+      throw new IllegalArgumentException("step " + step + " outside segment " + segment);
+    }
+    return blockKeys[blockIndex[segment] + step - 1];
+  }
+
+  public BlockPos blockPosition(int segment, int step) {
+    return BlockPos.fromLong(blockKey(segment, step));
+  }
+
+  /** Level of the block {@code step} steps along {@code segment} given its endpoint levels. */
+  public int blockLevel(int segment, int step, int startLevel, int endLevel) {
+    int length = length(segment);
+    return Math.max(0, Math.max(startLevel - step, endLevel - (length - step)));
+  }
+
+  int firstSegmentOf(int nodeId) {
+    return nodeSegmentIndex[nodeId];
+  }
+
+  int lastSegmentOf(int nodeId) {
+    return nodeSegmentIndex[nodeId + 1];
+  }
+
+  int incidentSegment(int index) {
+    return nodeSegments[index];
+  }
+
+  long blockKeyAt(int segment, int offset) {
+    return blockKeys[blockIndex[segment] + offset];
+  }
+}
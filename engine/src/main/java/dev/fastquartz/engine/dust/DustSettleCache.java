@@ -0,0 +1,284 @@
+package dev.fastquartz.engine.dust;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Per-shape memo of settled levels keyed by an island's source-level vector.
+ *
+ * <p>A shape is an island template of a deduplicated graph, or a single island otherwise. Nodes are
+ * recorded as template rows ({@code nodeId + rowShift}), so every translated copy of a template
+ * reads and fills the same entries. Each shape owns a handful of slots evicted in
+ * least-recently-used order, and all shapes share one byte budget. An entry stores the settled
+ * levels aligned with the island's node list, the exact non-zero sources used to verify a hash hit,
+ * and the delta from the state it was last reached from so a clock flipping between two states only
+ * rewrites the nodes that differ. Deltas only ever point at entries that are still slotted, so
+ * evicted entries become unreachable from the slots and the byte count covers everything they
+ * retain; each island additionally remembers at most one entry as its current state.
+ */
+final class DustSettleCache {
+  private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+  private final int maxEntriesPerShape;
+  private final long maxBytes;
+
+  private Entry[][] slots = new Entry[0][];
+  private Entry[] current = new Entry[0];
+  private long clock;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  DustSettleCache(int maxEntriesPerShape, long maxBytes) {
+    if (maxEntriesPerShape <= 0) {
+      throw new IllegalArgumentException("maxEntriesPerIsland must be positive");
+    }
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("maxBytes must be positive");
+    }
+    this.maxEntriesPerShape = maxEntriesPerShape;
+    this.maxBytes = maxBytes;
+  }
+
+  /** Drops every entry; node ids are about to change meaning. Counters are kept. */
+  void reset(int shapeCount, int islandCount) {
+    slots = new Entry[shapeCount][];
+    current = new Entry[islandCount];
+    bytes = 0;
+  }
+
+  /** Entry whose settled levels the island currently holds, or {@code null} if unknown. */
+  Entry current(int islandId) {
+    Entry entry = current[islandId];
+    if (entry != null && !entry.slotted) {
+      // Evicted while another copy of the template was settling; forget it.
+      current[islandId] = null;
+      return null;
+    }
+    return entry;
+  }
+
+  void setCurrent(int islandId, Entry entry) {
+    current[islandId] = entry;
+  }
+
+  /**
+   * Finds the entry of {@code shape} for an island's current sources, counting a hit or a miss.
+   * {@code rowShift} turns the island's node ids into template rows.
+   */
+  Entry lookup(int shape, long hash, int[] sourceLevels, int nonZeroSources, int rowShift) {
+    Entry[] shapeSlots = slots[shape];
+    if (shapeSlots != null) {
+      for (Entry entry : shapeSlots) {
+        if (entry != null
+            && entry.hash == hash
+            && entry.matches(sourceLevels, nonZeroSources, rowShift)) {
+          entry.lastUsed = ++clock;
+          hits++;
+          return entry;
+        }
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Stores the freshly settled state of {@code nodes} under {@code shape}. Returns the new entry,
+   * or {@code null} when the byte budget cannot accommodate it.
+   */
+  Entry store(
+      int shape,
+      long hash,
+      int[] nodes,
+      int rowShift,
+      int[] sourceLevels,
+      int[] settledLevels,
+      Entry predecessor,
+      DustChangeBuffer changes,
+      int changesFrom) {
+    int sourceCount = 0;
+    for (int nodeId : nodes) {
+      if (sourceLevels[nodeId] > 0) {
+        sourceCount++;
+      }
+    }
+    int[] sourceRows = new int[sourceCount];
+    byte[] sourceValues = new byte[sourceCount];
+    byte[] settled = new byte[nodes.length];
+    int cursor = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      int nodeId = nodes[i];
+      settled[i] = (byte) settledLevels[nodeId];
+      if (sourceLevels[nodeId] > 0) {
+        sourceRows[cursor] = nodeId + rowShift;
+        sourceValues[cursor] = (byte) sourceLevels[nodeId];
+        cursor++;
+      }
+    }
+    Entry entry = new Entry(hash, sourceRows, sourceValues, settled);
+
+    Entry[] shapeSlots = slots[shape];
+    if (shapeSlots == null) {
+      shapeSlots = new Entry[maxEntriesPerShape];
+      slots[shape] = shapeSlots;
+    }
+    int slot = -1;
+    for (int i = 0; i < shapeSlots.length; i++) {
+      if (shapeSlots[i] == null) {
+        slot = i;
+        break;
+      }
+      if (slot < 0 || shapeSlots[i].lastUsed < shapeSlots[slot].lastUsed) {
+        slot = i;
+      }
+    }
+    if (shapeSlots[slot] != null) {
+      evict(shapeSlots, slot);
+    }
+    while (bytes + entry.bytes() > maxBytes && evictLeastRecent(shapeSlots)) {
+      // Make room inside this shape before giving up on caching the state.
+    }
+    if (bytes + entry.bytes() > maxBytes) {
+      return null;
+    }
+    entry.lastUsed = ++clock;
+    shapeSlots[slot] = entry;
+    entry.slotted = true;
+    bytes += entry.bytes();
+    // Attach the delta only now: the eviction above may have dropped the predecessor.
+    updateDelta(entry, predecessor, changes, changesFrom, rowShift);
+    return entry;
+  }
+
+  /**
+   * Re-points an entry's delta at {@code predecessor} after it was applied by a full copy. Does
+   * nothing if the predecessor is gone, or if the delta would not fit the byte budget.
+   */
+  void updateDelta(
+      Entry entry, Entry predecessor, DustChangeBuffer changes, int changesFrom, int rowShift) {
+    if (predecessor == null || !predecessor.slotted || predecessor == entry) {
+      return;
+    }
+    long before = entry.bytes();
+    entry.setDelta(predecessor, changes, changesFrom, rowShift);
+    if (bytes + entry.bytes() - before > maxBytes) {
+      entry.clearDelta();
+    }
+    bytes += entry.bytes() - before;
+  }
+
+  /** Number of distinct entries reachable from the slots, following deltas. */
+  int retainedEntries() {
+    Set<Entry> retained = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Entry[] shapeSlots : slots) {
+      if (shapeSlots == null) {
+        continue;
+      }
+      for (Entry entry : shapeSlots) {
+        Entry cursor = entry;
+        while (cursor != null && retained.add(cursor)) {
+          cursor = cursor.deltaFrom;
+        }
+      }
+    }
+    return retained.size();
+  }
+
+  CpuDustPropagator.SettleCacheStats stats() {
+    return new CpuDustPropagator.SettleCacheStats(hits, misses, evictions, bytes);
+  }
+
+  private boolean evictLeastRecent(Entry[] shapeSlots) {
+    int victim = -1;
+    for (int i = 0; i < shapeSlots.length; i++) {
+      if (shapeSlots[i] != null
+          && (victim < 0 || shapeSlots[i].lastUsed < shapeSlots[victim].lastUsed)) {
+        victim = i;
+      }
+    }
+    if (victim < 0) {
+      return false;
+    }
+    evict(shapeSlots, victim);
+    return true;
+  }
+
+  private void evict(Entry[] shapeSlots, int slot) {
+    Entry victim = shapeSlots[slot];
+    shapeSlots[slot] = null;
+    bytes -= victim.bytes();
+    evictions++;
+    // Islands still naming the victim as current drop it on their next lookup.
+    victim.slotted = false;
+    victim.clearDelta();
+    // Deltas from the victim can never apply again; drop them so the victim can be collected.
+    for (Entry entry : shapeSlots) {
+      if (entry != null && entry.deltaFrom == victim) {
+        bytes -= entry.bytes();
+        entry.clearDelta();
+        bytes += entry.bytes();
+      }
+    }
+  }
+
+  /** Cached settle result for one source vector of a shape. */
+  static final class Entry {
+    private final long hash;
+    private final int[] sourceRows;
+    private final byte[] sourceLevels;
+    final byte[] settledLevels;
+    Entry deltaFrom;
+    int[] deltaRows = new int[0];
+    byte[] deltaLevels = new byte[0];
+    long lastUsed;
+    boolean slotted;
+
+    Entry(long hash, int[] sourceRows, byte[] sourceLevels, byte[] settledLevels) {
+      this.hash = hash;
+      this.sourceRows = sourceRows;
+      this.sourceLevels = sourceLevels;
+      this.settledLevels = settledLevels;
+    }
+
+    boolean matches(int[] currentSourceLevels, int nonZeroSources, int rowShift) {
+      if (sourceRows.length != nonZeroSources) {
+        return false;
+      }
+      for (int i = 0; i < sourceRows.length; i++) {
+        if (currentSourceLevels[sourceRows[i] - rowShift] != sourceLevels[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    void setDelta(Entry predecessor, DustChangeBuffer changes, int changesFrom, int rowShift) {
+      int count = changes.size() - changesFrom;
+      int[] rows = new int[count];
+      byte[] levels = new byte[count];
+      for (int i = 0; i < count; i++) {
+        rows[i] = changes.nodeId(changesFrom + i) + rowShift;
+        levels[i] = (byte) changes.newLevel(changesFrom + i);
+      }
+      this.deltaFrom = predecessor;
+      this.deltaRows = rows;
+      this.deltaLevels = levels;
+    }
+
+    void clearDelta() {
+      deltaFrom = null;
+      deltaRows = new int[0];
+      deltaLevels = new byte[0];
+    }
+
+    long bytes() {
+      return ENTRY_OVERHEAD_BYTES
+          + settledLevels.length
+          + (long) sourceRows.length * (Integer.BYTES + 1)
+          + (long) deltaRows.length * (Integer.BYTES + 1);
+    }
+  }
+}
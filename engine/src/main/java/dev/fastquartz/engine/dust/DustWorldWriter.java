@@ -0,0 +1,193 @@
+package dev.fastquartz.engine.dust;
+
+import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.LongIntMap;
+import dev.fastquartz.engine.world.ShadowWorld;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Streams settled dust levels into a {@link ShadowWorld}.
+ *
+ * <p>A changed node rewrites its own block and every block of its incident compressed segments,
+ * whose levels follow from the two endpoint levels (see {@link DustSegmentIndex}). Updates are
+ * grouped by chunk section, sorted by local index and handed to {@link ShadowWorld#updateSection}
+ * once per section, so the overlay's section lookup and buffer growth are paid per section rather
+ * than per block. A segment shared by two changed nodes is written once per call. Section batches
+ * are found through a {@link LongIntMap} keyed by the packed section coordinates and reused across
+ * calls, so staging a block neither boxes nor allocates once the sections have been seen.
+ */
+public final class DustWorldWriter {
+  private static final int NO_BATCH = -1;
+  private static final Comparator<SectionBatch> SECTION_ORDER =
+      Comparator.comparingInt((SectionBatch batch) -> batch.sectionY)
+          .thenComparingInt(batch -> batch.sectionZ)
+          .thenComparingInt(batch -> batch.sectionX);
+
+  private final DustCsrGraph graph;
+  private final DustSegmentIndex segments;
+  private final ShadowWorld.StateUpdater updater;
+  private final int[] segmentStamps;
+  private int stamp;
+
+  private final LongIntMap sectionIndices = new LongIntMap();
+  private final List<SectionBatch> sectionBatches = new ArrayList<>();
+  private final List<SectionBatch> activeBatches = new ArrayList<>();
+  private int[] localIndices = new int[16];
+  private int[] levels = new int[16];
+
+  /** Encodes a redstone power level into a dust block's state bits. */
+  @FunctionalInterface
+  public interface PowerEncoder {
+    int withPower(int stateBits, int level);
+  }
+
+  public DustWorldWriter(DustCsrGraph graph, DustSegmentIndex segments, PowerEncoder encoder) {
+    this.graph = Objects.requireNonNull(graph, "graph");
+    this.segments = Objects.requireNonNull(segments, "segments");
+    Objects.requireNonNull(encoder, "encoder");
+    this.updater = encoder::withPower;
+    this.segmentStamps = new int[segments.segmentCount()];
+  }
+
+  /**
+   * Writes the blocks of every node in {@code changes} using the levels currently settled in {@code
+   * levels}.
+   *
+   * @return number of dust blocks submitted to the world
+   */
+  public int write(DustChangeBuffer changes, DustPropagator levels, ShadowWorld world) {
+    Objects.requireNonNull(changes, "changes");
+    Objects.requireNonNull(levels, "levels");
+    Objects.requireNonNull(world, "world");
+    nextStamp();
+    int blocks = 0;
+    for (int i = 0; i < changes.size(); i++) {
+      blocks += stageNode(changes.nodeId(i), levels);
+    }
+    flush(world);
+    return blocks;
+  }
+
+  /**
+   * Variant of {@link #write(DustChangeBuffer, DustPropagator, ShadowWorld)} for node id arrays.
+   */
+  public int write(int[] changedNodes, DustPropagator levels, ShadowWorld world) {
+    Objects.requireNonNull(changedNodes, "changedNodes");
+    Objects.requireNonNull(levels, "levels");
+    Objects.requireNonNull(world, "world");
+    nextStamp();
+    int blocks = 0;
+    for (int nodeId : changedNodes) {
+      blocks += stageNode(nodeId, levels);
+    }
+    flush(world);
+    return blocks;
+  }
+
+  private int stageNode(int nodeId, DustPropagator levels) {
+    if (nodeId < 0 || nodeId >= graph.nodeCount()) {
+      throw new IllegalArgumentException("nodeId " + nodeId + " out of bounds");
+    }
+    stageBlock(graph.nodePositionKey(nodeId), levels.powerLevel(nodeId));
+    int blocks = 1;
+    for (int i = segments.firstSegmentOf(nodeId); i < segments.lastSegmentOf(nodeId); i++) {
+      int segment = segments.incidentSegment(i);
+      if (segmentStamps[segment] == stamp) {
+        continue;
+      }
+      segmentStamps[segment] = stamp;
+      int startLevel = levels.powerLevel(segments.startNode(segment));
+      int endLevel = levels.powerLevel(segments.endNode(segment));
+      int length = segments.length(segment);
+      for (int step = 1; step < length; step++) {
+        stageBlock(
+            segments.blockKeyAt(segment, step - 1),
+            segments.blockLevel(segment, step, startLevel, endLevel));
+      }
+      blocks += length - 1;
+    }
+    return blocks;
+  }
+
+  private void stageBlock(long key, int level) {
+    int x = BlockPos.unpackX(key);
+    int y = BlockPos.unpackY(key);
+    int z = BlockPos.unpackZ(key);
+    int sectionX = x >> 4;
+    int sectionY = y >> 4;
+    int sectionZ = z >> 4;
+    long sectionKey =
+        ((long) sectionY << 44) | ((sectionZ & 0x3FFFFFL) << 22) | (sectionX & 0x3FFFFFL);
+    int index = sectionIndices.get(sectionKey, NO_BATCH);
+    SectionBatch batch;
+    if (index == NO_BATCH) {
+      batch = new SectionBatch(sectionX, sectionY, sectionZ);
+      sectionIndices.put(sectionKey, sectionBatches.size());
+      sectionBatches.add(batch);
+    } else {
+      batch = sectionBatches.get(index);
+    }
+    if (batch.size == 0) {
+      activeBatches.add(batch);
+    }
+    batch.add(((((y & 15) << 8) | ((z & 15) << 4) | (x & 15)) << 4) | level);
+  }
+
+  private void flush(ShadowWorld world) {
+    activeBatches.sort(SECTION_ORDER);
+    for (SectionBatch batch : activeBatches) {
+      Arrays.sort(batch.entries, 0, batch.size);
+      if (localIndices.length < batch.size) {
+        localIndices = new int[batch.size];
+        levels = new int[batch.size];
+      }
+      for (int i = 0; i < batch.size; i++) {
+        localIndices[i] = batch.entries[i] >>> 4;
+        levels[i] = batch.entries[i] & 15;
+      }
+      world.updateSection(
+          batch.sectionX,
+          batch.sectionY,
+          batch.sectionZ,
+          localIndices,
+          levels,
+          batch.size,
+          updater);
+      batch.size = 0;
+    }
+    activeBatches.clear();
+  }
+
+  private void nextStamp() {
+    if (++stamp == Integer.MAX_VALUE) {
+      Arrays.fill(segmentStamps, 0);
+      stamp = 1;
+    }
+  }
+
+  /** Pending updates of one section, packed as {@code localIndex << 4 | level}. */
+  private static final class SectionBatch {
+    final int sectionX;
+    final int sectionY;
+    final int sectionZ;
+    int[] entries = new int[8];
+    int size;
+
+    SectionBatch(int sectionX, int sectionY, int sectionZ) {
+      this.sectionX = sectionX;
+      this.sectionY = sectionY;
+      this.sectionZ = sectionZ;
+    }
+
+    void add(int entry) {
+      if (size == entries.length) {
+        entries = Arrays.copyOf(entries, size * 2);
+      }
+      entries[size++] = entry;
+    }
+  }
+}
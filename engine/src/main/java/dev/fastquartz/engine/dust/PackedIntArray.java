@@ -0,0 +1,113 @@
+package dev.fastquartz.engine.dust;
+
+import java.nio.LongBuffer;
+
+/**
+ * Immutable array of non-negative integers stored with the minimum bit width needed for the largest
+ * value. Values may straddle word boundaries; reads stay constant time.
+ *
+ * <p>The words live in a {@link LongBuffer} so the same reader works for heap arrays and for
+ * memory-mapped graph files.
+ */
+final class PackedIntArray {
+  private static final PackedIntArray EMPTY = new PackedIntArray(LongBuffer.allocate(0), 1, 0);
+
+  private final LongBuffer words;
+  private final int bitsPerValue;
+  private final long mask;
+  private final int size;
+
+  private PackedIntArray(LongBuffer words, int bitsPerValue, int size) {
+    this.words = words;
+    this.bitsPerValue = bitsPerValue;
+    this.mask = (1L << bitsPerValue) - 1;
+    this.size = size;
+  }
+
+  /** Packs {@code values}; every entry must be non-negative. */
+  static PackedIntArray of(int[] values) {
+    if (values.length == 0) {
+      return EMPTY;
+    }
+    int max = 0;
+    for (int value : values) {
+      if (value < 0) {
+        throw new IllegalArgumentException("packed values must be non-negative: " + value);
+      }
+      max = Math.max(max, value);
+    }
+    int bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(max));
+    long[] words = new long[wordCount(values.length, bits)];
+    for (int i = 0; i < values.length; i++) {
+      long bitIndex = (long) i * bits;
+      int word = (int) (bitIndex >>> 6);
+      int shift = (int) (bitIndex & 63);
+      long value = values[i];
+      words[word] |= value << shift;
+      if (shift + bits > Long.SIZE) {
+        words[word + 1] |= value >>> (Long.SIZE - shift);
+      }
+    }
+    return new PackedIntArray(LongBuffer.wrap(words), bits, values.length);
+  }
+
+  /** Wraps previously packed words, e.g. a slice of a mapped file, without copying. */
+  static PackedIntArray wrap(LongBuffer words, int bitsPerValue, int size) {
+    if (bitsPerValue < 1 || bitsPerValue > Integer.SIZE - 1) {
+      throw new IllegalArgumentException("bitsPerValue out of range: " + bitsPerValue);
+    }
+    if (size < 0 || words.capacity() < wordCount(size, bitsPerValue)) {
+      throw new IllegalArgumentException("packed words too short for " + size + " values");
+    }
+    return new PackedIntArray(words, bitsPerValue, size);
+  }
+
+  /** Number of 64-bit words needed to hold {@code size} values of {@code bitsPerValue} bits. */
+  static int wordCount(int size, int bitsPerValue) {
+    long totalBits = (long) size * bitsPerValue;
+    return (int) ((totalBits + Long.SIZE - 1) / Long.SIZE);
+  }
+
+  int get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+    }
+    long bitIndex = (long) index * bitsPerValue;
+    int word = (int) (bitIndex >>> 6);
+    int shift = (int) (bitIndex & 63);
+    long value = words.get(word) >>> shift;
+    if (shift + bitsPerValue > Long.SIZE) {
+      value |= words.get(word + 1) << (Long.SIZE - shift);
+    }
+    return (int) (value & mask);
+  }
+
+  int size() {
+    return size;
+  }
+
+  int bitsPerValue() {
+    return bitsPerValue;
+  }
+
+  /** Approximate heap footprint of the packed payload in bytes. */
+  long payloadBytes() {
+    return (long) wordCount(size, bitsPerValue) * Long.BYTES;
+  }
+
+  /** Copies the packed words into {@code target} at its current position. */
+  void writeWords(LongBuffer target) {
+    int count = wordCount(size, bitsPerValue);
+    for (int i = 0; i < count; i++) {
+      target.put(words.get(i));
+    }
+  }
+
+  int[] toArray() {
+    int[] values = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = get(i);
+    }
+    return values;
+  }
+}
@@ -0,0 +1,272 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bit-parallel simulation of a purely digital {@link CompiledNetlist}: 64 input vectors, one per
+ * bit lane, are evaluated at once.
+ *
+ * <p>Every row and dust node holds a {@code long} whose bit {@code l} says whether it is powered
+ * (level {@code >= 1}) in lane {@code l}. Torches and repeaters only ever emit 0 or 15 and external
+ * inputs are driven at 15, so a dust node is powered exactly when a powered source lies closer than
+ * 15 along the dust. Dust therefore becomes an OR over the sources within reach, a torch a NOT and
+ * a repeater a delayed copy of its input, all evaluated with one bitwise operation for the 64
+ * lanes. Comparators depend on signal strength and adapter rows on the world, so netlists
+ * containing either are rejected.
+ *
+ * <p>The inputs are the ports of the netlist's dust that no row drives, ordered by component id and
+ * port index. {@link #evaluate(long[], int, int...)} is the batch entry point; {@link
+ * #exhaustiveLanes(int, int)} enumerates every input combination 64 vectors at a time. Each lane
+ * matches a {@link CompiledNetlist#tick} run with the lane's inputs at level 15 or 0.
+ */
+public final class BitParallelSimulator {
+  /** Number of input vectors evaluated per batch. */
+  public static final int LANES = Long.SIZE;
+
+  private static final int LANE_BITS = 6;
+  private static final int SOURCE_EXTERNAL = 1;
+  private static final int SOURCE_SHIFT = 1;
+  private static final Comparator<DustPort> PORT_ORDER =
+      Comparator.comparingInt(DustPort::componentId).thenComparingInt(DustPort::portIndex);
+
+  private final int rowCount;
+  private final boolean[] inverting;
+  private final int[] delays;
+  private final int[] historyBase;
+  private final int[] inputIndex;
+  private final int[] inputs;
+  private final int[] sourceIndex;
+  private final int[] sources;
+  private final DustPort[] inputPorts;
+  private final long[] out;
+  private final long[] next;
+  private final long[] history;
+  private final long[] dust;
+  private final long[] external;
+
+  /**
+   * Prepares a simulator for {@code netlist}, which must contain only torches and repeaters.
+   *
+   * @throws IllegalArgumentException if the netlist contains a comparator or adapter row
+   */
+  public BitParallelSimulator(CompiledNetlist netlist) {
+    Objects.requireNonNull(netlist, "netlist");
+    DustCsrGraph graph = netlist.graph();
+    int[] types = netlist.types();
+    this.rowCount = netlist.rowCount();
+    this.inverting = new boolean[rowCount];
+    this.delays = Arrays.copyOf(netlist.delays(), rowCount);
+    this.historyBase = new int[rowCount + 1];
+    for (int row = 0; row < rowCount; row++) {
+      if (types[row] != CompiledNetlist.TORCH && types[row] != CompiledNetlist.REPEATER) {
+        throw new IllegalArgumentException(
+            "Row " + row + " (" + netlist.type(row) + ") is not a digital component");
+      }
+      inverting[row] = types[row] == CompiledNetlist.TORCH;
+      historyBase[row + 1] = historyBase[row] + delays[row];
+    }
+    this.inputIndex = netlist.inputIndex();
+    this.inputs = netlist.inputs();
+
+    int[] outputIndex = netlist.outputIndex();
+    int[] outputs = netlist.outputs();
+    int[] outputNodes = netlist.outputNodes();
+    List<Integer> sourceNodes = new ArrayList<>();
+    List<Integer> sourceWords = new ArrayList<>();
+    BitSet drivenPorts = new BitSet();
+    for (int row = 0; row < rowCount; row++) {
+      for (int edge = outputIndex[row]; edge < outputIndex[row + 1]; edge++) {
+        if ((outputs[edge] & CompiledNetlist.TO_PORT) != 0) {
+          drivenPorts.set(outputs[edge] >>> CompiledNetlist.OUTPUT_SHIFT);
+          sourceNodes.add(outputNodes[edge]);
+          sourceWords.add(row << SOURCE_SHIFT);
+        }
+      }
+    }
+    DustPropagator propagator = netlist.propagator();
+    List<DustPort> ports = new ArrayList<>();
+    for (DustPort port : sortedPorts(graph)) {
+      if (!drivenPorts.get(propagator.portIndex(port))) {
+        sourceNodes.add(graph.portToNode().get(port));
+        sourceWords.add((ports.size() << SOURCE_SHIFT) | SOURCE_EXTERNAL);
+        ports.add(port);
+      }
+    }
+    this.inputPorts = ports.toArray(new DustPort[0]);
+
+    int nodeCount = graph.nodeCount();
+    List<List<Integer>> reachedBy = new ArrayList<>(nodeCount);
+    for (int node = 0; node < nodeCount; node++) {
+      reachedBy.add(new ArrayList<>());
+    }
+    for (int i = 0; i < sourceNodes.size(); i++) {
+      int word = sourceWords.get(i);
+      for (int node : DustReach.within(graph, sourceNodes.get(i)).keySet()) {
+        reachedBy.get(node).add(word);
+      }
+    }
+    this.sourceIndex = new int[nodeCount + 1];
+    for (int node = 0; node < nodeCount; node++) {
+      sourceIndex[node + 1] = sourceIndex[node] + reachedBy.get(node).size();
+    }
+    this.sources = new int[sourceIndex[nodeCount]];
+    for (int node = 0; node < nodeCount; node++) {
+      int cursor = sourceIndex[node];
+      for (int word : reachedBy.get(node)) {
+        sources[cursor++] = word;
+      }
+    }
+
+    this.out = new long[rowCount];
+    this.next = new long[rowCount];
+    this.history = new long[historyBase[rowCount]];
+    this.dust = new long[nodeCount];
+    this.external = new long[inputPorts.length];
+  }
+
+  /**
+   * Lane mask for input {@code input} when enumerating all {@code 2^inputCount} input vectors:
+   * vector {@code v = batch * 64 + lane} drives input {@code i} iff bit {@code i} of {@code v} is
+   * set. Batches {@code 0 .. ceil(2^inputCount / 64) - 1} cover every vector.
+   */
+  public static long exhaustiveLanes(int input, int batch) {
+    if (input < 0 || input >= LANE_BITS + Integer.SIZE - 1 || batch < 0) {
+      throw new IllegalArgumentException("input or batch out of range");
+    }
+    if (input < LANE_BITS) {
+      long pattern = 0L;
+      for (int lane = 0; lane < LANES; lane++) {
+        if (((lane >>> input) & 1) != 0) {
+          pattern |= 1L << lane;
+        }
+      }
+      return pattern;
+    }
+    return ((batch >>> (input - LANE_BITS)) & 1) != 0 ? -1L : 0L;
+  }
+
+  /** External input ports in lane-mask order. */
+  public List<DustPort> inputs() {
+    return List.of(inputPorts);
+  }
+
+  /** Number of external inputs. */
+  public int inputCount() {
+    return inputPorts.length;
+  }
+
+  /**
+   * Runs one batch: clears all state, drives input {@code i} in the lanes set in {@code
+   * inputLanes[i]}, evaluates {@code ticks} ticks and returns the output lanes of {@code rows}.
+   *
+   * @param inputLanes one lane mask per {@link #inputs() input}
+   * @param ticks number of ticks to evaluate
+   * @param rows netlist rows to report
+   * @return lane masks of the rows' outputs, in the order of {@code rows}
+   */
+  public long[] evaluate(long[] inputLanes, int ticks, int... rows) {
+    Objects.requireNonNull(inputLanes, "inputLanes");
+    Objects.requireNonNull(rows, "rows");
+    if (inputLanes.length != inputPorts.length) {
+      throw new IllegalArgumentException(
+          "Expected " + inputPorts.length + " input masks, got " + inputLanes.length);
+    }
+    if (ticks < 0) {
+      throw new IllegalArgumentException("ticks must be non-negative");
+    }
+    reset();
+    System.arraycopy(inputLanes, 0, external, 0, external.length);
+    settle();
+    for (int i = 0; i < ticks; i++) {
+      tick();
+    }
+    long[] result = new long[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      result[i] = rowLanes(rows[i]);
+    }
+    return result;
+  }
+
+  /** Clears every row, delay line, dust node and input. */
+  public void reset() {
+    Arrays.fill(out, 0L);
+    Arrays.fill(history, 0L);
+    Arrays.fill(dust, 0L);
+    Arrays.fill(external, 0L);
+  }
+
+  /** Drives {@code port} in the lanes set in {@code lanes} and re-settles the dust. */
+  public void setInput(DustPort port, long lanes) {
+    Objects.requireNonNull(port, "port");
+    for (int slot = 0; slot < inputPorts.length; slot++) {
+      if (inputPorts[slot].equals(port)) {
+        external[slot] = lanes;
+        settle();
+        return;
+      }
+    }
+    throw new IllegalArgumentException("Port " + port + " is not an input of the netlist");
+  }
+
+  /** Evaluates one tick in all lanes. */
+  public void tick() {
+    for (int row = 0; row < rowCount; row++) {
+      long rear = 0L;
+      for (int edge = inputIndex[row], end = inputIndex[row + 1]; edge < end; edge++) {
+        int input = inputs[edge];
+        int source = input >>> CompiledNetlist.INPUT_SHIFT;
+        rear |= (input & CompiledNetlist.FROM_DUST) != 0 ? dust[source] : out[source];
+      }
+      long target = inverting[row] ? ~rear : rear;
+      int base = historyBase[row];
+      int last = base + delays[row] - 1;
+      System.arraycopy(history, base, history, base + 1, last - base);
+      history[base] = target;
+      next[row] = history[last];
+    }
+    System.arraycopy(next, 0, out, 0, rowCount);
+    settle();
+  }
+
+  /** Powered lanes of the row's output. */
+  public long rowLanes(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("row " + row + " out of range");
+    }
+    return out[row];
+  }
+
+  /** Powered lanes of the dust node. */
+  public long dustLanes(int nodeId) {
+    if (nodeId < 0 || nodeId >= dust.length) {
+      throw new IndexOutOfBoundsException("nodeId " + nodeId + " out of range");
+    }
+    return dust[nodeId];
+  }
+
+  private static List<DustPort> sortedPorts(DustCsrGraph graph) {
+    List<DustPort> ports = new ArrayList<>(graph.portToNode().keySet());
+    ports.sort(PORT_ORDER);
+    return ports;
+  }
+
+  private void settle() {
+    for (int node = 0; node < dust.length; node++) {
+      long lanes = 0L;
+      for (int i = sourceIndex[node], end = sourceIndex[node + 1]; i < end; i++) {
+        int word = sources[i];
+        int index = word >>> SOURCE_SHIFT;
+        lanes |= (word & SOURCE_EXTERNAL) != 0 ? external[index] : out[index];
+      }
+      dust[node] = lanes;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One netlist island running on a generated {@link IslandKernel}. The island keeps its own row
+ * outputs, delay lines and dust levels; it reads no world or propagator state while ticking.
+ * External ports, i.e. ports of the island's dust that no row drives, start at the level the
+ * netlist's propagator holds for them, are re-read by {@link #copyStateFrom} and can be changed
+ * through {@link #setExternalLevel(DustPort, int)}.
+ *
+ * <p>Each {@link #tick()} evaluates every row of the island, which gives the same outputs as the
+ * interpreter in {@link CompiledNetlist#tick}: rows the interpreter skips are stable and evaluate
+ * to their current output. {@link #copyStateFrom} and {@link #copyStateTo} hand rows over between
+ * the island and the interpreter. Once its netlist is {@linkplain CompiledNetlist#invalidate()
+ * invalidated} the island is stale and throws instead of running.
+ */
+public final class CompiledIsland {
+  private final CompiledNetlist netlist;
+  private final int topologyGeneration;
+  private final IslandKernel kernel;
+  private final int[] rows;
+  private final int[] nodes;
+  private final DustPort[] externalPorts;
+  private final int[] out;
+  private final int[] next;
+  private final long[] pipelines;
+  private final int[] dust;
+  private final int[] external;
+
+  CompiledIsland(
+      CompiledNetlist netlist,
+      IslandKernel kernel,
+      int[] rows,
+      int[] nodes,
+      DustPort[] externalPorts) {
+    this.netlist = netlist;
+    this.topologyGeneration = netlist.topologyGeneration();
+    this.kernel = kernel;
+    this.rows = rows;
+    this.nodes = nodes;
+    this.externalPorts = externalPorts;
+    this.out = new int[rows.length];
+    this.next = new int[rows.length];
+    this.pipelines = new long[rows.length];
+    this.dust = new int[nodes.length];
+    this.external = new int[externalPorts.length];
+    readExternalLevels();
+    kernel.settle(out, external, dust);
+  }
+
+  /** Returns {@code true} if this island was compiled from {@code netlist}. */
+  public boolean isCompiledFrom(CompiledNetlist netlist) {
+    return this.netlist == netlist;
+  }
+
+  /** Returns {@code true} once the netlist this island was compiled from has been invalidated. */
+  public boolean isStale() {
+    return netlist.topologyGeneration() != topologyGeneration;
+  }
+
+  /** Netlist rows of the island in ascending order. */
+  public int[] rows() {
+    return rows.clone();
+  }
+
+  /** Dust nodes of the island in ascending order. */
+  public int[] nodes() {
+    return nodes.clone();
+  }
+
+  /** Ports of the island's dust that no row drives, ordered by component id and port index. */
+  public List<DustPort> externalPorts() {
+    return List.of(externalPorts);
+  }
+
+  /** Sets the level emitted into the island through an external port and re-settles its dust. */
+  public void setExternalLevel(DustPort port, int level) {
+    Objects.requireNonNull(port, "port");
+    if (level < 0 || level > DustPropagator.MAX_POWER_LEVEL) {
+      throw new IllegalArgumentException("level must be in [0, 15]");
+    }
+    for (int slot = 0; slot < externalPorts.length; slot++) {
+      if (externalPorts[slot].equals(port)) {
+        external[slot] = level;
+        kernel.settle(out, external, dust);
+        return;
+      }
+    }
+    throw new IllegalArgumentException("Port " + port + " is not an external port of the island");
+  }
+
+  /**
+   * Copies the row outputs and delay lines of the island's rows from {@code netlist}, so the island
+   * continues where the interpreter stopped. External levels are read from the netlist's
+   * propagator.
+   */
+  public void copyStateFrom(CompiledNetlist netlist) {
+    checkNetlist(netlist);
+    long[] source = netlist.pipelines();
+    for (int local = 0; local < rows.length; local++) {
+      out[local] = netlist.powerOut(rows[local]);
+      pipelines[local] = source[rows[local]];
+    }
+    readExternalLevels();
+    kernel.settle(out, external, dust);
+  }
+
+  /**
+   * Copies the row outputs and delay lines of the island's rows back into {@code netlist}, so the
+   * interpreter continues where the island stopped. Changed port outputs are propagated and
+   * reported through {@link CompiledNetlist#dustChanges()}; external ports are left to the caller.
+   */
+  public void copyStateTo(CompiledNetlist netlist) {
+    checkNetlist(netlist);
+    netlist.restoreRows(rows, out, pipelines);
+  }
+
+  /**
+   * Evaluates one tick.
+   *
+   * @throws IllegalStateException if the island is {@linkplain #isStale() stale}
+   */
+  public void tick() {
+    checkCurrent();
+    kernel.tick(out, pipelines, next, dust);
+    kernel.settle(out, external, dust);
+  }
+
+  /**
+   * Evaluates {@code ticks} ticks.
+   *
+   * @throws IllegalStateException if the island is {@linkplain #isStale() stale}
+   */
+  public void run(int ticks) {
+    if (ticks < 0) {
+      throw new IllegalArgumentException("ticks must be non-negative");
+    }
+    checkCurrent();
+    for (int i = 0; i < ticks; i++) {
+      kernel.tick(out, pipelines, next, dust);
+      kernel.settle(out, external, dust);
+    }
+  }
+
+  /** Output of the netlist row {@code row}, which must belong to the island. */
+  public int powerOut(int row) {
+    return out[localIndex(rows, row, "row")];
+  }
+
+  /** Settled level of the dust node {@code nodeId}, which must belong to the island. */
+  public int dustLevel(int nodeId) {
+    return dust[localIndex(nodes, nodeId, "node")];
+  }
+
+  private void readExternalLevels() {
+    DustPropagator propagator = netlist.propagator();
+    for (int slot = 0; slot < externalPorts.length; slot++) {
+      external[slot] = propagator.portLevel(propagator.portIndex(externalPorts[slot]));
+    }
+  }
+
+  private void checkNetlist(CompiledNetlist netlist) {
+    Objects.requireNonNull(netlist, "netlist");
+    if (!isCompiledFrom(netlist)) {
+      throw new IllegalArgumentException("Island was compiled from a different netlist");
+    }
+    checkCurrent();
+  }
+
+  private void checkCurrent() {
+    if (isStale()) {
+      throw new IllegalStateException("Netlist was invalidated; compile the island again");
+    }
+  }
+
+  private static int localIndex(int[] ids, int id, String kind) {
+    int local = Arrays.binarySearch(ids, id);
+    if (local < 0) {
+      throw new IllegalArgumentException(kind + " " + id + " is not part of the island");
+    }
+    return local;
+  }
+}
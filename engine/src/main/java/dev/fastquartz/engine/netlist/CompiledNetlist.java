@@ -0,0 +1,469 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.component.ComponentAdapters;
+import dev.fastquartz.engine.component.ComponentContext;
+import dev.fastquartz.engine.dust.DustChangeBuffer;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compiled component netlist: the node table of {@code LOCKS.md} §6 laid out as parallel primitive
+ * arrays keyed by row id, with directed edges stored in CSR form.
+ *
+ * <p>Every row holds {@code (type, position, stateBits, powerIn, powerOut)} plus a delay line.
+ * Input edges point at dust nodes, whose level is read from the {@link DustPropagator}, or at other
+ * rows, whose {@code powerOut} is read directly. Output edges point at dense dust-port indices of
+ * the propagator or at the rows that read this row. Torches, repeaters and comparators are
+ * evaluated by a tight loop over these arrays; rows the netlist cannot model keep a {@link
+ * ComponentAdapters.ComponentAdapter} that is invoked whenever one of their inputs changes.
+ *
+ * <p>A {@link #tick(ComponentContext)} evaluates the scheduled rows against the power of the
+ * previous tick, then writes the changed outputs in place, pushes the affected ports into the
+ * propagator in one batch and schedules the readers of every changed row and dust node for the next
+ * tick. Results therefore do not depend on the order rows are evaluated in. A row with delay {@code
+ * d} outputs the value its inputs produced {@code d} ticks earlier; torches and comparators have
+ * delay 1. Vanilla scheduling quirks such as pulse extension or torch burnout are not modelled;
+ * components relying on them should be added as adapter rows.
+ */
+public final class CompiledNetlist {
+  /** Longest delay line, in ticks, a row can hold: one nibble per tick in a {@code long}. */
+  public static final int MAX_DELAY = 16;
+
+  static final int ADAPTER = 0;
+  static final int TORCH = 1;
+  static final int REPEATER = 2;
+  static final int COMPARATOR = 3;
+  static final int SUBTRACTOR = 4;
+
+  static final int FROM_DUST = 1;
+  static final int SIDE = 2;
+  static final int INPUT_SHIFT = 2;
+  static final int TO_PORT = 1;
+  static final int OUTPUT_SHIFT = 1;
+
+  private final DustCsrGraph graph;
+  private final DustPropagator propagator;
+  private final int rowCount;
+  private final int[] types;
+  private final long[] positionKeys;
+  private final int[] stateBits;
+  private final int[] delays;
+  private final int[] powerIn;
+  private final int[] powerOut;
+  private final long[] pipelines;
+  private final ComponentAdapters.ComponentAdapter[] adapters;
+  private final int[] inputIndex;
+  private final int[] inputs;
+  private final int[] outputIndex;
+  private final int[] outputs;
+  private final int[] outputNodes;
+  private final int[] readerIndex;
+  private final int[] readers;
+
+  private int[] scheduled;
+  private int scheduledCount;
+  private int[] running;
+  private final int[] scheduledGeneration;
+  private int generation = 1;
+  private int topologyGeneration;
+  private final int[] changedRows;
+  private final int[] changedLevels;
+  private final int[] portIndices;
+  private final int[] portLevels;
+  private final DustChangeBuffer dustChanges = new DustChangeBuffer();
+  private NetlistIslandIndex islandIndex;
+
+  /** Kind of a netlist row. Codes are stable and stored in the node table. */
+  public enum NodeType {
+    /**
+     * Component evaluated through its {@link ComponentAdapters.ComponentAdapter}; it has no
+     * modelled output.
+     */
+    ADAPTER(CompiledNetlist.ADAPTER),
+    /** Outputs 15 while its input is unpowered and 0 otherwise. */
+    TORCH(CompiledNetlist.TORCH),
+    /** Outputs 15 while its input is powered, after the row's delay. */
+    REPEATER(CompiledNetlist.REPEATER),
+    /** Passes its rear input through unless the side input is stronger. */
+    COMPARATOR(CompiledNetlist.COMPARATOR),
+    /** Outputs its rear input minus the side input, clamped at zero. */
+    SUBTRACTOR(CompiledNetlist.SUBTRACTOR);
+
+    private final int code;
+
+    NodeType(int code) {
+      this.code = code;
+    }
+
+    public int code() {
+      return code;
+    }
+
+    static NodeType ofCode(int code) {
+      for (NodeType type : values()) {
+        if (type.code == code) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Unknown node type code: " + code);
+    }
+  }
+
+  CompiledNetlist(
+      DustCsrGraph graph,
+      DustPropagator propagator,
+      int[] types,
+      long[] positionKeys,
+      int[] stateBits,
+      int[] delays,
+      ComponentAdapters.ComponentAdapter[] adapters,
+      int[] inputIndex,
+      int[] inputs,
+      int[] outputIndex,
+      int[] outputs,
+      int[] outputNodes,
+      int[] readerIndex,
+      int[] readers) {
+    this.graph = graph;
+    this.propagator = propagator;
+    this.rowCount = types.length;
+    this.types = types;
+    this.positionKeys = positionKeys;
+    this.stateBits = stateBits;
+    this.delays = delays;
+    this.adapters = adapters;
+    this.inputIndex = inputIndex;
+    this.inputs = inputs;
+    this.outputIndex = outputIndex;
+    this.outputs = outputs;
+    this.outputNodes = outputNodes;
+    this.readerIndex = readerIndex;
+    this.readers = readers;
+    this.powerIn = new int[rowCount];
+    this.powerOut = new int[rowCount];
+    this.pipelines = new long[rowCount];
+    this.scheduled = new int[rowCount];
+    this.running = new int[rowCount];
+    this.scheduledGeneration = new int[rowCount];
+    this.changedRows = new int[rowCount];
+    this.changedLevels = new int[rowCount];
+    int portEdges = 0;
+    for (int output : outputs) {
+      if ((output & TO_PORT) != 0) {
+        portEdges++;
+      }
+    }
+    this.portIndices = new int[portEdges];
+    this.portLevels = new int[portEdges];
+    scheduleAll();
+  }
+
+  /** Number of rows in the node table. */
+  public int rowCount() {
+    return rowCount;
+  }
+
+  public NodeType type(int row) {
+    checkRow(row);
+    return NodeType.ofCode(types[row]);
+  }
+
+  public BlockPos position(int row) {
+    checkRow(row);
+    return BlockPos.fromLong(positionKeys[row]);
+  }
+
+  public long positionKey(int row) {
+    checkRow(row);
+    return positionKeys[row];
+  }
+
+  public int stateBits(int row) {
+    checkRow(row);
+    return stateBits[row];
+  }
+
+  /** Delay of the row in ticks. */
+  public int delay(int row) {
+    checkRow(row);
+    return delays[row];
+  }
+
+  /** Strongest rear input seen when the row was last evaluated. */
+  public int powerIn(int row) {
+    checkRow(row);
+    return powerIn[row];
+  }
+
+  /** Power the row currently emits; always 0 for adapter rows. */
+  public int powerOut(int row) {
+    checkRow(row);
+    return powerOut[row];
+  }
+
+  /** Number of rows scheduled for the next tick. */
+  public int scheduledCount() {
+    return scheduledCount;
+  }
+
+  /** Returns {@code true} when no row is scheduled, i.e. the netlist is stable. */
+  public boolean isIdle() {
+    return scheduledCount == 0;
+  }
+
+  /** Schedules every row for the next tick, e.g. after the dust network was changed externally. */
+  public void scheduleAll() {
+    for (int row = 0; row < rowCount; row++) {
+      schedule(row);
+    }
+  }
+
+  /** Schedules the rows reading {@code nodeId} for the next tick. */
+  public void dustChanged(int nodeId) {
+    if (nodeId < 0 || nodeId >= readerIndex.length - 1) {
+      throw new IndexOutOfBoundsException("nodeId " + nodeId + " out of range");
+    }
+    scheduleReaders(nodeId);
+  }
+
+  /** Schedules the readers of every node recorded in {@code changes}, e.g. after a lever toggle. */
+  public void dustChanged(DustChangeBuffer changes) {
+    Objects.requireNonNull(changes, "changes");
+    for (int i = 0; i < changes.size(); i++) {
+      dustChanged(changes.nodeId(i));
+    }
+  }
+
+  /**
+   * Evaluates the scheduled rows for one tick.
+   *
+   * @param context context handed to adapter rows; may be {@code null} when no adapter row is
+   *     scheduled
+   * @return number of rows whose output changed; see {@link #changedRow(int)}
+   */
+  public int tick(ComponentContext context) {
+    int[] rows = scheduled;
+    int count = scheduledCount;
+    scheduled = running;
+    running = rows;
+    scheduledCount = 0;
+    if (++generation == 0) {
+      Arrays.fill(scheduledGeneration, 0);
+      generation = 1;
+    }
+
+    int changed = 0;
+    for (int i = 0; i < count; i++) {
+      int row = rows[i];
+      int type = types[row];
+      if (type == ADAPTER) {
+        adapters[row].apply(
+            Objects.requireNonNull(context, "context"),
+            BlockPos.fromLong(positionKeys[row]),
+            stateBits[row]);
+        continue;
+      }
+      int rear = 0;
+      int side = 0;
+      for (int edge = inputIndex[row], end = inputIndex[row + 1]; edge < end; edge++) {
+        int input = inputs[edge];
+        int source = input >>> INPUT_SHIFT;
+        int level = (input & FROM_DUST) != 0 ? propagator.powerLevel(source) : powerOut[source];
+        if ((input & SIDE) != 0) {
+          side = Math.max(side, level);
+        } else {
+          rear = Math.max(rear, level);
+        }
+      }
+      powerIn[row] = rear;
+      int target =
+          switch (type) {
+            case TORCH -> rear > 0 ? 0 : DustPropagator.MAX_POWER_LEVEL;
+            case REPEATER -> rear > 0 ? DustPropagator.MAX_POWER_LEVEL : 0;
+            case COMPARATOR -> rear >= side ? rear : 0;
+            default -> Math.max(rear - side, 0);
+          };
+      int delay = delays[row];
+      long mask = -1L >>> (Long.SIZE - 4 * delay);
+      long pipeline = ((pipelines[row] << 4) | target) & mask;
+      pipelines[row] = pipeline;
+      if (pipeline != (0x1111_1111_1111_1111L * target & mask)) {
+        schedule(row);
+      }
+      int out = (int) (pipeline >>> (4 * (delay - 1))) & 0xF;
+      if (out != powerOut[row]) {
+        changedRows[changed] = row;
+        changedLevels[changed] = out;
+        changed++;
+      }
+    }
+
+    int ports = 0;
+    for (int i = 0; i < changed; i++) {
+      int row = changedRows[i];
+      int level = changedLevels[i];
+      powerOut[row] = level;
+      for (int edge = outputIndex[row], end = outputIndex[row + 1]; edge < end; edge++) {
+        int output = outputs[edge];
+        if ((output & TO_PORT) != 0) {
+          portIndices[ports] = output >>> OUTPUT_SHIFT;
+          portLevels[ports] = level;
+          ports++;
+        } else {
+          schedule(output >>> OUTPUT_SHIFT);
+        }
+      }
+    }
+    if (ports == 0) {
+      dustChanges.clear();
+    } else {
+      propagator.propagatePorts(portIndices, portLevels, ports, dustChanges);
+      for (int i = 0; i < dustChanges.size(); i++) {
+        scheduleReaders(dustChanges.nodeId(i));
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Marks the netlist as superseded, e.g. once blocks of its circuit changed and a rebuilt netlist
+   * is about to replace it. Islands compiled from it refuse to tick or exchange state afterwards
+   * and must be compiled again.
+   */
+  public void invalidate() {
+    topologyGeneration++;
+  }
+
+  /** Row of the {@code index}-th output change reported by the last {@link #tick}. */
+  public int changedRow(int index) {
+    return changedRows[index];
+  }
+
+  /**
+   * Dust nodes whose settled level changed during the last {@link #tick} or {@link
+   * CompiledIsland#copyStateTo}; the buffer is reused by the next tick.
+   */
+  public DustChangeBuffer dustChanges() {
+    return dustChanges;
+  }
+
+  /**
+   * Overwrites the outputs and delay lines of {@code rows} with a compiled island's state. Changed
+   * port outputs are pushed into the propagator; the rows and the readers of every changed output
+   * are scheduled, so the next tick continues where the island stopped.
+   */
+  void restoreRows(int[] rows, int[] rowOutputs, long[] rowPipelines) {
+    int ports = 0;
+    for (int local = 0; local < rows.length; local++) {
+      int row = rows[local];
+      pipelines[row] = rowPipelines[local];
+      schedule(row);
+      int level = rowOutputs[local];
+      if (level == powerOut[row]) {
+        continue;
+      }
+      powerOut[row] = level;
+      for (int edge = outputIndex[row], end = outputIndex[row + 1]; edge < end; edge++) {
+        int output = outputs[edge];
+        if ((output & TO_PORT) != 0) {
+          portIndices[ports] = output >>> OUTPUT_SHIFT;
+          portLevels[ports] = level;
+          ports++;
+        } else {
+          schedule(output >>> OUTPUT_SHIFT);
+        }
+      }
+    }
+    if (ports == 0) {
+      dustChanges.clear();
+    } else {
+      propagator.propagatePorts(portIndices, portLevels, ports, dustChanges);
+      for (int i = 0; i < dustChanges.size(); i++) {
+        scheduleReaders(dustChanges.nodeId(i));
+      }
+    }
+  }
+
+  /** Island lookups for {@link IslandCompiler}, built on first use. */
+  NetlistIslandIndex islandIndex() {
+    if (islandIndex == null) {
+      islandIndex = NetlistIslandIndex.build(this);
+    }
+    return islandIndex;
+  }
+
+  int topologyGeneration() {
+    return topologyGeneration;
+  }
+
+  DustCsrGraph graph() {
+    return graph;
+  }
+
+  int[] types() {
+    return types;
+  }
+
+  int[] delays() {
+    return delays;
+  }
+
+  long[] pipelines() {
+    return pipelines;
+  }
+
+  int[] inputIndex() {
+    return inputIndex;
+  }
+
+  int[] inputs() {
+    return inputs;
+  }
+
+  int[] outputIndex() {
+    return outputIndex;
+  }
+
+  int[] outputs() {
+    return outputs;
+  }
+
+  /** Dust node fed by each port output edge, or -1 for edges to other rows. */
+  int[] outputNodes() {
+    return outputNodes;
+  }
+
+  int[] readerIndex() {
+    return readerIndex;
+  }
+
+  int[] readers() {
+    return readers;
+  }
+
+  DustPropagator propagator() {
+    return propagator;
+  }
+
+  private void scheduleReaders(int nodeId) {
+    for (int i = readerIndex[nodeId], end = readerIndex[nodeId + 1]; i < end; i++) {
+      schedule(readers[i]);
+    }
+  }
+
+  private void schedule(int row) {
+    if (scheduledGeneration[row] != generation) {
+      scheduledGeneration[row] = generation;
+      scheduled[scheduledCount++] = row;
+    }
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("row " + row + " out of range");
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPropagator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded shortest paths over a dust graph. A source at level {@code L} settles node {@code n} to
+ * {@code L - distance(source, n)}, so only nodes closer than {@link DustPropagator#MAX_POWER_LEVEL}
+ * can ever be powered by it.
+ */
+final class DustReach {
+  private DustReach() {}
+
+  /** Weighted distances from {@code start} to every node closer than the maximum power level. */
+  static Map<Integer, Integer> within(DustCsrGraph graph, int start) {
+    DustCsrGraph.EdgeCursor cursor = graph.edgeCursor();
+    Map<Integer, Integer> best = new HashMap<>();
+    best.put(start, 0);
+    // Distances are below 16, so one FIFO per distance replaces a priority queue.
+    List<Deque<Integer>> buckets = new ArrayList<>();
+    for (int i = 0; i < DustPropagator.MAX_POWER_LEVEL; i++) {
+      buckets.add(new ArrayDeque<>());
+    }
+    buckets.get(0).add(start);
+    for (int distance = 0; distance < DustPropagator.MAX_POWER_LEVEL; distance++) {
+      Deque<Integer> bucket = buckets.get(distance);
+      while (!bucket.isEmpty()) {
+        int node = bucket.poll();
+        if (best.get(node) != distance) {
+          continue;
+        }
+        cursor.reset(node);
+        while (cursor.next()) {
+          int reached = distance + cursor.weight();
+          if (reached >= DustPropagator.MAX_POWER_LEVEL) {
+            continue;
+          }
+          Integer known = best.get(cursor.targetNode());
+          if (known == null || reached < known) {
+            best.put(cursor.targetNode(), reached);
+            buckets.get(reached).add(cursor.targetNode());
+          }
+        }
+      }
+    }
+    return best;
+  }
+}
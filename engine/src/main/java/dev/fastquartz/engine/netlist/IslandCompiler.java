@@ -0,0 +1,338 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compiles closed netlist islands into generated classes with straight-line evaluation code.
+ *
+ * <p>An island is the connected closure of a row: the rows it reads or feeds, the dust islands of
+ * {@link DustCsrGraph} it reads or drives, and every row reading or driving those dust islands.
+ * Ports of the island's dust that no row drives are the island's external inputs. The island is
+ * lowered to a program over local row, node and port numbers, and the program is emitted as a
+ * hidden class through {@link MethodHandles.Lookup#defineHiddenClass}: one method evaluates every
+ * row for one tick without dispatching per component, the other settles the island's dust from
+ * precomputed source-to-node distances.
+ *
+ * <p>Kernels are cached by program, so islands that are structurally identical, including the same
+ * island after an unrelated rebuild, share one generated class. The cache keeps the most recently
+ * used {@code maxKernels} programs; evicted classes are unloaded once no island uses them. A
+ * changed island topology lowers to a different program and is compiled afresh; a {@link
+ * CompiledIsland} is bound to the netlist it was compiled from and stops running once that netlist
+ * is invalidated. Islands containing adapter rows cannot be compiled and stay with the interpreter.
+ */
+public final class IslandCompiler {
+  static final int TERM_DISTANCE_MASK = 0xF;
+  static final int TERM_EXTERNAL = 0x10;
+  static final int TERM_SHIFT = 5;
+
+  /** Kernel classes kept by {@link #IslandCompiler()}. */
+  public static final int DEFAULT_MAX_KERNELS = 256;
+
+  private static final Comparator<DustPort> PORT_ORDER =
+      Comparator.comparingInt(DustPort::componentId).thenComparingInt(DustPort::portIndex);
+
+  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+  private final Map<Program, Class<?>> kernels;
+
+  public IslandCompiler() {
+    this(DEFAULT_MAX_KERNELS);
+  }
+
+  /** Creates a compiler caching at most {@code maxKernels} kernel classes. */
+  public IslandCompiler(int maxKernels) {
+    if (maxKernels <= 0) {
+      throw new IllegalArgumentException("maxKernels must be positive");
+    }
+    this.kernels =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Program, Class<?>> eldest) {
+            return size() > maxKernels;
+          }
+        };
+  }
+
+  /**
+   * Compiles the island containing {@code row}.
+   *
+   * @throws IllegalArgumentException if the island contains an adapter row or is too large for the
+   *     generated methods
+   */
+  public CompiledIsland compile(CompiledNetlist netlist, int row) {
+    Objects.requireNonNull(netlist, "netlist");
+    if (row < 0 || row >= netlist.rowCount()) {
+      throw new IndexOutOfBoundsException("row " + row + " out of range");
+    }
+    Island island = Island.collect(netlist, row);
+    Program program = island.lower();
+    Class<?> kernelClass = kernels.get(program);
+    if (kernelClass == null) {
+      kernelClass = define(program.code);
+      kernels.put(program, kernelClass);
+    }
+    return new CompiledIsland(
+        netlist, instantiate(kernelClass), island.rows, island.nodes, island.externalPorts);
+  }
+
+  /** Number of kernel classes currently cached. */
+  public int kernelCount() {
+    return kernels.size();
+  }
+
+  /**
+   * Drops every cached kernel. Islands already compiled keep working; their classes are unloaded
+   * once the islands are unreachable.
+   */
+  public void clear() {
+    kernels.clear();
+  }
+
+  private Class<?> define(int[] program) {
+    byte[] bytes = KernelClassWriter.write(program);
+    try {
+      return lookup.defineHiddenClass(bytes, true).lookupClass();
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot define island kernel", e);
+    }
+  }
+
+  private static IslandKernel instantiate(Class<?> kernelClass) {
+    try {
+      return (IslandKernel) kernelClass.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot instantiate island kernel", e);
+    }
+  }
+
+  /** Lowered island: a flat, position-independent description of the kernel to generate. */
+  private static final class Program {
+    final int[] code;
+    final int hash;
+
+    Program(int[] code) {
+      this.code = code;
+      this.hash = Arrays.hashCode(code);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Program program && Arrays.equals(code, program.code);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * Rows, dust nodes and external ports of one island; rows and nodes sorted by their global id,
+   * ports in {@link #PORT_ORDER}.
+   */
+  private static final class Island {
+    final CompiledNetlist netlist;
+    final int[] rows;
+    final int[] nodes;
+    final DustPort[] externalPorts;
+    final int[] externalNodes;
+
+    private Island(
+        CompiledNetlist netlist,
+        int[] rows,
+        int[] nodes,
+        DustPort[] externalPorts,
+        int[] externalNodes) {
+      this.netlist = netlist;
+      this.rows = rows;
+      this.nodes = nodes;
+      this.externalPorts = externalPorts;
+      this.externalNodes = externalNodes;
+    }
+
+    static Island collect(CompiledNetlist netlist, int seed) {
+      DustCsrGraph graph = netlist.graph();
+      int[] types = netlist.types();
+      int[] inputIndex = netlist.inputIndex();
+      int[] inputs = netlist.inputs();
+      int[] outputIndex = netlist.outputIndex();
+      int[] outputs = netlist.outputs();
+      int[] outputNodes = netlist.outputNodes();
+      int[] readerIndex = netlist.readerIndex();
+      int[] readers = netlist.readers();
+
+      NetlistIslandIndex index = netlist.islandIndex();
+
+      BitSet rowSeen = new BitSet();
+      BitSet islandSeen = new BitSet();
+      BitSet nodeSeen = new BitSet();
+      Deque<Integer> pending = new ArrayDeque<>();
+      rowSeen.set(seed);
+      pending.add(seed);
+      while (!pending.isEmpty()) {
+        int row = pending.poll();
+        if (types[row] == CompiledNetlist.ADAPTER) {
+          throw new IllegalArgumentException(
+              "Island of row " + seed + " contains adapter row " + row);
+        }
+        List<Integer> reached = new ArrayList<>();
+        for (int edge = inputIndex[row]; edge < inputIndex[row + 1]; edge++) {
+          int input = inputs[edge];
+          int source = input >>> CompiledNetlist.INPUT_SHIFT;
+          if ((input & CompiledNetlist.FROM_DUST) != 0) {
+            reached.add(graph.islandId(source));
+          } else if (!rowSeen.get(source)) {
+            rowSeen.set(source);
+            pending.add(source);
+          }
+        }
+        for (int edge = outputIndex[row]; edge < outputIndex[row + 1]; edge++) {
+          int target = outputs[edge] >>> CompiledNetlist.OUTPUT_SHIFT;
+          if ((outputs[edge] & CompiledNetlist.TO_PORT) != 0) {
+            reached.add(graph.islandId(outputNodes[edge]));
+          } else if (!rowSeen.get(target)) {
+            rowSeen.set(target);
+            pending.add(target);
+          }
+        }
+        for (int dustIsland : reached) {
+          if (islandSeen.get(dustIsland)) {
+            continue;
+          }
+          islandSeen.set(dustIsland);
+          for (int n = index.islandNodeIndex[dustIsland];
+              n < index.islandNodeIndex[dustIsland + 1];
+              n++) {
+            int node = index.islandNodes[n];
+            nodeSeen.set(node);
+            for (int i = readerIndex[node]; i < readerIndex[node + 1]; i++) {
+              if (!rowSeen.get(readers[i])) {
+                rowSeen.set(readers[i]);
+                pending.add(readers[i]);
+              }
+            }
+            for (int j = index.nodeDriverIndex[node]; j < index.nodeDriverIndex[node + 1]; j++) {
+              int driver = index.nodeDrivers[j];
+              if (!rowSeen.get(driver)) {
+                rowSeen.set(driver);
+                pending.add(driver);
+              }
+            }
+          }
+        }
+      }
+
+      int[] nodes = nodeSeen.stream().toArray();
+      List<DustPort> externalPorts = new ArrayList<>();
+      for (int node : nodes) {
+        for (int i = index.nodePortIndex[node]; i < index.nodePortIndex[node + 1]; i++) {
+          externalPorts.add(index.nodePorts[i]);
+        }
+      }
+      externalPorts.sort(PORT_ORDER);
+      int[] externalNodes = new int[externalPorts.size()];
+      for (int slot = 0; slot < externalNodes.length; slot++) {
+        externalNodes[slot] = graph.nodeForPort(externalPorts.get(slot)).getAsInt();
+      }
+      return new Island(
+          netlist,
+          rowSeen.stream().toArray(),
+          nodes,
+          externalPorts.toArray(new DustPort[0]),
+          externalNodes);
+    }
+
+    /**
+     * Lowers the island to {@code [rowCount, nodeCount, externalCount, rows..., nodes...]}. A row
+     * is {@code type, delay, inputCount, inputs...} with inputs re-numbered to local rows and
+     * nodes; a node is {@code termCount, terms...}, where each term names a local row output or
+     * external port and its distance to the node, for every source closer than {@link
+     * DustPropagator#MAX_POWER_LEVEL}.
+     */
+    Program lower() {
+      DustCsrGraph graph = netlist.graph();
+      int[] types = netlist.types();
+      int[] delays = netlist.delays();
+      int[] inputIndex = netlist.inputIndex();
+      int[] inputs = netlist.inputs();
+      int[] outputIndex = netlist.outputIndex();
+      int[] outputs = netlist.outputs();
+      int[] outputNodes = netlist.outputNodes();
+
+      IntList code = new IntList();
+      code.add(rows.length);
+      code.add(nodes.length);
+      code.add(externalPorts.length);
+      IntList sourceNodes = new IntList();
+      IntList sourceTerms = new IntList();
+      for (int local = 0; local < rows.length; local++) {
+        int row = rows[local];
+        code.add(types[row]);
+        code.add(delays[row]);
+        code.add(inputIndex[row + 1] - inputIndex[row]);
+        for (int edge = inputIndex[row]; edge < inputIndex[row + 1]; edge++) {
+          int input = inputs[edge];
+          int source = input >>> CompiledNetlist.INPUT_SHIFT;
+          int[] table = (input & CompiledNetlist.FROM_DUST) != 0 ? nodes : rows;
+          int flags = input & ((1 << CompiledNetlist.INPUT_SHIFT) - 1);
+          code.add((Arrays.binarySearch(table, source) << CompiledNetlist.INPUT_SHIFT) | flags);
+        }
+        for (int edge = outputIndex[row]; edge < outputIndex[row + 1]; edge++) {
+          if ((outputs[edge] & CompiledNetlist.TO_PORT) != 0) {
+            sourceNodes.add(outputNodes[edge]);
+            sourceTerms.add(local << TERM_SHIFT);
+          }
+        }
+      }
+      for (int slot = 0; slot < externalNodes.length; slot++) {
+        sourceNodes.add(externalNodes[slot]);
+        sourceTerms.add((slot << TERM_SHIFT) | TERM_EXTERNAL);
+      }
+
+      List<List<Integer>> terms = new ArrayList<>(nodes.length);
+      for (int i = 0; i < nodes.length; i++) {
+        terms.add(new ArrayList<>());
+      }
+      Map<Integer, Map<Integer, Integer>> distances = new HashMap<>();
+      for (int i = 0; i < sourceNodes.size; i++) {
+        Map<Integer, Integer> reach =
+            distances.computeIfAbsent(sourceNodes.values[i], node -> DustReach.within(graph, node));
+        int term = sourceTerms.values[i];
+        reach.forEach(
+            (node, distance) -> terms.get(Arrays.binarySearch(nodes, node)).add(term | distance));
+      }
+      for (List<Integer> nodeTerms : terms) {
+        code.add(nodeTerms.size());
+        for (int term : nodeTerms) {
+          code.add(term);
+        }
+      }
+      return new Program(Arrays.copyOf(code.values, code.size));
+    }
+  }
+
+  private static final class IntList {
+    int[] values = new int[16];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+}
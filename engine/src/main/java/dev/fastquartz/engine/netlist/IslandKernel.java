@@ -0,0 +1,17 @@
+package dev.fastquartz.engine.netlist;
+
+/**
+ * Straight-line evaluation of one closed island, implemented by classes that {@link IslandCompiler}
+ * generates. All arrays are indexed by the island's local row, node and external-port numbers.
+ */
+interface IslandKernel {
+  /**
+   * Evaluates every row once against {@code out} and the settled {@code dust} levels, advances the
+   * delay lines in {@code pipelines} and then copies the new outputs from {@code next} into {@code
+   * out}.
+   */
+  void tick(int[] out, long[] pipelines, int[] next, int[] dust);
+
+  /** Settles {@code dust} from the row outputs and the external port levels. */
+  void settle(int[] out, int[] external, int[] dust);
+}
@@ -0,0 +1,412 @@
+package dev.fastquartz.engine.netlist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Emits the class file of an {@link IslandKernel} for one island program (see {@link
+ * IslandCompiler}). The generated methods contain no branches, so the class needs no stack map
+ * frames; conditionals are expressed through {@link Math#min}, {@link Math#max} and sign masks.
+ */
+final class KernelClassWriter {
+  static final String CLASS_NAME = "dev/fastquartz/engine/netlist/IslandKernel$Compiled";
+
+  private static final int CLASS_FILE_VERSION = 61; // Java 17
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+  private static final int MAX_STACK = 8;
+  private static final int MAX_CODE_LENGTH = 65535;
+
+  // tick(int[] out, long[] pipelines, int[] next, int[] dust) locals.
+  private static final int TICK_OUT = 1;
+  private static final int TICK_PIPELINES = 2;
+  private static final int TICK_NEXT = 3;
+  private static final int TICK_DUST = 4;
+  private static final int TICK_REAR = 5;
+  private static final int TICK_SIDE = 6;
+  private static final int TICK_TARGET = 7;
+  private static final int TICK_LOCALS = 8;
+
+  // settle(int[] out, int[] external, int[] dust) locals.
+  private static final int SETTLE_OUT = 1;
+  private static final int SETTLE_EXTERNAL = 2;
+  private static final int SETTLE_DUST = 3;
+  private static final int SETTLE_LOCALS = 4;
+
+  private final ConstantPool pool = new ConstantPool();
+  private final int[] program;
+
+  private KernelClassWriter(int[] program) {
+    this.program = program;
+  }
+
+  /**
+   * Returns the class file for {@code program}.
+   *
+   * @throws IllegalArgumentException if a generated method exceeds the JVM's code size limit
+   */
+  static byte[] write(int[] program) {
+    return new KernelClassWriter(program).write();
+  }
+
+  private byte[] write() {
+    int thisClass = pool.classRef(CLASS_NAME);
+    int superClass = pool.classRef("java/lang/Object");
+    int kernel = pool.classRef("dev/fastquartz/engine/netlist/IslandKernel");
+    byte[] init = constructor();
+    byte[] tick = tick();
+    byte[] settle = settle();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      int initName = pool.utf8("<init>");
+      int initType = pool.utf8("()V");
+      int tickName = pool.utf8("tick");
+      int tickType = pool.utf8("([I[J[I[I)V");
+      int settleName = pool.utf8("settle");
+      int settleType = pool.utf8("([I[I[I)V");
+      int code = pool.utf8("Code");
+
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(CLASS_FILE_VERSION);
+      pool.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(1);
+      out.writeShort(kernel);
+      out.writeShort(0); // fields
+      out.writeShort(3);
+      writeMethod(out, initName, initType, code, 1, 1, init);
+      writeMethod(out, tickName, tickType, code, MAX_STACK, TICK_LOCALS, tick);
+      writeMethod(out, settleName, settleType, code, MAX_STACK, SETTLE_LOCALS, settle);
+      out.writeShort(0); // attributes
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private byte[] constructor() {
+    Code code = new Code();
+    code.op(0x2a); // aload_0
+    code.op(0xb7); // invokespecial
+    code.u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+    code.op(0xb1); // return
+    return code.toBytes();
+  }
+
+  private byte[] tick() {
+    int max = pool.methodRef("java/lang/Math", "max", "(II)I");
+    int min = pool.methodRef("java/lang/Math", "min", "(II)I");
+    int arraycopy =
+        pool.methodRef(
+            "java/lang/System", "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V");
+    int rowCount = program[0];
+    int cursor = 3;
+    Code code = new Code();
+    for (int row = 0; row < rowCount; row++) {
+      int type = program[cursor++];
+      int delay = program[cursor++];
+      int inputCount = program[cursor++];
+
+      code.iconst(0);
+      code.istore(TICK_REAR);
+      code.iconst(0);
+      code.istore(TICK_SIDE);
+      for (int i = 0; i < inputCount; i++) {
+        int input = program[cursor++];
+        int local = (input & CompiledNetlist.SIDE) != 0 ? TICK_SIDE : TICK_REAR;
+        code.iload(local);
+        code.aload((input & CompiledNetlist.FROM_DUST) != 0 ? TICK_DUST : TICK_OUT);
+        code.iconst(input >>> CompiledNetlist.INPUT_SHIFT);
+        code.op(0x2e); // iaload
+        code.invokestatic(max);
+        code.istore(local);
+      }
+
+      switch (type) {
+        case CompiledNetlist.TORCH -> {
+          // 15 - 15 * min(rear, 1)
+          code.iconst(15);
+          code.iload(TICK_REAR);
+          code.iconst(1);
+          code.invokestatic(min);
+          code.iconst(15);
+          code.op(0x68); // imul
+          code.op(0x64); // isub
+        }
+        case CompiledNetlist.REPEATER -> {
+          // 15 * min(rear, 1)
+          code.iload(TICK_REAR);
+          code.iconst(1);
+          code.invokestatic(min);
+          code.iconst(15);
+          code.op(0x68); // imul
+        }
+        case CompiledNetlist.COMPARATOR -> {
+          // rear & ~((rear - side) >> 31)
+          code.iload(TICK_REAR);
+          code.iload(TICK_REAR);
+          code.iload(TICK_SIDE);
+          code.op(0x64); // isub
+          code.iconst(31);
+          code.op(0x7a); // ishr
+          code.iconst(-1);
+          code.op(0x82); // ixor
+          code.op(0x7e); // iand
+        }
+        case CompiledNetlist.SUBTRACTOR -> {
+          // max(rear - side, 0)
+          code.iload(TICK_REAR);
+          code.iload(TICK_SIDE);
+          code.op(0x64); // isub
+          code.iconst(0);
+          code.invokestatic(max);
+        }
+        default -> throw new IllegalArgumentException("Cannot compile row type " + type);
+      }
+      code.istore(TICK_TARGET);
+
+      // pipelines[row] = ((pipelines[row] << 4) | target) & mask
+      code.aload(TICK_PIPELINES);
+      code.iconst(row);
+      code.aload(TICK_PIPELINES);
+      code.iconst(row);
+      code.op(0x2f); // laload
+      code.iconst(4);
+      code.op(0x79); // lshl
+      code.iload(TICK_TARGET);
+      code.op(0x85); // i2l
+      code.op(0x81); // lor
+      code.op(0x14); // ldc2_w
+      code.u2(pool.longConstant(-1L >>> (Long.SIZE - 4 * delay)));
+      code.op(0x7f); // land
+      code.op(0x50); // lastore
+
+      // next[row] = (int) (pipelines[row] >>> 4 * (delay - 1)) & 15
+      code.aload(TICK_NEXT);
+      code.iconst(row);
+      code.aload(TICK_PIPELINES);
+      code.iconst(row);
+      code.op(0x2f); // laload
+      if (delay > 1) {
+        code.iconst(4 * (delay - 1));
+        code.op(0x7d); // lushr
+      }
+      code.op(0x88); // l2i
+      code.iconst(15);
+      code.op(0x7e); // iand
+      code.op(0x4f); // iastore
+    }
+    if (rowCount > 0) {
+      code.aload(TICK_NEXT);
+      code.iconst(0);
+      code.aload(TICK_OUT);
+      code.iconst(0);
+      code.iconst(rowCount);
+      code.invokestatic(arraycopy);
+    }
+    code.op(0xb1); // return
+    return code.toBytes();
+  }
+
+  private byte[] settle() {
+    int max = pool.methodRef("java/lang/Math", "max", "(II)I");
+    int rowCount = program[0];
+    int nodeCount = program[1];
+    int cursor = 3;
+    for (int row = 0; row < rowCount; row++) {
+      cursor += 3 + program[cursor + 2];
+    }
+    Code code = new Code();
+    for (int node = 0; node < nodeCount; node++) {
+      int termCount = program[cursor++];
+      code.aload(SETTLE_DUST);
+      code.iconst(node);
+      code.iconst(0);
+      for (int i = 0; i < termCount; i++) {
+        int term = program[cursor++];
+        boolean external = (term & IslandCompiler.TERM_EXTERNAL) != 0;
+        code.aload(external ? SETTLE_EXTERNAL : SETTLE_OUT);
+        code.iconst(term >>> IslandCompiler.TERM_SHIFT);
+        code.op(0x2e); // iaload
+        int distance = term & IslandCompiler.TERM_DISTANCE_MASK;
+        if (distance > 0) {
+          code.iconst(distance);
+          code.op(0x64); // isub
+        }
+        code.invokestatic(max);
+      }
+      code.op(0x4f); // iastore
+    }
+    code.op(0xb1); // return
+    return code.toBytes();
+  }
+
+  private static void writeMethod(
+      DataOutputStream out,
+      int name,
+      int descriptor,
+      int codeAttribute,
+      int maxStack,
+      int maxLocals,
+      byte[] code)
+      throws IOException {
+    out.writeShort(ACC_PUBLIC);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1);
+    out.writeShort(codeAttribute);
+    out.writeInt(12 + code.length);
+    out.writeShort(maxStack);
+    out.writeShort(maxLocals);
+    out.writeInt(code.length);
+    out.write(code);
+    out.writeShort(0); // exception table
+    out.writeShort(0); // attributes
+  }
+
+  /** Growable bytecode buffer with helpers for the few instructions kernels use. */
+  private final class Code {
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    void op(int opcode) {
+      if (length == bytes.length) {
+        bytes = Arrays.copyOf(bytes, length * 2);
+      }
+      bytes[length++] = (byte) opcode;
+    }
+
+    void u2(int value) {
+      op(value >>> 8);
+      op(value);
+    }
+
+    void iconst(int value) {
+      if (value >= -1 && value <= 5) {
+        op(0x03 + value); // iconst_<n>
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        op(0x10); // bipush
+        op(value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        op(0x11); // sipush
+        u2(value);
+      } else {
+        op(0x13); // ldc_w
+        u2(pool.intConstant(value));
+      }
+    }
+
+    void iload(int local) {
+      op(0x15);
+      op(local);
+    }
+
+    void istore(int local) {
+      op(0x36);
+      op(local);
+    }
+
+    void aload(int local) {
+      op(0x19);
+      op(local);
+    }
+
+    void invokestatic(int methodRef) {
+      op(0xb8);
+      u2(methodRef);
+    }
+
+    byte[] toBytes() {
+      if (length > MAX_CODE_LENGTH) {
+        throw new IllegalArgumentException(
+            "Island too large to compile: " + length + " bytes of code in one method");
+      }
+      return Arrays.copyOf(bytes, length);
+    }
+  }
+
+  /** Deduplicating constant pool. */
+  private static final class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int LONG = 5;
+    private static final int CLASS = 7;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int next = 1;
+
+    int utf8(String value) {
+      return entry("U" + value, 1, UTF8, value, 0, 0, 0L);
+    }
+
+    int classRef(String internalName) {
+      int name = utf8(internalName);
+      return entry("C" + internalName, 1, CLASS, null, name, 0, 0L);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+      int ownerRef = classRef(owner);
+      int nameRef = utf8(name);
+      int descriptorRef = utf8(descriptor);
+      int nameAndType =
+          entry("N" + name + ' ' + descriptor, 1, NAME_AND_TYPE, null, nameRef, descriptorRef, 0L);
+      return entry(
+          "M" + owner + '.' + name + descriptor, 1, METHOD_REF, null, ownerRef, nameAndType, 0L);
+    }
+
+    int intConstant(int value) {
+      return entry("I" + value, 1, INTEGER, null, 0, 0, value);
+    }
+
+    int longConstant(long value) {
+      return entry("J" + value, 2, LONG, null, 0, 0, value);
+    }
+
+    void writeTo(DataOutputStream target) throws IOException {
+      out.flush();
+      target.writeShort(next);
+      bytes.writeTo(target);
+    }
+
+    private int entry(
+        String key, int slots, int tag, String text, int first, int second, long number) {
+      Integer existing = entries.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      int index = next;
+      next += slots;
+      entries.put(key, index);
+      try {
+        out.writeByte(tag);
+        switch (tag) {
+          case UTF8 -> out.writeUTF(text);
+          case INTEGER -> out.writeInt((int) number);
+          case LONG -> out.writeLong(number);
+          case CLASS -> out.writeShort(first);
+          default -> {
+            out.writeShort(first);
+            out.writeShort(second);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return index;
+    }
+  }
+}
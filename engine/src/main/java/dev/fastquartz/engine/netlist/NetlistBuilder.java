@@ -0,0 +1,273 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.component.ComponentAdapters;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds a {@link CompiledNetlist} over a compressed dust graph. Rows are numbered in the order
+ * they are added; edges may be added in any order and are sorted into CSR form by {@link
+ * #build(DustPropagator)}.
+ */
+public final class NetlistBuilder {
+  private static final int MIN_CAPACITY = 16;
+
+  private final DustCsrGraph graph;
+  private int rowCount;
+  private int[] types = new int[MIN_CAPACITY];
+  private long[] positionKeys = new long[MIN_CAPACITY];
+  private int[] stateBits = new int[MIN_CAPACITY];
+  private int[] delays = new int[MIN_CAPACITY];
+  private final List<ComponentAdapters.ComponentAdapter> adapters = new ArrayList<>();
+  private final EdgeList inputs = new EdgeList();
+  private final EdgeList componentOutputs = new EdgeList();
+  private final List<DustPort> drivenPorts = new ArrayList<>();
+  private final EdgeList portDrivers = new EdgeList();
+
+  public NetlistBuilder(DustCsrGraph graph) {
+    this.graph = Objects.requireNonNull(graph, "graph");
+  }
+
+  /** Adds a torch and returns its row. */
+  public int addTorch(BlockPos pos, int stateBits) {
+    return addRow(CompiledNetlist.TORCH, pos, stateBits, 1, null);
+  }
+
+  /** Adds a repeater with a delay in {@code [1, MAX_DELAY]} ticks and returns its row. */
+  public int addRepeater(BlockPos pos, int stateBits, int delay) {
+    if (delay < 1 || delay > CompiledNetlist.MAX_DELAY) {
+      throw new IllegalArgumentException("delay must be in [1, " + CompiledNetlist.MAX_DELAY + "]");
+    }
+    return addRow(CompiledNetlist.REPEATER, pos, stateBits, delay, null);
+  }
+
+  /** Adds a comparator in compare or subtract mode and returns its row. */
+  public int addComparator(BlockPos pos, int stateBits, boolean subtract) {
+    int type = subtract ? CompiledNetlist.SUBTRACTOR : CompiledNetlist.COMPARATOR;
+    return addRow(type, pos, stateBits, 1, null);
+  }
+
+  /**
+   * Adds a component the netlist cannot model. Its adapter runs whenever one of its inputs changes;
+   * the row has no modelled output, so it can neither be read nor drive a port.
+   */
+  public int addAdapter(BlockPos pos, int stateBits, ComponentAdapters.ComponentAdapter adapter) {
+    Objects.requireNonNull(adapter, "adapter");
+    return addRow(CompiledNetlist.ADAPTER, pos, stateBits, 1, adapter);
+  }
+
+  /**
+   * Makes {@code row} read the settled level of the dust block at {@code dustPos}, which must be a
+   * graph node: a port position, a junction or corner, or a block declared with {@link
+   * DustCsrBuilder#addTap(BlockPos)}.
+   */
+  public NetlistBuilder readDust(int row, BlockPos dustPos) {
+    inputs.add(
+        checkRow(row),
+        (dustNode(dustPos) << CompiledNetlist.INPUT_SHIFT) | CompiledNetlist.FROM_DUST);
+    return this;
+  }
+
+  /** Makes {@code row} read the output of {@code sourceRow} directly. */
+  public NetlistBuilder readComponent(int row, int sourceRow) {
+    checkSource(sourceRow);
+    inputs.add(checkRow(row), sourceRow << CompiledNetlist.INPUT_SHIFT);
+    componentOutputs.add(sourceRow, row);
+    return this;
+  }
+
+  /** Makes the comparator at {@code row} read dust at {@code dustPos} as a side input. */
+  public NetlistBuilder readSideDust(int row, BlockPos dustPos) {
+    checkComparator(row);
+    inputs.add(
+        row,
+        (dustNode(dustPos) << CompiledNetlist.INPUT_SHIFT)
+            | CompiledNetlist.SIDE
+            | CompiledNetlist.FROM_DUST);
+    return this;
+  }
+
+  /** Makes the comparator at {@code row} read the output of {@code sourceRow} as a side input. */
+  public NetlistBuilder readSideComponent(int row, int sourceRow) {
+    checkComparator(row);
+    checkSource(sourceRow);
+    inputs.add(row, (sourceRow << CompiledNetlist.INPUT_SHIFT) | CompiledNetlist.SIDE);
+    componentOutputs.add(sourceRow, row);
+    return this;
+  }
+
+  /**
+   * Makes {@code row} emit its output through {@code port}, which must be attached in the graph.
+   */
+  public NetlistBuilder drivePort(int row, DustPort port) {
+    Objects.requireNonNull(port, "port");
+    checkSource(row);
+    if (graph.nodeForPort(port).isEmpty()) {
+      throw new IllegalArgumentException("Port " + port + " is not attached in the graph");
+    }
+    if (drivenPorts.contains(port)) {
+      throw new IllegalArgumentException("Port " + port + " is already driven");
+    }
+    portDrivers.add(row, drivenPorts.size());
+    drivenPorts.add(port);
+    return this;
+  }
+
+  /** Number of rows added so far. */
+  public int rowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Builds the netlist. {@code propagator} must already be reset to this builder's graph; the
+   * netlist reads dust levels from it and pushes port levels into it. Every row starts unpowered
+   * and scheduled, so the first tick settles the netlist from scratch.
+   */
+  public CompiledNetlist build(DustPropagator propagator) {
+    Objects.requireNonNull(propagator, "propagator");
+    int[] portIndices = new int[drivenPorts.size()];
+    for (int i = 0; i < portIndices.length; i++) {
+      int index = propagator.portIndex(drivenPorts.get(i));
+      if (index < 0) {
+        throw new IllegalStateException(
+            "Port " + drivenPorts.get(i) + " is not attached; reset the propagator first");
+      }
+      portIndices[i] = index;
+    }
+
+    int[] inputIndex = new int[rowCount + 1];
+    int[] inputWords = inputs.toCsr(rowCount, inputIndex);
+
+    EdgeList outputs = new EdgeList();
+    EdgeList outputTargets = new EdgeList();
+    for (int i = 0; i < componentOutputs.size; i++) {
+      outputs.add(
+          componentOutputs.rows[i], componentOutputs.values[i] << CompiledNetlist.OUTPUT_SHIFT);
+      outputTargets.add(componentOutputs.rows[i], -1);
+    }
+    for (int i = 0; i < portDrivers.size; i++) {
+      int port = portDrivers.values[i];
+      outputs.add(
+          portDrivers.rows[i],
+          (portIndices[port] << CompiledNetlist.OUTPUT_SHIFT) | CompiledNetlist.TO_PORT);
+      outputTargets.add(portDrivers.rows[i], graph.nodeForPort(drivenPorts.get(port)).getAsInt());
+    }
+    int[] outputIndex = new int[rowCount + 1];
+    int[] outputWords = outputs.toCsr(rowCount, outputIndex);
+    int[] outputNodes = outputTargets.toCsr(rowCount, new int[rowCount + 1]);
+
+    EdgeList dustReaders = new EdgeList();
+    for (int i = 0; i < inputs.size; i++) {
+      int input = inputs.values[i];
+      if ((input & CompiledNetlist.FROM_DUST) != 0) {
+        dustReaders.add(input >>> CompiledNetlist.INPUT_SHIFT, inputs.rows[i]);
+      }
+    }
+    int[] readerIndex = new int[graph.nodeCount() + 1];
+    int[] readers = dustReaders.toCsr(graph.nodeCount(), readerIndex);
+
+    return new CompiledNetlist(
+        graph,
+        propagator,
+        Arrays.copyOf(types, rowCount),
+        Arrays.copyOf(positionKeys, rowCount),
+        Arrays.copyOf(stateBits, rowCount),
+        Arrays.copyOf(delays, rowCount),
+        adapters.toArray(new ComponentAdapters.ComponentAdapter[0]),
+        inputIndex,
+        inputWords,
+        outputIndex,
+        outputWords,
+        outputNodes,
+        readerIndex,
+        readers);
+  }
+
+  private int addRow(
+      int type, BlockPos pos, int bits, int delay, ComponentAdapters.ComponentAdapter adapter) {
+    Objects.requireNonNull(pos, "pos");
+    if (rowCount == types.length) {
+      int capacity = rowCount * 2;
+      types = Arrays.copyOf(types, capacity);
+      positionKeys = Arrays.copyOf(positionKeys, capacity);
+      stateBits = Arrays.copyOf(stateBits, capacity);
+      delays = Arrays.copyOf(delays, capacity);
+    }
+    types[rowCount] = type;
+    positionKeys[rowCount] = pos.asLong();
+    stateBits[rowCount] = bits;
+    delays[rowCount] = delay;
+    adapters.add(adapter);
+    return rowCount++;
+  }
+
+  private int dustNode(BlockPos dustPos) {
+    Objects.requireNonNull(dustPos, "dustPos");
+    return graph
+        .nodeForPosition(dustPos)
+        .orElseThrow(
+            () ->
+                new IllegalArgumentException(
+                    "No dust node at " + dustPos + "; declare mid-wire readers as taps"));
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IllegalArgumentException("Unknown row " + row);
+    }
+    return row;
+  }
+
+  private void checkSource(int row) {
+    if (types[checkRow(row)] == CompiledNetlist.ADAPTER) {
+      throw new IllegalArgumentException("Adapter row " + row + " has no modelled output");
+    }
+  }
+
+  private void checkComparator(int row) {
+    int type = types[checkRow(row)];
+    if (type != CompiledNetlist.COMPARATOR && type != CompiledNetlist.SUBTRACTOR) {
+      throw new IllegalArgumentException("Row " + row + " is not a comparator");
+    }
+  }
+
+  /** Growable list of (row, value) pairs, sorted into CSR order by row on demand. */
+  private static final class EdgeList {
+    int[] rows = new int[MIN_CAPACITY];
+    int[] values = new int[MIN_CAPACITY];
+    int size;
+
+    void add(int row, int value) {
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      rows[size] = row;
+      values[size] = value;
+      size++;
+    }
+
+    /** Fills {@code index} (length {@code rowCount + 1}) and returns the values grouped by row. */
+    int[] toCsr(int rowCount, int[] index) {
+      for (int i = 0; i < size; i++) {
+        index[rows[i] + 1]++;
+      }
+      for (int row = 0; row < rowCount; row++) {
+        index[row + 1] += index[row];
+      }
+      int[] cursor = Arrays.copyOf(index, rowCount);
+      int[] grouped = new int[size];
+      for (int i = 0; i < size; i++) {
+        grouped[cursor[rows[i]]++] = values[i];
+      }
+      return grouped;
+    }
+  }
+}
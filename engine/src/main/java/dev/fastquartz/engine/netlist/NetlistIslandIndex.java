@@ -0,0 +1,135 @@
+package dev.fastquartz.engine.netlist;
+
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whole-netlist lookups used to collect islands, built once per {@link CompiledNetlist} in CSR
+ * form: the dust nodes of every dust island, the rows driving a port on every node, and the ports
+ * of every node that no row drives.
+ */
+final class NetlistIslandIndex {
+  final int[] islandNodeIndex;
+  final int[] islandNodes;
+  final int[] nodeDriverIndex;
+  final int[] nodeDrivers;
+  final int[] nodePortIndex;
+  final DustPort[] nodePorts;
+
+  private NetlistIslandIndex(
+      int[] islandNodeIndex,
+      int[] islandNodes,
+      int[] nodeDriverIndex,
+      int[] nodeDrivers,
+      int[] nodePortIndex,
+      DustPort[] nodePorts) {
+    this.islandNodeIndex = islandNodeIndex;
+    this.islandNodes = islandNodes;
+    this.nodeDriverIndex = nodeDriverIndex;
+    this.nodeDrivers = nodeDrivers;
+    this.nodePortIndex = nodePortIndex;
+    this.nodePorts = nodePorts;
+  }
+
+  static NetlistIslandIndex build(CompiledNetlist netlist) {
+    DustCsrGraph graph = netlist.graph();
+    int nodeCount = graph.nodeCount();
+    int[] islandOf = new int[nodeCount];
+    int islandCount = 0;
+    for (int node = 0; node < nodeCount; node++) {
+      islandOf[node] = graph.islandId(node);
+      islandCount = Math.max(islandCount, islandOf[node] + 1);
+    }
+    int[] islandNodeIndex = new int[islandCount + 1];
+    int[] islandNodes = group(islandOf, identity(nodeCount), islandNodeIndex);
+
+    int[] outputIndex = netlist.outputIndex();
+    int[] outputs = netlist.outputs();
+    int[] outputNodes = netlist.outputNodes();
+    int driverCount = 0;
+    for (int output : outputs) {
+      if ((output & CompiledNetlist.TO_PORT) != 0) {
+        driverCount++;
+      }
+    }
+    int[] drivenNodes = new int[driverCount];
+    int[] drivers = new int[driverCount];
+    boolean[] drivenPorts = new boolean[portCount(outputs)];
+    driverCount = 0;
+    for (int row = 0; row < netlist.rowCount(); row++) {
+      for (int edge = outputIndex[row]; edge < outputIndex[row + 1]; edge++) {
+        if ((outputs[edge] & CompiledNetlist.TO_PORT) != 0) {
+          drivenNodes[driverCount] = outputNodes[edge];
+          drivers[driverCount] = row;
+          drivenPorts[outputs[edge] >>> CompiledNetlist.OUTPUT_SHIFT] = true;
+          driverCount++;
+        }
+      }
+    }
+    int[] nodeDriverIndex = new int[nodeCount + 1];
+    int[] nodeDrivers = group(drivenNodes, drivers, nodeDriverIndex);
+
+    DustPropagator propagator = netlist.propagator();
+    List<DustPort> undriven = new ArrayList<>();
+    List<Integer> undrivenNodes = new ArrayList<>();
+    for (Map.Entry<DustPort, Integer> entry : graph.portToNode().entrySet()) {
+      int portIndex = propagator.portIndex(entry.getKey());
+      if (portIndex >= drivenPorts.length || !drivenPorts[portIndex]) {
+        undriven.add(entry.getKey());
+        undrivenNodes.add(entry.getValue());
+      }
+    }
+    int[] portNodes = undrivenNodes.stream().mapToInt(Integer::intValue).toArray();
+    int[] nodePortIndex = new int[nodeCount + 1];
+    int[] portOrder = group(portNodes, identity(portNodes.length), nodePortIndex);
+    DustPort[] nodePorts = new DustPort[portOrder.length];
+    for (int i = 0; i < portOrder.length; i++) {
+      nodePorts[i] = undriven.get(portOrder[i]);
+    }
+    return new NetlistIslandIndex(
+        islandNodeIndex, islandNodes, nodeDriverIndex, nodeDrivers, nodePortIndex, nodePorts);
+  }
+
+  private static int portCount(int[] outputs) {
+    int count = 0;
+    for (int output : outputs) {
+      if ((output & CompiledNetlist.TO_PORT) != 0) {
+        count = Math.max(count, (output >>> CompiledNetlist.OUTPUT_SHIFT) + 1);
+      }
+    }
+    return count;
+  }
+
+  private static int[] identity(int count) {
+    int[] values = new int[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = i;
+    }
+    return values;
+  }
+
+  /**
+   * Groups {@code values} by {@code keys}, filling {@code index} (one entry per key plus one) and
+   * keeping the original order within each key.
+   */
+  private static int[] group(int[] keys, int[] values, int[] index) {
+    int keyCount = index.length - 1;
+    for (int key : keys) {
+      index[key + 1]++;
+    }
+    for (int key = 0; key < keyCount; key++) {
+      index[key + 1] += index[key];
+    }
+    int[] cursor = new int[keyCount];
+    System.arraycopy(index, 0, cursor, 0, keyCount);
+    int[] grouped = new int[values.length];
+    for (int i = 0; i < keys.length; i++) {
+      grouped[cursor[keys[i]]++] = values[i];
+    }
+    return grouped;
+  }
+}
@@ -2,7 +2,63 @@ package dev.fastquartz.engine.world;
 
 /** Simple immutable 3D integer coordinate. */
 public record BlockPos(int x, int y, int z) {
+  private static final int HORIZONTAL_BITS = 26;
+  private static final int Y_BITS = 12;
+  private static final int X_SHIFT = Y_BITS + HORIZONTAL_BITS;
+  private static final int Z_SHIFT = Y_BITS;
+  private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+  private static final long Y_MASK = (1L << Y_BITS) - 1;
+  private static final int HORIZONTAL_MIN = -(1 << (HORIZONTAL_BITS - 1));
+  private static final int HORIZONTAL_MAX = (1 << (HORIZONTAL_BITS - 1)) - 1;
+  private static final int Y_MIN = -(1 << (Y_BITS - 1));
+  private static final int Y_MAX = (1 << (Y_BITS - 1)) - 1;
+
   public static BlockPos of(int x, int y, int z) {
     return new BlockPos(x, y, z);
   }
+
+  /** Packs this position into a single {@code long}; see {@link #asLong(int, int, int)}. */
+  public long asLong() {
+    return asLong(x, y, z);
+  }
+
+  /**
+   * Packs coordinates into a {@code long} using the vanilla layout: 26 bits of X, 26 bits of Z and
+   * 12 bits of Y, each two's complement. Coordinates outside that range are rejected rather than
+   * silently aliased.
+   */
+  public static long asLong(int x, int y, int z) {
+    if (!isPackable(x, y, z)) {
+      throw new IllegalArgumentException(
+          "coordinates out of packable range: (" + x + ", " + y + ", " + z + ")");
+    }
+    return ((x & HORIZONTAL_MASK) << X_SHIFT) | ((z & HORIZONTAL_MASK) << Z_SHIFT) | (y & Y_MASK);
+  }
+
+  /** Returns {@code true} if the coordinates fit {@link #asLong(int, int, int)}. */
+  public static boolean isPackable(int x, int y, int z) {
+    return x >= HORIZONTAL_MIN
+        && x <= HORIZONTAL_MAX
+        && z >= HORIZONTAL_MIN
+        && z <= HORIZONTAL_MAX
+        && y >= Y_MIN
+        && y <= Y_MAX;
+  }
+
+  /** Reverses {@link #asLong(int, int, int)}. */
+  public static BlockPos fromLong(long packed) {
+    return new BlockPos(unpackX(packed), unpackY(packed), unpackZ(packed));
+  }
+
+  public static int unpackX(long packed) {
+    return (int) (packed >> X_SHIFT);
+  }
+
+  public static int unpackY(long packed) {
+    return (int) (packed << (Long.SIZE - Y_BITS) >> (Long.SIZE - Y_BITS));
+  }
+
+  public static int unpackZ(long packed) {
+    return (int) (packed << (Long.SIZE - X_SHIFT) >> (Long.SIZE - HORIZONTAL_BITS));
+  }
 }
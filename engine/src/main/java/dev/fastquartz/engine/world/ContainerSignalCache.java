@@ -0,0 +1,85 @@
+package dev.fastquartz.engine.world;
+
+import java.util.Objects;
+
+/**
+ * Persistent cache of container (comparator) signals that outlives ticks and micro-phases.
+ *
+ * <p>Entries are only dropped when the integration reports that an inventory changed (hopper
+ * transfer, player interaction, ...) through {@link #invalidate(int, int, int)}, or when a {@link
+ * ShadowWorld} sharing the cache commits a block write to that position. Idle storage systems are
+ * therefore read from the backing world once rather than once per micro-phase. Determinism within a
+ * phase is still provided by the per-phase snapshot registry layered on top.
+ *
+ * <p>Signals are kept in a {@link LongIntMap} keyed by {@link BlockPos#asLong()}, so invalidation
+ * leaves no tombstones behind.
+ */
+public final class ContainerSignalCache {
+  /** Returned by {@link #get(long)} when no signal is cached. */
+  public static final int ABSENT = -1;
+
+  private static final int MIN_CAPACITY = 32;
+
+  private final LongIntMap signals = new LongIntMap(MIN_CAPACITY);
+  private long hits;
+  private long misses;
+  private long invalidations;
+
+  /** Returns the cached signal for a packed position, or {@link #ABSENT}. */
+  public int get(long key) {
+    int signal = signals.get(key, ABSENT);
+    if (signal == ABSENT) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return signal;
+  }
+
+  /** Caches {@code signal} for a packed position. */
+  public void put(long key, int signal) {
+    if (signal < 0) {
+      throw new IllegalArgumentException("signal must be non-negative");
+    }
+    signals.put(key, signal);
+  }
+
+  /** Drops the cached signal of the container at the given coordinates, if any. */
+  public void invalidate(int x, int y, int z) {
+    invalidate(BlockPos.asLong(x, y, z));
+  }
+
+  /** Drops the cached signal of the container at {@code pos}, if any. */
+  public void invalidate(BlockPos pos) {
+    Objects.requireNonNull(pos, "pos");
+    invalidate(pos.asLong());
+  }
+
+  /** Drops the cached signal for a packed position, if any. */
+  public void invalidate(long key) {
+    if (signals.remove(key)) {
+      invalidations++;
+    }
+  }
+
+  /** Drops every cached signal, e.g. when the world is reloaded. */
+  public void invalidateAll() {
+    signals.clear();
+  }
+
+  public int size() {
+    return signals.size();
+  }
+
+  public long hits() {
+    return hits;
+  }
+
+  public long misses() {
+    return misses;
+  }
+
+  public long invalidations() {
+    return invalidations;
+  }
+}
@@ -0,0 +1,170 @@
+package dev.fastquartz.engine.world;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} keys, usually positions packed with {@link
+ * BlockPos#asLong()}, to {@code int} values.
+ *
+ * <p>Slots are probed linearly from {@link #hash(long)} and the table doubles at half load. Every
+ * slot carries the generation it was written in, so {@link #clear()} only bumps the generation and
+ * any key may be stored, including {@link Long#MIN_VALUE}. {@link #remove(long)} shifts later
+ * members of the probe chain back into the hole and leaves no tombstones. Nothing boxes, and a map
+ * that has reached its working size allocates nothing.
+ *
+ * <p>{@link #find(long)} exposes the slot of a key so callers can read and update its value without
+ * probing twice. Slots stay valid until the next {@link #put}, {@link #remove} or {@link #clear()}.
+ */
+public final class LongIntMap {
+  /** Returned by {@link #find(long)} when the key is absent. */
+  public static final int NO_SLOT = -1;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private int[] values;
+  private int[] generations;
+  private int generation = 1;
+  private int size;
+
+  public LongIntMap() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /** Creates a map that holds {@code expectedSize} keys without growing. */
+  public LongIntMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must be non-negative");
+    }
+    int capacity = MIN_CAPACITY;
+    while (capacity < expectedSize * 2L) {
+      capacity <<= 1;
+    }
+    keys = new long[capacity];
+    values = new int[capacity];
+    generations = new int[capacity];
+  }
+
+  /** Returns an independent map with the same entries. */
+  public LongIntMap copy() {
+    LongIntMap copy = new LongIntMap(0);
+    copy.keys = keys.clone();
+    copy.values = values.clone();
+    copy.generations = generations.clone();
+    copy.generation = generation;
+    copy.size = size;
+    return copy;
+  }
+
+  /** Spreads {@code key} over the low bits; tables mask the result with their capacity - 1. */
+  public static int hash(long key) {
+    long mixed = key * 0x9E3779B97F4A7C15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+
+  /** Returns the value mapped to {@code key}, or {@code absent} if there is none. */
+  public int get(long key, int absent) {
+    int slot = find(key);
+    return slot == NO_SLOT ? absent : values[slot];
+  }
+
+  public boolean containsKey(long key) {
+    return find(key) != NO_SLOT;
+  }
+
+  /** Returns the slot holding {@code key}, or {@link #NO_SLOT}. */
+  public int find(long key) {
+    int slot = slot(key);
+    return generations[slot] == generation ? slot : NO_SLOT;
+  }
+
+  /** Returns the value in a slot returned by {@link #find(long)}. */
+  public int valueAt(int slot) {
+    return values[slot];
+  }
+
+  /** Replaces the value in a slot returned by {@link #find(long)}. */
+  public void setValueAt(int slot, int value) {
+    values[slot] = value;
+  }
+
+  /** Maps {@code key} to {@code value}, replacing any previous value. */
+  public void put(long key, int value) {
+    int slot = slot(key);
+    values[slot] = value;
+    if (generations[slot] == generation) {
+      return;
+    }
+    keys[slot] = key;
+    generations[slot] = generation;
+    if (++size * 2 > keys.length) {
+      grow();
+    }
+  }
+
+  /** Removes {@code key}; returns {@code false} if it was absent. */
+  public boolean remove(long key) {
+    int slot = find(key);
+    if (slot == NO_SLOT) {
+      return false;
+    }
+    size--;
+    int mask = keys.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (generations[next] == generation) {
+      int home = hash(keys[next]) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        values[hole] = values[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    // Generations start at 1, so 0 never marks a live slot.
+    generations[hole] = 0;
+    return true;
+  }
+
+  /** Removes every key in constant time. */
+  public void clear() {
+    size = 0;
+    generation++;
+    if (generation == 0) {
+      // Wrapped after 2^32 clears: no stale stamp may survive into the reused generations.
+      Arrays.fill(generations, 0);
+      generation = 1;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the live slot holding {@code key}, or the first slot not written this generation. */
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (generations[slot] == generation && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    int[] oldGenerations = generations;
+    keys = new long[oldKeys.length * 2];
+    values = new int[oldKeys.length * 2];
+    generations = new int[oldKeys.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldGenerations[i] == generation) {
+        int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        generations[slot] = generation;
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package dev.fastquartz.engine.world;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reverse index from observed positions to the observers facing them.
+ *
+ * <p>Positions are packed with {@link BlockPos#asLong()}. The index is kept current by feeding it
+ * block changes through {@link #onBlockChanged(long, int, int)}: an {@link ObserverShape} supplied
+ * by the integration decides whether a state is an observer and which position it watches. A {@link
+ * ShadowWorld} with observer fan-out enabled does this for every committed write and then notifies
+ * only the observers actually facing a changed block.
+ *
+ * <p>Observed positions map to the head of a singly linked chain of observer entries through a
+ * {@link LongIntMap}. Freed entries are recycled, so a steady-state index allocates nothing.
+ */
+public final class ObserverIndex {
+  /** Returned by {@link ObserverShape#observedKey(long, int)} for states that are not observers. */
+  public static final long NOT_OBSERVER = Long.MIN_VALUE;
+
+  private static final int NO_ENTRY = -1;
+  private static final int MIN_CAPACITY = 64;
+
+  private final ObserverShape shape;
+  private final LongIntMap heads = new LongIntMap(MIN_CAPACITY / 2);
+
+  private long[] entryObservers = new long[MIN_CAPACITY];
+  private int[] entryNext = new int[MIN_CAPACITY];
+  private int entryCount;
+  private int freeEntry = NO_ENTRY;
+  private int observerCount;
+
+  /** Decides which position, if any, a block state observes. */
+  @FunctionalInterface
+  public interface ObserverShape {
+    /**
+     * Returns the packed position watched by an observer with {@code stateBits} at {@code
+     * observerKey}, or {@link #NOT_OBSERVER} if the state is not an observer.
+     */
+    long observedKey(long observerKey, int stateBits);
+  }
+
+  /** Receives observed block changes fanned out at commit. */
+  @FunctionalInterface
+  public interface Listener {
+    void observedChanged(
+        BlockPos observerPos, BlockPos observedPos, int oldStateBits, int newStateBits);
+  }
+
+  public ObserverIndex(ObserverShape shape) {
+    this.shape = Objects.requireNonNull(shape, "shape");
+  }
+
+  /** Registers the block loaded at {@code key}, indexing it if it is an observer. */
+  public void onBlockLoaded(long key, int stateBits) {
+    onBlockChanged(key, 0, stateBits);
+  }
+
+  /**
+   * Updates the index for a block that changed from {@code oldStateBits} to {@code newStateBits}:
+   * an observer that was removed or turned stops being indexed under its old target, and a placed
+   * or turned observer is indexed under its new one.
+   */
+  public void onBlockChanged(long key, int oldStateBits, int newStateBits) {
+    long oldObserved = shape.observedKey(key, oldStateBits);
+    long newObserved = shape.observedKey(key, newStateBits);
+    if (oldObserved == newObserved) {
+      return;
+    }
+    if (oldObserved != NOT_OBSERVER) {
+      remove(key, oldObserved);
+    }
+    if (newObserved != NOT_OBSERVER) {
+      add(key, newObserved);
+    }
+  }
+
+  /** Indexes an observer at {@code observerKey} watching {@code observedKey}. */
+  public void add(long observerKey, long observedKey) {
+    int slot = heads.find(observedKey);
+    int head = slot == LongIntMap.NO_SLOT ? NO_ENTRY : heads.valueAt(slot);
+    for (int entry = head; entry != NO_ENTRY; entry = entryNext[entry]) {
+      if (entryObservers[entry] == observerKey) {
+        return;
+      }
+    }
+    int entry = allocateEntry();
+    entryObservers[entry] = observerKey;
+    entryNext[entry] = head;
+    if (slot == LongIntMap.NO_SLOT) {
+      heads.put(observedKey, entry);
+    } else {
+      heads.setValueAt(slot, entry);
+    }
+    observerCount++;
+  }
+
+  /** Removes the observer at {@code observerKey} watching {@code observedKey}, if indexed. */
+  public void remove(long observerKey, long observedKey) {
+    int slot = heads.find(observedKey);
+    if (slot == LongIntMap.NO_SLOT) {
+      return;
+    }
+    int previous = NO_ENTRY;
+    for (int entry = heads.valueAt(slot); entry != NO_ENTRY; entry = entryNext[entry]) {
+      if (entryObservers[entry] == observerKey) {
+        if (previous != NO_ENTRY) {
+          entryNext[previous] = entryNext[entry];
+        } else if (entryNext[entry] != NO_ENTRY) {
+          heads.setValueAt(slot, entryNext[entry]);
+        } else {
+          heads.remove(observedKey);
+        }
+        entryNext[entry] = freeEntry;
+        freeEntry = entry;
+        observerCount--;
+        return;
+      }
+      previous = entry;
+    }
+  }
+
+  /** Returns {@code true} if at least one observer faces {@code observedKey}. */
+  public boolean isObserved(long observedKey) {
+    return heads.containsKey(observedKey);
+  }
+
+  /**
+   * Copies the observers facing {@code observedKey} into {@code out}, sorted in Y/Z/X block order
+   * so fan-out is deterministic regardless of load order. Returns the total number of observers,
+   * which may exceed {@code out.length}; only the first {@code out.length} are copied.
+   */
+  public int observersOf(long observedKey, long[] out) {
+    Objects.requireNonNull(out, "out");
+    int count = 0;
+    for (int entry = heads.get(observedKey, NO_ENTRY);
+        entry != NO_ENTRY;
+        entry = entryNext[entry]) {
+      if (count < out.length) {
+        out[count] = entryObservers[entry];
+      }
+      count++;
+    }
+    int copied = Math.min(count, out.length);
+    for (int i = 1; i < copied; i++) {
+      long value = out[i];
+      int j = i - 1;
+      while (j >= 0 && compareBlockOrder(out[j], value) > 0) {
+        out[j + 1] = out[j];
+        j--;
+      }
+      out[j + 1] = value;
+    }
+    return count;
+  }
+
+  /** Returns the number of indexed observers. */
+  public int observerCount() {
+    return observerCount;
+  }
+
+  /** Returns the number of positions watched by at least one observer. */
+  public int observedCount() {
+    return heads.size();
+  }
+
+  /** Drops every indexed observer. */
+  public void clear() {
+    heads.clear();
+    entryCount = 0;
+    freeEntry = NO_ENTRY;
+    observerCount = 0;
+  }
+
+  private static int compareBlockOrder(long a, long b) {
+    int result = Integer.compare(BlockPos.unpackY(a), BlockPos.unpackY(b));
+    if (result != 0) {
+      return result;
+    }
+    result = Integer.compare(BlockPos.unpackZ(a), BlockPos.unpackZ(b));
+    return result != 0 ? result : Integer.compare(BlockPos.unpackX(a), BlockPos.unpackX(b));
+  }
+
+  private int allocateEntry() {
+    if (freeEntry != NO_ENTRY) {
+      int entry = freeEntry;
+      freeEntry = entryNext[entry];
+      return entry;
+    }
+    if (entryCount == entryObservers.length) {
+      entryObservers = Arrays.copyOf(entryObservers, entryCount * 2);
+      entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+    }
+    return entryCount++;
+  }
+}
@@ -1,6 +1,7 @@
 package dev.fastquartz.engine.world;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,14 @@ public final class ShadowWorld {
           .thenComparingInt(SectionPos::x);
 
   private final Delegate delegate;
+  private final ContainerSignalCache containerSignals;
+  private ObserverIndex observerIndex;
+  private ObserverIndex.Listener observerListener;
+  private long[] changedKeys = new long[0];
+  private int[] changedOld = new int[0];
+  private int[] changedNew = new int[0];
+  private int changedCount;
+  private long[] observerScratch = new long[6];
   private final NavigableMap<SectionPos, SectionChanges> sectionChanges =
       new TreeMap<>(SECTION_ORDER);
   private final List<ScheduledTick> scheduledTicks = new ArrayList<>();
@@ -33,6 +42,35 @@ public final class ShadowWorld {
 
   public ShadowWorld(Delegate delegate) {
     this.delegate = Objects.requireNonNull(delegate, "delegate");
+    this.containerSignals = null;
+  }
+
+  /**
+   * Creates an overlay whose container reads go through a persistent {@code containerSignals}
+   * cache. Committed block writes invalidate the cache at their positions; inventory changes must
+   * be reported to the cache by the integration.
+   */
+  public ShadowWorld(Delegate delegate, ContainerSignalCache containerSignals) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate");
+    this.containerSignals = Objects.requireNonNull(containerSignals, "containerSignals");
+  }
+
+  /**
+   * Routes committed writes through {@code index}. Every write updates the index (observers placed,
+   * removed or turned), and once all writes are applied {@code listener} is told about each change
+   * to a block that an observer faces in the final index. Blocks nobody observes cost one hash
+   * lookup.
+   */
+  public void enableObserverFanOut(ObserverIndex index, ObserverIndex.Listener listener) {
+    this.observerIndex = Objects.requireNonNull(index, "index");
+    this.observerListener = Objects.requireNonNull(listener, "listener");
+  }
+
+  /** Stops consulting the observer index at commit. */
+  public void disableObserverFanOut() {
+    this.observerIndex = null;
+    this.observerListener = null;
+    this.changedCount = 0;
   }
 
   /** Returns the block state bits at the supplied position. */
@@ -79,6 +117,63 @@ public final class ShadowWorld {
     changes.put(localIndex, stateBits);
   }
 
+  /**
+   * Rewrites many blocks of one section in a single pass.
+   *
+   * <p>For each of the first {@code count} entries the block at {@code localIndices[i]} (packed
+   * {@code y << 8 | z << 4 | x} inside the section) is read through the overlay and replaced by
+   * {@code updater.update(current, values[i])}. Writes follow {@link #setBlockStateBits} semantics,
+   * but the section's buffered changes are looked up once instead of per block. Sorted indices keep
+   * insertion into the section buffer append-only.
+   */
+  public void updateSection(
+      int sectionX,
+      int sectionY,
+      int sectionZ,
+      int[] localIndices,
+      int[] values,
+      int count,
+      StateUpdater updater) {
+    Objects.requireNonNull(localIndices, "localIndices");
+    Objects.requireNonNull(values, "values");
+    Objects.requireNonNull(updater, "updater");
+    if (count < 0 || count > localIndices.length || count > values.length) {
+      throw new IllegalArgumentException("count " + count + " out of bounds for supplied arrays");
+    }
+    SectionPos section = new SectionPos(sectionX, sectionY, sectionZ);
+    SectionChanges changes = sectionChanges.get(section);
+    for (int i = 0; i < count; i++) {
+      int localIndex = localIndices[i];
+      if (localIndex < 0 || localIndex >= SECTION_SIZE * SECTION_SIZE * SECTION_SIZE) {
+        throw new IllegalArgumentException("localIndex " + localIndex + " outside section");
+      }
+      int overlayIndex = changes != null ? changes.indexOf(localIndex) : -1;
+      int current =
+          overlayIndex >= 0
+              ? changes.stateBitsAt(overlayIndex)
+              : delegate.getBlockStateBits(toBlockPos(section, localIndex));
+      int updated = updater.update(current, values[i]);
+      if (updated == current) {
+        continue;
+      }
+      if (overlayIndex >= 0) {
+        int baseState = delegate.getBlockStateBits(toBlockPos(section, localIndex));
+        if (updated == baseState) {
+          changes.removeAt(overlayIndex);
+          continue;
+        }
+      }
+      if (changes == null) {
+        changes = new SectionChanges();
+        sectionChanges.put(section, changes);
+      }
+      changes.put(localIndex, updated);
+    }
+    if (changes != null && changes.isEmpty()) {
+      sectionChanges.remove(section);
+    }
+  }
+
   /** Records a neighbour notification to be delivered at commit time. */
   public void markNeighborChanged(BlockPos pos, BlockPos source) {
     Objects.requireNonNull(pos, "pos");
@@ -95,10 +190,23 @@ public final class ShadowWorld {
   /** Returns the cached comparator/container signal for the supplied position. */
   public int readContainerSignal(BlockPos pos) {
     Objects.requireNonNull(pos, "pos");
-    return delegate.readContainerSignal(pos);
+    if (containerSignals == null) {
+      return delegate.readContainerSignal(pos);
+    }
+    long key = pos.asLong();
+    int cached = containerSignals.get(key);
+    if (cached != ContainerSignalCache.ABSENT) {
+      return cached;
+    }
+    int signal = delegate.readContainerSignal(pos);
+    containerSignals.put(key, signal);
+    return signal;
   }
 
-  /** Applies all buffered mutations to the delegate in deterministic order. */
+  /**
+   * Applies all buffered mutations to the delegate in deterministic order: block writes, observer
+   * fan-out (when enabled), scheduled ticks, then neighbour notifications.
+   */
   public void commit() {
     for (Map.Entry<SectionPos, SectionChanges> entry : sectionChanges.entrySet()) {
       SectionPos section = entry.getKey();
@@ -107,10 +215,18 @@ public final class ShadowWorld {
         int localIndex = changes.localIndexAt(i);
         int stateBits = changes.stateBitsAt(i);
         BlockPos absolutePos = toBlockPos(section, localIndex);
+        int oldStateBits = observerIndex != null ? delegate.getBlockStateBits(absolutePos) : 0;
         delegate.setBlockStateBits(absolutePos, stateBits);
+        if (containerSignals != null) {
+          containerSignals.invalidate(absolutePos.asLong());
+        }
+        if (observerIndex != null) {
+          recordChange(absolutePos.asLong(), oldStateBits, stateBits);
+        }
       }
     }
     sectionChanges.clear();
+    fanOutObservedChanges();
 
     if (!scheduledTicks.isEmpty()) {
       for (ScheduledTick tick : scheduledTicks) {
@@ -127,6 +243,43 @@ public final class ShadowWorld {
     }
   }
 
+  // Every change is kept, not only those observed so far: an observer placed or turned later in the
+  // same commit (e.g. in a section committed after the block it faces) must still see it.
+  private void recordChange(long key, int oldStateBits, int newStateBits) {
+    observerIndex.onBlockChanged(key, oldStateBits, newStateBits);
+    if (changedCount == changedKeys.length) {
+      int capacity = Math.max(16, changedCount * 2);
+      changedKeys = Arrays.copyOf(changedKeys, capacity);
+      changedOld = Arrays.copyOf(changedOld, capacity);
+      changedNew = Arrays.copyOf(changedNew, capacity);
+    }
+    changedKeys[changedCount] = key;
+    changedOld[changedCount] = oldStateBits;
+    changedNew[changedCount] = newStateBits;
+    changedCount++;
+  }
+
+  // Observers are resolved against the final index, once every write of the commit is applied.
+  private void fanOutObservedChanges() {
+    for (int i = 0; i < changedCount; i++) {
+      long key = changedKeys[i];
+      if (!observerIndex.isObserved(key)) {
+        continue;
+      }
+      int count = observerIndex.observersOf(key, observerScratch);
+      if (count > observerScratch.length) {
+        observerScratch = new long[count];
+        count = observerIndex.observersOf(key, observerScratch);
+      }
+      BlockPos observedPos = BlockPos.fromLong(key);
+      for (int j = 0; j < count; j++) {
+        observerListener.observedChanged(
+            BlockPos.fromLong(observerScratch[j]), observedPos, changedOld[i], changedNew[i]);
+      }
+    }
+    changedCount = 0;
+  }
+
   private static SectionPos toSectionPos(BlockPos pos) {
     int sectionX = Math.floorDiv(pos.x(), SECTION_SIZE);
     int sectionY = Math.floorDiv(pos.y(), SECTION_SIZE);
@@ -226,6 +379,12 @@ public final class ShadowWorld {
     // Record used to flush neighbour updates.
   }
 
+  /** Computes the new state of a block from its current state and a caller-supplied value. */
+  @FunctionalInterface
+  public interface StateUpdater {
+    int update(int stateBits, int value);
+  }
+
   /** Backing world interface used by the overlay. */
   public interface Delegate {
     int getBlockStateBits(BlockPos pos);
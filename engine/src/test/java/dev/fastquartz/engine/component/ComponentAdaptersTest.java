@@ -1,6 +1,7 @@
 package dev.fastquartz.engine.component;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -51,6 +52,36 @@ class ComponentAdaptersTest {
         world.neighbourNotifications);
   }
 
+  @Test
+  void adaptersShareOneRetargetedWorldAccessPerContext() {
+    RecordingWorld world = new RecordingWorld();
+    ShadowWorld shadowWorld = new ShadowWorld(world);
+    ComponentContext context =
+        new ComponentContext(
+            shadowWorld, new ContainerSnapshotRegistry(), new ObserverPulseTracker(), 10L);
+    BlockPos first = BlockPos.of(0, 64, 0);
+    BlockPos second = BlockPos.of(4, 64, 0);
+    BlockPos neighbour = BlockPos.of(2, 64, 0);
+    List<ComponentWorldAccess> handles = new ArrayList<>();
+
+    ComponentAdapters.ComponentAdapter adapter =
+        ComponentAdapters.standard(
+            (access, pos, stateBits) -> {
+              handles.add(access);
+              assertEquals(pos, access.defaultSource());
+              access.markNeighborChanged(neighbour);
+            });
+    adapter.apply(context, first, 0);
+    adapter.apply(context, second, 0);
+    shadowWorld.commit();
+
+    assertEquals(2, handles.size());
+    assertSame(handles.get(0), handles.get(1));
+    assertEquals(
+        List.of(new NeighborCall(neighbour, first), new NeighborCall(neighbour, second)),
+        world.neighbourNotifications);
+  }
+
   @Test
   void comparatorAdapterSnapshotsContainersOnce() {
     RecordingWorld world = new RecordingWorld();
@@ -0,0 +1,129 @@
+package dev.fastquartz.engine.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.fastquartz.engine.testing.ComponentFixtures;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ComponentDispatcherTest {
+  // Test encoding: bits 8-9 hold the component type, the low byte is free.
+  private static final ComponentDispatcher.TypeResolver RESOLVER =
+      ComponentDispatcher.TypeResolver.bitField(8, 2);
+
+  @Test
+  void eventsRunGroupedByTypeInEnqueueOrder() {
+    List<String> calls = new ArrayList<>();
+    ComponentDispatcher dispatcher =
+        new ComponentDispatcher(4, RESOLVER)
+            .register(1, (context, pos, bits) -> calls.add("torch@" + pos.x()))
+            .register(2, (context, pos, bits) -> calls.add("repeater@" + pos.x()));
+
+    assertTrue(dispatcher.enqueue(BlockPos.of(0, 0, 0), 0x200));
+    assertTrue(dispatcher.enqueue(BlockPos.of(1, 0, 0), 0x100));
+    assertTrue(dispatcher.enqueue(BlockPos.of(2, 0, 0), 0x205));
+    assertTrue(dispatcher.enqueue(BlockPos.of(3, 0, 0), 0x10F));
+    assertFalse(dispatcher.enqueue(BlockPos.of(4, 0, 0), 0x300), "type 3 has no adapter");
+    assertFalse(dispatcher.enqueue(BlockPos.of(5, 0, 0), 0x000), "type 0 has no adapter");
+    assertEquals(4, dispatcher.pendingEvents());
+
+    dispatcher.dispatch(ComponentFixtures.emptyContext());
+
+    assertEquals(List.of("torch@1", "torch@3", "repeater@0", "repeater@2"), calls);
+    assertEquals(0, dispatcher.pendingEvents());
+  }
+
+  @Test
+  void eventsQueuedDuringDispatchRunInTheSameCall() {
+    List<String> calls = new ArrayList<>();
+    ComponentDispatcher dispatcher = new ComponentDispatcher(4, RESOLVER);
+    dispatcher
+        .register(
+            1,
+            (context, pos, bits) -> {
+              calls.add("a@" + pos.x());
+              if (pos.x() < 40) {
+                dispatcher.enqueue(BlockPos.of(pos.x() + 20, 0, 0), 0x100);
+              }
+            })
+        .register(
+            2,
+            (context, pos, bits) -> {
+              calls.add("b@" + pos.x());
+              dispatcher.enqueue(BlockPos.of(pos.x() + 1, 0, 0), 0x100);
+            });
+    dispatcher.enqueue(BlockPos.of(0, 0, 0), 0x100);
+    dispatcher.enqueue(BlockPos.of(10, 0, 0), 0x200);
+
+    dispatcher.dispatch(ComponentFixtures.emptyContext());
+
+    assertEquals(List.of("a@0", "a@20", "a@40", "b@10", "a@11", "a@31", "a@51"), calls);
+    assertEquals(0, dispatcher.pendingEvents());
+  }
+
+  @Test
+  void throwingAdapterLeavesTheRemainingEventsQueued() {
+    List<String> calls = new ArrayList<>();
+    boolean[] fail = {true};
+    ComponentDispatcher dispatcher =
+        new ComponentDispatcher(4, RESOLVER)
+            .register(
+                1,
+                (context, pos, bits) -> {
+                  if (pos.x() == 1 && fail[0]) {
+                    throw new IllegalStateException("adapter failed");
+                  }
+                  calls.add("torch@" + pos.x());
+                })
+            .register(2, (context, pos, bits) -> calls.add("repeater@" + pos.x()));
+    for (int x = 0; x < 4; x++) {
+      dispatcher.enqueue(BlockPos.of(x, 0, 0), 0x100);
+    }
+    dispatcher.enqueue(BlockPos.of(9, 0, 0), 0x200);
+
+    assertThrows(
+        IllegalStateException.class, () -> dispatcher.dispatch(ComponentFixtures.emptyContext()));
+    assertEquals(List.of("torch@0"), calls);
+    assertEquals(3, dispatcher.pendingEvents());
+
+    fail[0] = false;
+    dispatcher.dispatch(ComponentFixtures.emptyContext());
+    assertEquals(List.of("torch@0", "torch@2", "torch@3", "repeater@9"), calls);
+    assertEquals(0, dispatcher.pendingEvents());
+  }
+
+  @Test
+  void queuesGrowAndClear() {
+    int[] calls = new int[1];
+    ComponentDispatcher dispatcher =
+        new ComponentDispatcher(1, bits -> bits == 7 ? 0 : ComponentDispatcher.NO_TYPE)
+            .register(0, (context, pos, bits) -> calls[0]++);
+    for (int i = 0; i < 1000; i++) {
+      dispatcher.enqueue(BlockPos.of(i, 0, 0), 7);
+    }
+    dispatcher.clear();
+    dispatcher.dispatch(ComponentFixtures.emptyContext());
+    assertEquals(0, calls[0]);
+
+    for (int i = 0; i < 1000; i++) {
+      dispatcher.enqueue(BlockPos.of(i, 0, 0), i % 2 == 0 ? 7 : 8);
+    }
+    dispatcher.dispatch(ComponentFixtures.emptyContext());
+    assertEquals(500, calls[0]);
+  }
+
+  @Test
+  void rejectsOutOfRangeTypes() {
+    ComponentDispatcher dispatcher = new ComponentDispatcher(2, bits -> bits);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> dispatcher.register(2, ComponentFixtures.ignoringAdapter()));
+    assertThrows(IllegalArgumentException.class, () -> dispatcher.enqueue(BlockPos.of(0, 0, 0), 5));
+    assertThrows(IllegalArgumentException.class, () -> new ComponentDispatcher(0, bits -> 0));
+  }
+}
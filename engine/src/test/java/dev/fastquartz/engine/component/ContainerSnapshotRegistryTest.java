@@ -0,0 +1,52 @@
+package dev.fastquartz.engine.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ContainerSnapshotRegistryTest {
+  @Test
+  void snapshotsAreStableUntilCleared() {
+    ContainerSnapshotRegistry registry = new ContainerSnapshotRegistry();
+    AtomicInteger reads = new AtomicInteger();
+    ContainerSnapshotRegistry.ContainerReader reader = (x, y, z) -> reads.incrementAndGet();
+
+    assertEquals(1, registry.snapshot(3, 64, -7, reader));
+    assertEquals(1, registry.snapshot(3, 64, -7, reader));
+    assertEquals(1, registry.snapshot(BlockPos.of(3, 64, -7), () -> 99));
+    assertEquals(2, registry.snapshot(-3, 64, 7, reader));
+    assertEquals(2, registry.size());
+
+    registry.clear();
+    assertEquals(0, registry.size());
+    assertEquals(3, registry.snapshot(3, 64, -7, reader));
+    assertEquals(3, reads.get());
+  }
+
+  @Test
+  void manyPositionsSurviveGrowthAcrossGenerations() {
+    ContainerSnapshotRegistry registry = new ContainerSnapshotRegistry();
+    for (int generation = 0; generation < 4; generation++) {
+      int offset = generation * 1000;
+      for (int i = 0; i < 5000; i++) {
+        int value = i + offset;
+        assertEquals(value, registry.snapshot(i, i % 300 - 64, -i, (x, y, z) -> value));
+      }
+      for (int i = 0; i < 5000; i++) {
+        assertEquals(i + offset, registry.snapshot(i, i % 300 - 64, -i, (x, y, z) -> -1));
+      }
+      assertEquals(5000, registry.size());
+      registry.clear();
+    }
+  }
+
+  @Test
+  void rejectsNullReaders() {
+    ContainerSnapshotRegistry registry = new ContainerSnapshotRegistry();
+    assertThrows(NullPointerException.class, () -> registry.snapshot(0, 0, 0, null));
+    assertThrows(NullPointerException.class, () -> registry.snapshot(BlockPos.of(0, 0, 0), null));
+  }
+}
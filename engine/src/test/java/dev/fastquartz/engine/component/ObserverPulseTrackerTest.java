@@ -0,0 +1,44 @@
+package dev.fastquartz.engine.component;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ObserverPulseTrackerTest {
+  @Test
+  void pairsEmitOncePerTick() {
+    ObserverPulseTracker tracker = new ObserverPulseTracker();
+    BlockPos observer = BlockPos.of(0, 64, 0);
+    BlockPos north = BlockPos.of(0, 64, -1);
+    BlockPos south = BlockPos.of(0, 64, 1);
+
+    assertTrue(tracker.shouldEmit(5L, observer, north));
+    assertFalse(tracker.shouldEmit(5L, observer, north));
+    assertTrue(tracker.shouldEmit(5L, observer, south));
+    assertTrue(tracker.shouldEmit(5L, north, observer));
+    assertTrue(tracker.shouldEmit(6L, observer, north));
+    assertFalse(tracker.shouldEmit(6L, observer.asLong(), north.asLong()));
+  }
+
+  @Test
+  void matchesASetAcrossManyTicksAndGrowth() {
+    Random random = new Random(0x0B5EL);
+    ObserverPulseTracker tracker = new ObserverPulseTracker();
+    for (long tick = 0; tick < 50; tick++) {
+      Set<String> emitted = new HashSet<>();
+      int calls = 1 + random.nextInt(4000);
+      for (int i = 0; i < calls; i++) {
+        BlockPos observer = BlockPos.of(random.nextInt(32), 64, random.nextInt(32));
+        BlockPos source = BlockPos.of(observer.x() + random.nextInt(3) - 1, 64, observer.z());
+        boolean expected = emitted.add(observer + "->" + source);
+        assertEquals(expected, tracker.shouldEmit(tick, observer, source), "tick " + tick);
+      }
+    }
+  }
+}
@@ -3,8 +3,11 @@ package dev.fastquartz.engine.dust;
 import static org.junit.jupiter.api.Assertions.*;
 
 import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -99,6 +102,403 @@ class CpuDustPropagatorTest {
         () -> propagator.propagate(List.of(DustPropagator.Source.of(-1, 5))));
   }
 
+  @Test
+  void loweringOneOfTwoSourcesReseedsFromRemainingSource() {
+    DustCsrGraph graph = lineGraph();
+    propagator.reset(graph);
+
+    propagator.propagate(List.of(DustPropagator.Source.of(0, 15), DustPropagator.Source.of(2, 10)));
+    assertEquals(13, propagator.powerLevel(2));
+
+    int[] changed = propagator.propagate(List.of(DustPropagator.Source.of(0, 0)));
+    assertArrayEquals(new int[] {0, 1, 2}, changed);
+    assertEquals(8, propagator.powerLevel(0));
+    assertEquals(9, propagator.powerLevel(1));
+    assertEquals(10, propagator.powerLevel(2));
+  }
+
+  @Test
+  void primitivePropagateWritesChangesIntoReusableBuffer() {
+    DustCsrGraph graph = lineGraph();
+    propagator.reset(graph);
+    DustChangeBuffer changes = new DustChangeBuffer(1);
+    int[] nodeIds = {0, 2};
+    int[] levels = {15, 0};
+
+    assertEquals(3, propagator.propagate(nodeIds, levels, 1, changes));
+    assertEquals(3, changes.size());
+    for (int i = 0; i < changes.size(); i++) {
+      assertEquals(i, changes.nodeId(i));
+      assertEquals(0, changes.oldLevel(i));
+      assertEquals(15 - i, changes.newLevel(i));
+    }
+
+    levels[0] = 12;
+    assertEquals(3, propagator.propagate(nodeIds, levels, 1, changes));
+    assertArrayEquals(new int[] {0, 1, 2}, changes.nodeIdsToArray());
+    assertEquals(15, changes.oldLevel(0));
+    assertEquals(12, changes.newLevel(0));
+    assertEquals(13, changes.oldLevel(2));
+    assertEquals(10, changes.newLevel(2));
+
+    assertEquals(0, propagator.propagate(nodeIds, levels, 2, changes));
+    assertTrue(changes.isEmpty());
+    assertEquals(10, propagator.powerLevel(2));
+  }
+
+  @Test
+  void primitivePropagateRejectsInvalidInput() {
+    DustCsrGraph graph = lineGraph();
+    propagator.reset(graph);
+    DustChangeBuffer changes = new DustChangeBuffer();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> propagator.propagate(new int[] {0}, new int[] {15}, 2, changes));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> propagator.propagate(new int[] {5}, new int[] {12}, 1, changes));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> propagator.propagate(new int[] {0}, new int[] {16}, 1, changes));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> propagator.propagate(new int[] {-1}, new int[] {5}, 1, changes));
+  }
+
+  @Test
+  void preservingResetOnlyResettlesChangedIslands() {
+    DustCsrBuilder before = twoBusBuilder();
+    DustCsrGraph oldGraph = before.build();
+    propagator.reset(oldGraph);
+    int leverA = oldGraph.nodeForPort(new DustPort(1, 0)).orElseThrow();
+    int leverB = oldGraph.nodeForPort(new DustPort(2, 0)).orElseThrow();
+    propagator.propagate(
+        List.of(DustPropagator.Source.of(leverA, 15), DustPropagator.Source.of(leverB, 12)));
+
+    // Extend bus B by a branch; bus A is untouched.
+    DustCsrGraph newGraph =
+        twoBusBuilder().addDust(BlockPos.of(3, 0, 11)).addDust(BlockPos.of(3, 0, 12)).build();
+    int[] changed = propagator.resetPreservingState(newGraph);
+
+    CpuDustPropagator fresh = new CpuDustPropagator();
+    fresh.reset(newGraph);
+    fresh.propagate(
+        List.of(
+            DustPropagator.Source.of(newGraph.nodeForPort(new DustPort(1, 0)).orElseThrow(), 15),
+            DustPropagator.Source.of(newGraph.nodeForPort(new DustPort(2, 0)).orElseThrow(), 12)));
+    for (int nodeId = 0; nodeId < newGraph.nodeCount(); nodeId++) {
+      assertEquals(fresh.powerLevel(nodeId), propagator.powerLevel(nodeId));
+    }
+
+    assertTrue(changed.length > 0);
+    int busBIsland = newGraph.islandId(newGraph.nodeForPort(new DustPort(2, 0)).orElseThrow());
+    for (int nodeId : changed) {
+      assertEquals(busBIsland, newGraph.islandId(nodeId), "only the rewired island re-settles");
+    }
+
+    // Rebuilding an identical graph keeps every level and reports nothing.
+    DustCsrGraph identical =
+        twoBusBuilder().addDust(BlockPos.of(3, 0, 11)).addDust(BlockPos.of(3, 0, 12)).build();
+    assertEquals(0, propagator.resetPreservingState(identical).length);
+    for (int nodeId = 0; nodeId < identical.nodeCount(); nodeId++) {
+      assertEquals(fresh.powerLevel(nodeId), propagator.powerLevel(nodeId));
+    }
+  }
+
+  @Test
+  void incrementalSettleMatchesFullSettle() {
+    Random random = new Random(0x5EEDL);
+    for (int trial = 0; trial < 40; trial++) {
+      DustCsrGraph graph = randomGraph(random);
+      CpuDustPropagator reference = new CpuDustPropagator(false);
+      reference.reset(graph);
+      propagator.reset(graph);
+
+      for (int step = 0; step < 60; step++) {
+        List<DustPropagator.Source> updates = new ArrayList<>();
+        int updateCount = 1 + random.nextInt(4);
+        for (int i = 0; i < updateCount; i++) {
+          int nodeId = random.nextInt(graph.nodeCount());
+          int level = random.nextBoolean() ? 0 : 1 + random.nextInt(DustPropagator.MAX_POWER_LEVEL);
+          updates.add(DustPropagator.Source.of(nodeId, level));
+        }
+
+        int[] expected = reference.propagate(updates);
+        int[] actual = propagator.propagate(updates);
+        assertArrayEquals(expected, actual, "changed nodes diverged at trial " + trial);
+        for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+          assertEquals(
+              reference.powerLevel(nodeId),
+              propagator.powerLevel(nodeId),
+              "node " + nodeId + " diverged at trial " + trial);
+        }
+      }
+    }
+  }
+
+  @Test
+  void portsAttachedToOneNodeAggregateByMax() {
+    DustPort torch = new DustPort(1, 0);
+    DustPort lever = new DustPort(2, 0);
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = 0; x < 4; x++) {
+      builder.addDust(BlockPos.of(x, 0, 0));
+    }
+    builder.attachPort(torch, BlockPos.of(0, 0, 0));
+    builder.attachPort(lever, BlockPos.of(0, 0, 0));
+    DustCsrGraph graph = builder.build();
+    int node = graph.nodeForPort(torch).orElseThrow();
+    propagator.reset(graph);
+
+    propagator.propagatePorts(List.of(DustPropagator.PortSource.of(torch, 15)));
+    assertEquals(15, propagator.powerLevel(node));
+    assertArrayEquals(
+        new int[0], propagator.propagatePorts(List.of(DustPropagator.PortSource.of(lever, 9))));
+
+    DustChangeBuffer changes = new DustChangeBuffer();
+    int count =
+        propagator.propagatePorts(
+            new int[] {propagator.portIndex(torch)}, new int[] {0}, 1, changes);
+    assertTrue(count > 0);
+    assertEquals(9, propagator.powerLevel(node));
+
+    propagator.propagate(List.of(DustPropagator.Source.of(node, 12)));
+    assertEquals(12, propagator.powerLevel(node));
+    propagator.propagatePorts(List.of(DustPropagator.PortSource.of(lever, 0)));
+    assertEquals(12, propagator.powerLevel(node));
+
+    assertEquals(-1, propagator.portIndex(new DustPort(9, 0)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            propagator.propagatePorts(
+                List.of(DustPropagator.PortSource.of(new DustPort(9, 0), 1))));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> propagator.propagatePorts(new int[] {7}, new int[] {1}, 1, changes));
+  }
+
+  @Test
+  void preservingResetFollowsPortsToTheirNewNode() {
+    DustCsrBuilder builder = twoBusBuilder();
+    DustCsrGraph before = builder.build();
+    propagator.reset(before);
+    propagator.propagatePorts(List.of(DustPropagator.PortSource.of(new DustPort(1, 0), 15)));
+
+    DustCsrBuilder moved = new DustCsrBuilder();
+    for (int x = 0; x < 8; x++) {
+      moved.addDust(BlockPos.of(x, 0, 0));
+      moved.addDust(BlockPos.of(x, 0, 10));
+    }
+    moved.attachPort(new DustPort(1, 0), BlockPos.of(7, 0, 0));
+    moved.attachPort(new DustPort(2, 0), BlockPos.of(0, 0, 10));
+    DustCsrGraph after = moved.build();
+    propagator.resetPreservingState(after);
+
+    CpuDustPropagator reference = new CpuDustPropagator();
+    reference.reset(after);
+    reference.propagatePorts(List.of(DustPropagator.PortSource.of(new DustPort(1, 0), 15)));
+    for (int node = 0; node < after.nodeCount(); node++) {
+      assertEquals(reference.powerLevel(node), propagator.powerLevel(node));
+    }
+  }
+
+  @Test
+  void settleCacheReplaysRepeatingClockStates() {
+    DustCsrGraph graph = twoBusBuilder().build();
+    int clock = graph.nodeForPort(new DustPort(1, 0)).orElseThrow();
+    CpuDustPropagator reference = new CpuDustPropagator();
+    reference.reset(graph);
+    propagator.reset(graph);
+    propagator.enableSettleCache(4, 1 << 16);
+
+    for (int tick = 0; tick < 10; tick++) {
+      List<DustPropagator.Source> update =
+          List.of(DustPropagator.Source.of(clock, tick % 2 == 0 ? 15 : 0));
+      assertArrayEquals(reference.propagate(update), propagator.propagate(update));
+    }
+
+    CpuDustPropagator.SettleCacheStats stats = propagator.settleCacheStats();
+    assertEquals(2, stats.misses());
+    assertEquals(8, stats.hits());
+    assertEquals(0.8, stats.hitRate(), 1e-9);
+    assertTrue(stats.bytes() > 0);
+  }
+
+  @Test
+  void settleCacheIsSharedBetweenTemplateCopies() {
+    DustCsrBuilder builder = new DustCsrBuilder().deduplicateIslands(true);
+    for (int copy = 0; copy < 6; copy++) {
+      for (int x = 0; x < 8; x++) {
+        builder.addDust(BlockPos.of(copy * 20 + x, 0, 0));
+      }
+      builder.attachPort(new DustPort(copy, 0), BlockPos.of(copy * 20, 0, 0));
+    }
+    DustCsrGraph graph = builder.build();
+    assertEquals(1, graph.templateCount());
+    CpuDustPropagator reference = new CpuDustPropagator();
+    reference.reset(graph);
+    propagator.reset(graph);
+    propagator.enableSettleCache(2, 1 << 16);
+
+    for (int copy = 0; copy < 6; copy++) {
+      for (int level : new int[] {15, 0}) {
+        List<DustPropagator.PortSource> update =
+            List.of(DustPropagator.PortSource.of(new DustPort(copy, 0), level));
+        assertArrayEquals(reference.propagatePorts(update), propagator.propagatePorts(update));
+      }
+    }
+    for (int node = 0; node < graph.nodeCount(); node++) {
+      assertEquals(reference.powerLevel(node), propagator.powerLevel(node));
+    }
+
+    // Only the first copy settles; every other copy replays the shared template entries.
+    CpuDustPropagator.SettleCacheStats stats = propagator.settleCacheStats();
+    assertEquals(2, stats.misses());
+    assertEquals(10, stats.hits());
+  }
+
+  @Test
+  void settleCacheMatchesUncachedSettleUnderEviction() {
+    Random random = new Random(0xCAC4EL);
+    long hits = 0;
+    for (int trial = 0; trial < 30; trial++) {
+      DustCsrGraph graph = randomGraph(random);
+      CpuDustPropagator reference = new CpuDustPropagator(false);
+      reference.reset(graph);
+      propagator.reset(graph);
+      propagator.enableSettleCache(1 + random.nextInt(3), 256 + random.nextInt(4096));
+
+      int[] pool = new int[3];
+      for (int i = 0; i < pool.length; i++) {
+        pool[i] = random.nextInt(graph.nodeCount());
+      }
+      for (int step = 0; step < 80; step++) {
+        int nodeId = pool[random.nextInt(pool.length)];
+        List<DustPropagator.Source> update =
+            List.of(DustPropagator.Source.of(nodeId, random.nextBoolean() ? 0 : 15));
+        assertArrayEquals(
+            reference.propagate(update),
+            propagator.propagate(update),
+            "changed nodes diverged at trial " + trial);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+          assertEquals(
+              reference.powerLevel(node),
+              propagator.powerLevel(node),
+              "node " + node + " diverged at trial " + trial);
+        }
+      }
+      hits += propagator.settleCacheStats().hits();
+    }
+    assertTrue(hits > 0);
+  }
+
+  @Test
+  void partitionedSettleOfGiantIslandMatchesSequentialSettle() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int z = 0; z < 24; z++) {
+      for (int x = 0; x < 24; x++) {
+        builder.addDust(BlockPos.of(x, 0, z));
+      }
+    }
+    DustCsrGraph graph = builder.build();
+    assertTrue(graph.nodeCount() > 200, "graph should be one giant island");
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      CpuDustPropagator reference = new CpuDustPropagator(false);
+      CpuDustPropagator full = new CpuDustPropagator(false);
+      reference.reset(graph);
+      full.reset(graph);
+      propagator.reset(graph);
+      full.enableParallelSettle(pool, 64, 40);
+      propagator.enableParallelSettle(pool, 64, 40);
+
+      Random random = new Random(0x9A27L);
+      for (int step = 0; step < 40; step++) {
+        List<DustPropagator.Source> updates = new ArrayList<>();
+        int updateCount = 1 + random.nextInt(step % 2 == 0 ? 3 : 30);
+        for (int i = 0; i < updateCount; i++) {
+          int level = random.nextBoolean() ? 0 : 1 + random.nextInt(DustPropagator.MAX_POWER_LEVEL);
+          updates.add(DustPropagator.Source.of(random.nextInt(graph.nodeCount()), level));
+        }
+        int[] expected = reference.propagate(updates);
+        assertArrayEquals(expected, full.propagate(updates), "step " + step);
+        assertArrayEquals(expected, propagator.propagate(updates), "step " + step);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+          assertEquals(reference.powerLevel(node), full.powerLevel(node));
+          assertEquals(reference.powerLevel(node), propagator.powerLevel(node));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void frontierSettleMatchesBucketSettle() {
+    Random random = new Random(0xF207L);
+    for (int trial = 0; trial < 30; trial++) {
+      DustCsrGraph graph = randomGraph(random);
+      CpuDustPropagator reference = new CpuDustPropagator(false);
+      CpuDustPropagator frontierFull = new CpuDustPropagator(false, 1);
+      CpuDustPropagator frontier = new CpuDustPropagator(true, 1);
+      reference.reset(graph);
+      frontierFull.reset(graph);
+      frontier.reset(graph);
+
+      for (int step = 0; step < 60; step++) {
+        List<DustPropagator.Source> updates = new ArrayList<>();
+        int updateCount = 1 + random.nextInt(6);
+        for (int i = 0; i < updateCount; i++) {
+          int level = random.nextBoolean() ? 0 : 1 + random.nextInt(DustPropagator.MAX_POWER_LEVEL);
+          updates.add(DustPropagator.Source.of(random.nextInt(graph.nodeCount()), level));
+        }
+        int[] expected = reference.propagate(updates);
+        assertArrayEquals(expected, frontierFull.propagate(updates), "trial " + trial);
+        assertArrayEquals(expected, frontier.propagate(updates), "trial " + trial);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+          assertEquals(reference.powerLevel(node), frontierFull.powerLevel(node));
+          assertEquals(reference.powerLevel(node), frontier.powerLevel(node));
+        }
+      }
+    }
+  }
+
+  private static DustCsrBuilder twoBusBuilder() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = 0; x < 8; x++) {
+      builder.addDust(BlockPos.of(x, 0, 0));
+      builder.addDust(BlockPos.of(x, 0, 10));
+    }
+    builder.attachPort(new DustPort(1, 0), BlockPos.of(0, 0, 0));
+    builder.attachPort(new DustPort(2, 0), BlockPos.of(0, 0, 10));
+    return builder;
+  }
+
+  private static DustCsrGraph randomGraph(Random random) {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    int width = 6 + random.nextInt(12);
+    int depth = 6 + random.nextInt(12);
+    int componentId = 0;
+    for (int y = 0; y < 2; y++) {
+      for (int z = 0; z < depth; z++) {
+        for (int x = 0; x < width; x++) {
+          if (random.nextInt(100) >= 55) {
+            continue;
+          }
+          BlockPos pos = BlockPos.of(x, y, z);
+          builder.addDust(pos);
+          if (random.nextInt(10) == 0) {
+            builder.attachPort(new DustPort(componentId++, 0), pos);
+          }
+        }
+      }
+    }
+    builder.addDust(BlockPos.of(0, 0, 0));
+    return builder.build();
+  }
+
   private static DustCsrGraph lineGraph() {
     List<BlockPos> positions =
         List.of(BlockPos.of(0, 0, 0), BlockPos.of(1, 0, 0), BlockPos.of(2, 0, 0));
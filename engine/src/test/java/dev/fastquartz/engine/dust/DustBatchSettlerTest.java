@@ -0,0 +1,93 @@
+package dev.fastquartz.engine.dust;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DustBatchSettlerTest {
+
+  @Test
+  void batchMatchesSequentialSettlePerInstance() {
+    Random random = new Random(0xBA7C4L);
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int z = 0; z < 12; z++) {
+      for (int x = 0; x < 12; x++) {
+        if (random.nextInt(100) < 60) {
+          builder.addDust(BlockPos.of(x, 0, z));
+        }
+      }
+    }
+    builder.addDust(BlockPos.of(0, 0, 0));
+    DustCsrGraph graph = builder.build();
+
+    int instances = DustBatchSettler.BLOCK + 7;
+    int[][] sources = new int[instances][graph.nodeCount()];
+    for (int[] vector : sources) {
+      for (int i = 0; i < 4; i++) {
+        vector[random.nextInt(graph.nodeCount())] = 1 + random.nextInt(15);
+      }
+    }
+
+    assertMatchesPropagator(graph, sources);
+  }
+
+  @Test
+  void sourcesAtEitherEndOfSeparateLinesSettleLikeThePropagator() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = 0; x < 40; x++) {
+      builder.addDust(BlockPos.of(x, 0, 0));
+      builder.addDust(BlockPos.of(x, 0, 5));
+    }
+    DustCsrGraph graph = builder.build();
+    int last = graph.nodeCount() - 1;
+
+    int[][] sources = new int[4][graph.nodeCount()];
+    sources[0][0] = 15;
+    sources[1][last] = 15;
+    sources[2][0] = 15;
+    sources[2][last] = 9;
+    for (int node = 0; node <= last; node += 7) {
+      sources[3][node] = node % 16;
+    }
+
+    assertMatchesPropagator(graph, sources);
+  }
+
+  private static void assertMatchesPropagator(DustCsrGraph graph, int[][] sources) {
+    int instances = sources.length;
+    int[][] settled = new DustBatchSettler(graph).settle(sources);
+
+    assertEquals(instances, settled.length);
+    for (int instance = 0; instance < instances; instance++) {
+      CpuDustPropagator propagator = new CpuDustPropagator();
+      propagator.reset(graph);
+      List<DustPropagator.Source> updates = new ArrayList<>();
+      for (int node = 0; node < graph.nodeCount(); node++) {
+        updates.add(DustPropagator.Source.of(node, sources[instance][node]));
+      }
+      propagator.propagate(updates);
+      for (int node = 0; node < graph.nodeCount(); node++) {
+        assertEquals(
+            propagator.powerLevel(node),
+            settled[instance][node],
+            "instance " + instance + " node " + node);
+      }
+    }
+  }
+
+  @Test
+  void rejectsMalformedInstances() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    builder.addDust(BlockPos.of(0, 0, 0));
+    builder.addDust(BlockPos.of(1, 0, 0));
+    DustBatchSettler settler = new DustBatchSettler(builder.build());
+
+    assertEquals(0, settler.settle(new int[0][]).length);
+    assertThrows(IllegalArgumentException.class, () -> settler.settle(new int[][] {{1}}));
+    assertThrows(IllegalArgumentException.class, () -> settler.settle(new int[][] {{16, 0}}));
+  }
+}
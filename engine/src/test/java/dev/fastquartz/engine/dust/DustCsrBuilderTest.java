@@ -3,7 +3,10 @@ package dev.fastquartz.engine.dust;
 import static org.junit.jupiter.api.Assertions.*;
 
 import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class DustCsrBuilderTest {
@@ -79,6 +82,29 @@ class DustCsrBuilderTest {
     assertTrue(midEdges.stream().anyMatch(e -> e.targetNode() == endNode && e.weight() == 2));
   }
 
+  @Test
+  void tapsSplitStraightRunWithoutPorts() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = 0; x <= 4; x++) {
+      builder.addDust(BlockPos.of(x, 0, 0));
+    }
+    long untapped = builder.contentHash();
+    assertEquals(2, builder.build().nodeCount());
+
+    builder.addTap(BlockPos.of(2, 0, 0));
+    DustCsrGraph graph = builder.build();
+
+    assertNotEquals(untapped, builder.contentHash());
+    assertEquals(3, graph.nodeCount());
+    int tapNode = graph.nodeForPosition(BlockPos.of(2, 0, 0)).orElseThrow();
+    assertTrue(graph.portToNode().isEmpty());
+    assertEquals(2, graph.edgesFrom(tapNode).size());
+    assertTrue(graph.edgesFrom(tapNode).stream().allMatch(edge -> edge.weight() == 2));
+
+    builder.addTap(BlockPos.of(9, 0, 0));
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
   @Test
   void junctionProducesStarGraph() {
     DustCsrBuilder builder = new DustCsrBuilder();
@@ -134,4 +160,72 @@ class DustCsrBuilderTest {
 
     assertThrows(IllegalStateException.class, builder::build);
   }
+
+  @Test
+  void localityReorderingPreservesTopology() {
+    Random random = new Random(28L);
+    for (int trial = 0; trial < 10; trial++) {
+      List<BlockPos> dust = new ArrayList<>();
+      List<BlockPos> attachments = new ArrayList<>();
+      for (int z = 0; z < 24; z++) {
+        for (int x = 0; x < 24; x++) {
+          if (random.nextInt(100) < 60) {
+            BlockPos pos = BlockPos.of(x, 0, z);
+            dust.add(pos);
+            if (random.nextInt(8) == 0) {
+              attachments.add(pos);
+            }
+          }
+        }
+      }
+
+      DustCsrGraph plain = builderFor(dust, attachments).build();
+      DustCsrGraph reordered = builderFor(dust, attachments).reorderForLocality(true).build();
+
+      assertEquals(plain.nodeCount(), reordered.nodeCount());
+      assertEquals(plain.edgeCount(), reordered.edgeCount());
+      for (int nodeId = 0; nodeId < plain.nodeCount(); nodeId++) {
+        BlockPos pos = plain.nodePosition(nodeId);
+        int reorderedId = reordered.nodeForPosition(pos).orElseThrow();
+        assertEquals(pos, reordered.nodePosition(reorderedId));
+        assertEquals(positionedEdges(plain, nodeId), positionedEdges(reordered, reorderedId));
+      }
+      for (int i = 0; i < attachments.size(); i++) {
+        DustPort port = new DustPort(i, 0);
+        assertEquals(
+            plain.nodePosition(plain.nodeForPort(port).orElseThrow()),
+            reordered.nodePosition(reordered.nodeForPort(port).orElseThrow()));
+      }
+      for (int nodeId = 1; nodeId < reordered.nodeCount(); nodeId++) {
+        assertTrue(
+            reordered.islandId(nodeId - 1) <= reordered.islandId(nodeId),
+            "islands must occupy contiguous id ranges");
+      }
+    }
+  }
+
+  private static DustCsrBuilder builderFor(List<BlockPos> dust, List<BlockPos> attachments) {
+    DustCsrBuilder builder = new DustCsrBuilder().addAllDust(dust);
+    for (int i = 0; i < attachments.size(); i++) {
+      builder.attachPort(new DustPort(i, 0), attachments.get(i));
+    }
+    return builder;
+  }
+
+  private static List<PositionedEdge> positionedEdges(DustCsrGraph graph, int nodeId) {
+    List<PositionedEdge> edges = new ArrayList<>();
+    for (DustCsrGraph.Edge edge : graph.edgesFrom(nodeId)) {
+      edges.add(new PositionedEdge(graph.nodePosition(edge.targetNode()), edge.weight()));
+    }
+    edges.sort(PositionedEdge.ORDER);
+    return edges;
+  }
+
+  private record PositionedEdge(BlockPos target, int weight) {
+    private static final Comparator<PositionedEdge> ORDER =
+        Comparator.<PositionedEdge>comparingInt(edge -> edge.target().y())
+            .thenComparingInt(edge -> edge.target().z())
+            .thenComparingInt(edge -> edge.target().x())
+            .thenComparingInt(PositionedEdge::weight);
+  }
 }
@@ -0,0 +1,261 @@
+package dev.fastquartz.engine.dust;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class DustCsrGraphTest {
+  @Test
+  void packedStorageRoundTripsArrays() {
+    List<BlockPos> positions =
+        List.of(BlockPos.of(-30, -64, 7), BlockPos.of(270, 12, -5), BlockPos.of(0, 319, 1_000_000));
+    int[] islandIds = {0, 0, 3};
+    int[] edgeIndex = {0, 1, 2, 2};
+    int[] edgeTargets = {1, 0};
+    int[] edgeWeights = {300, 300};
+    Map<DustPort, Integer> portToNode = Map.of(new DustPort(4, 1), 2);
+    Map<BlockPos, Integer> positionToNode =
+        Map.of(positions.get(0), 0, positions.get(1), 1, positions.get(2), 2);
+
+    DustCsrGraph graph =
+        new DustCsrGraph(
+            positions, islandIds, edgeIndex, edgeTargets, edgeWeights, portToNode, positionToNode);
+
+    assertEquals(3, graph.nodeCount());
+    assertEquals(2, graph.edgeCount());
+    for (int nodeId = 0; nodeId < positions.size(); nodeId++) {
+      assertEquals(positions.get(nodeId), graph.nodePosition(nodeId));
+      assertEquals(islandIds[nodeId], graph.islandId(nodeId));
+      assertEquals(positions.get(nodeId).asLong(), graph.nodePositionKey(nodeId));
+    }
+    assertArrayEquals(edgeIndex, graph.edgeIndex());
+    assertArrayEquals(edgeTargets, graph.edgeTargets());
+    assertArrayEquals(edgeWeights, graph.edgeWeights());
+    assertEquals(List.of(new DustCsrGraph.Edge(0, 300)), graph.edgesFrom(1));
+    assertEquals(positionToNode, graph.positionToNode());
+    assertEquals(2, graph.nodeForPort(new DustPort(4, 1)).orElseThrow());
+  }
+
+  @Test
+  void positionIndexResolvesNodesWithoutBoxing() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = -8; x <= 8; x++) {
+      builder.addDust(BlockPos.of(x, 64, 0));
+      builder.addDust(BlockPos.of(0, 64, x));
+    }
+    DustCsrGraph graph = builder.build();
+
+    for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+      BlockPos pos = graph.nodePosition(nodeId);
+      assertEquals(nodeId, graph.nodeAt(pos.x(), pos.y(), pos.z()));
+      assertEquals(nodeId, graph.nodeForPosition(pos).orElseThrow());
+    }
+    assertEquals(-1, graph.nodeAt(3, 64, 0), "compressed segment blocks are not nodes");
+    assertEquals(-1, graph.nodeAt(1 << 30, 64, 0));
+    assertTrue(graph.nodeForPosition(BlockPos.of(5, 5, 5)).isEmpty());
+
+    Map<BlockPos, Integer> positions = graph.positionToNode();
+    assertSame(positions, graph.positionToNode(), "the position map is a view, not a copy");
+    assertEquals(graph.nodeCount(), positions.size());
+    assertEquals(graph.nodeCount(), positions.entrySet().stream().count());
+    assertEquals(graph.nodeAt(8, 64, 0), positions.get(BlockPos.of(8, 64, 0)));
+    assertNull(positions.get(BlockPos.of(3, 64, 0)));
+    assertFalse(positions.containsKey(BlockPos.of(1 << 30, 64, 0)));
+    assertThrows(UnsupportedOperationException.class, () -> positions.put(BlockPos.of(0, 0, 0), 1));
+  }
+
+  @Test
+  void builderRejectsPositionsOutsideThePackedRange() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+
+    assertThrows(IllegalArgumentException.class, () -> builder.addDust(BlockPos.of(1 << 25, 0, 0)));
+    assertThrows(IllegalArgumentException.class, () -> builder.addDust(BlockPos.of(0, 2048, 0)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> builder.attachPort(new DustPort(1, 0), BlockPos.of(0, 0, -(1 << 25) - 1)));
+    builder.addDust(BlockPos.of((1 << 25) - 1, -2048, -(1 << 25)));
+    assertEquals(1, builder.build().nodeCount());
+  }
+
+  @Test
+  void decodedLanesAreSharedByEveryKernel() {
+    DustCsrGraph graph = crossGraph();
+    long packedBytes = graph.storageBytes();
+
+    CpuDustPropagator first = new CpuDustPropagator();
+    first.reset(graph);
+    DustCsrGraph.EdgeLanes lanes = graph.edgeLanes();
+    assertLanesMatch(graph, lanes);
+    assertTrue(lanes.storageBytes() > 0);
+    assertEquals(packedBytes + lanes.storageBytes(), graph.storageBytes());
+
+    CpuDustPropagator second = new CpuDustPropagator();
+    second.reset(graph);
+    new DustBatchSettler(graph);
+    assertSame(lanes, graph.edgeLanes());
+    assertEquals(packedBytes + lanes.storageBytes(), graph.storageBytes(), "decoded only once");
+  }
+
+  @Test
+  void edgeCursorVisitsSameEdgesAsEdgesFrom() {
+    DustCsrGraph graph = crossGraph();
+    DustCsrGraph.EdgeCursor cursor = graph.edgeCursor();
+
+    for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+      List<DustCsrGraph.Edge> visited = new ArrayList<>();
+      cursor.reset(nodeId);
+      while (cursor.next()) {
+        assertEquals(nodeId, cursor.sourceNode());
+        assertEquals(cursor.targetNode(), graph.edgeTarget(nodeId, cursor.edge()));
+        assertEquals(cursor.weight(), graph.edgeWeight(nodeId, cursor.edge()));
+        visited.add(new DustCsrGraph.Edge(cursor.targetNode(), cursor.weight()));
+      }
+      assertEquals(graph.edgesFrom(nodeId), visited);
+      assertEquals(graph.edgeEnd(nodeId) - graph.edgeStart(nodeId), visited.size());
+      assertFalse(cursor.next());
+      assertThrows(IllegalStateException.class, cursor::targetNode);
+      int outside = graph.edgeEnd(nodeId);
+      int source = nodeId;
+      assertThrows(IllegalArgumentException.class, () -> graph.edgeTarget(source, outside));
+      assertThrows(IllegalArgumentException.class, () -> graph.edgeWeight(source, outside));
+    }
+    assertThrows(IllegalArgumentException.class, () -> cursor.reset(graph.nodeCount()));
+  }
+
+  @Test
+  void gridGraphStaysWellUnderBoxedFootprint() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int z = 0; z < 128; z++) {
+      for (int x = 0; x < 128; x++) {
+        if ((x % 4 == 0) || (z % 4 == 0)) {
+          builder.addDust(BlockPos.of(x, 0, z));
+        }
+      }
+    }
+    DustCsrGraph graph = builder.reorderForLocality(true).build();
+
+    // A boxed layout costs well over 100 bytes per node (BlockPos, HashMap entry, int lanes).
+    assertTrue(
+        graph.storageBytes() < 32L * graph.nodeCount(),
+        "storage " + graph.storageBytes() + " bytes for " + graph.nodeCount() + " nodes");
+  }
+
+  @Test
+  void rejectsPositionMapThatDisagreesWithNodes() {
+    List<BlockPos> positions = List.of(BlockPos.of(0, 0, 0), BlockPos.of(1, 0, 0));
+    Map<BlockPos, Integer> positionToNode = Map.of(positions.get(0), 1);
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new DustCsrGraph(
+                positions,
+                new int[] {0, 0},
+                new int[] {0, 0, 0},
+                new int[0],
+                new int[0],
+                Map.of(),
+                positionToNode));
+  }
+
+  @Test
+  void deduplicatedIslandsShareStorageAndKeepAccessors() {
+    DustCsrBuilder flatBuilder = new DustCsrBuilder();
+    DustCsrBuilder dedupBuilder = new DustCsrBuilder().deduplicateIslands(true);
+    for (int copy = 0; copy < 40; copy++) {
+      int originX = (copy % 8) * 20 - 70;
+      int originZ = (copy / 8) * 20;
+      for (DustCsrBuilder builder : List.of(flatBuilder, dedupBuilder)) {
+        addCell(builder, originX, 64 + copy % 3, originZ);
+        builder.attachPort(new DustPort(copy, 0), BlockPos.of(originX, 64 + copy % 3, originZ));
+      }
+    }
+    for (DustCsrBuilder builder : List.of(flatBuilder, dedupBuilder)) {
+      for (int x = 0; x < 9; x++) {
+        builder.addDust(BlockPos.of(x, 10, 500));
+      }
+      builder.addDust(BlockPos.of(4, 10, 501));
+    }
+    DustCsrGraph flat = flatBuilder.build();
+    DustCsrGraph dedup = dedupBuilder.build();
+
+    assertTrue(dedup.isDeduplicated());
+    assertEquals(2, dedup.templateCount());
+    assertEquals(flat.nodeCount(), dedup.nodeCount());
+    assertEquals(flat.edgeCount(), dedup.edgeCount());
+    assertArrayEquals(flat.edgeIndex(), dedup.edgeIndex());
+    assertArrayEquals(flat.edgeTargets(), dedup.edgeTargets());
+    assertArrayEquals(flat.edgeWeights(), dedup.edgeWeights());
+    assertEquals(flat.positionToNode(), dedup.positionToNode());
+    assertEquals(flat.portToNode(), dedup.portToNode());
+    DustCsrGraph.EdgeCursor cursor = dedup.edgeCursor();
+    for (int nodeId = 0; nodeId < flat.nodeCount(); nodeId++) {
+      assertEquals(flat.nodePositionKey(nodeId), dedup.nodePositionKey(nodeId));
+      assertEquals(flat.islandId(nodeId), dedup.islandId(nodeId));
+      assertEquals(flat.edgesFrom(nodeId), dedup.edgesFrom(nodeId));
+      cursor.reset(nodeId);
+      for (int edge = flat.edgeStart(nodeId); edge < flat.edgeEnd(nodeId); edge++) {
+        assertTrue(cursor.next());
+        assertEquals(edge, cursor.edge());
+        assertEquals(flat.edgeWeight(nodeId, edge), dedup.edgeWeight(nodeId, edge));
+        assertEquals(flat.edgeTargets()[edge], dedup.edgeTarget(nodeId, edge));
+        assertEquals(flat.edgeTargets()[edge], cursor.targetNode());
+      }
+      assertFalse(cursor.next());
+    }
+    assertArrayEquals(flat.edgeTargets(), dedup.flattened().edgeTargets());
+    // Positions and edges are shared; the per-node position index and island ids remain.
+    assertTrue(
+        dedup.storageBytes() * 5 < flat.storageBytes() * 3,
+        "dedup " + dedup.storageBytes() + " vs flat " + flat.storageBytes());
+
+    // Decoded lanes keep the sharing: templates are decoded once, not once per island.
+    DustCsrGraph.EdgeLanes dedupLanes = dedup.edgeLanes();
+    assertLanesMatch(dedup, dedupLanes);
+    assertEquals(dedupLanes.edgeDeltas.length, dedup.edgeTargetDeltaStorage().size());
+    assertTrue(dedupLanes.edgeDeltas.length * 10 < flat.edgeCount());
+    long flatLaneBytes = flat.edgeLanes().storageBytes();
+    assertTrue(
+        dedupLanes.storageBytes() * 2 < flatLaneBytes,
+        "dedup lanes " + dedupLanes.storageBytes() + " vs flat " + flatLaneBytes);
+  }
+
+  private static void assertLanesMatch(DustCsrGraph graph, DustCsrGraph.EdgeLanes lanes) {
+    for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+      assertEquals(graph.islandId(nodeId), lanes.islandIds[nodeId]);
+      List<DustCsrGraph.Edge> decoded = new ArrayList<>();
+      int row = lanes.row(nodeId);
+      for (int edge = lanes.rowEdgeIndex[row]; edge < lanes.rowEdgeIndex[row + 1]; edge++) {
+        decoded.add(
+            new DustCsrGraph.Edge(nodeId + lanes.edgeDeltas[edge], lanes.edgeWeights[edge]));
+      }
+      assertEquals(graph.edgesFrom(nodeId), decoded);
+    }
+  }
+
+  private static DustCsrGraph crossGraph() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int i = -6; i <= 6; i++) {
+      builder.addDust(BlockPos.of(i, 0, 0));
+      builder.addDust(BlockPos.of(0, 0, i));
+    }
+    builder.attachPort(new DustPort(1, 0), BlockPos.of(3, 0, 0));
+    return builder.build();
+  }
+
+  /** A small cell with junctions, a corner and a compressed segment, anchored at its origin. */
+  private static void addCell(DustCsrBuilder builder, int x, int y, int z) {
+    for (int dx = 0; dx < 9; dx++) {
+      builder.addDust(BlockPos.of(x + dx, y, z));
+    }
+    for (int dz = 1; dz < 7; dz++) {
+      builder.addDust(BlockPos.of(x + 4, y, z + dz));
+      builder.addDust(BlockPos.of(x + 8, y, z + dz));
+    }
+    builder.addDust(BlockPos.of(x + 3, y, z + 3));
+  }
+}
@@ -0,0 +1,179 @@
+package dev.fastquartz.engine.dust;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DustGraphFileTest {
+  @TempDir Path tempDir;
+
+  @Test
+  void mappedGraphMatchesBuiltGraph() throws IOException {
+    DustCsrBuilder builder = sampleBuilder();
+    DustCsrGraph built = builder.build();
+    Path file = tempDir.resolve("dust.fqdg");
+
+    DustGraphFile.write(built, builder.contentHash(), file);
+    DustCsrGraph mapped = DustGraphFile.map(file, builder.contentHash()).orElseThrow();
+
+    assertEquals(built.nodeCount(), mapped.nodeCount());
+    assertArrayEquals(built.edgeIndex(), mapped.edgeIndex());
+    assertArrayEquals(built.edgeTargets(), mapped.edgeTargets());
+    assertArrayEquals(built.edgeWeights(), mapped.edgeWeights());
+    for (int nodeId = 0; nodeId < built.nodeCount(); nodeId++) {
+      BlockPos pos = built.nodePosition(nodeId);
+      assertEquals(pos, mapped.nodePosition(nodeId));
+      assertEquals(built.islandId(nodeId), mapped.islandId(nodeId));
+      assertEquals(nodeId, mapped.nodeAt(pos.x(), pos.y(), pos.z()));
+    }
+    assertEquals(built.portToNode(), mapped.portToNode());
+    assertEquals(built.positionToNode(), mapped.positionToNode());
+
+    CpuDustPropagator fromBuilt = new CpuDustPropagator();
+    CpuDustPropagator fromMapped = new CpuDustPropagator();
+    fromBuilt.reset(built);
+    fromMapped.reset(mapped);
+    int source = built.nodeForPort(new DustPort(1, 0)).orElseThrow();
+    List<DustPropagator.Source> update = List.of(DustPropagator.Source.of(source, 15));
+    assertArrayEquals(fromBuilt.propagate(update), fromMapped.propagate(update));
+  }
+
+  @Test
+  void deduplicatedGraphIsWrittenInFlatLayout() throws IOException {
+    DustCsrBuilder builder = sampleBuilder().deduplicateIslands(true);
+    DustCsrGraph built = builder.build();
+    Path file = tempDir.resolve("dedup.fqdg");
+
+    DustGraphFile.write(built, builder.contentHash(), file);
+    DustCsrGraph mapped = DustGraphFile.map(file, builder.contentHash()).orElseThrow();
+
+    assertArrayEquals(built.edgeIndex(), mapped.edgeIndex());
+    assertArrayEquals(built.edgeTargets(), mapped.edgeTargets());
+    assertArrayEquals(built.edgeWeights(), mapped.edgeWeights());
+    assertEquals(built.positionToNode(), mapped.positionToNode());
+  }
+
+  @Test
+  void staleOrCorruptFilesAreIgnored() throws IOException {
+    DustCsrBuilder builder = sampleBuilder();
+    Path file = tempDir.resolve("dust.fqdg");
+
+    assertEquals(Optional.empty(), DustGraphFile.map(file, builder.contentHash()));
+
+    DustGraphFile.write(builder.build(), builder.contentHash(), file);
+    assertTrue(DustGraphFile.map(file, builder.contentHash()).isPresent());
+    assertEquals(Optional.empty(), DustGraphFile.map(file, builder.contentHash() + 1));
+
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 8), StandardOpenOption.TRUNCATE_EXISTING);
+    assertEquals(Optional.empty(), DustGraphFile.map(file, builder.contentHash()));
+  }
+
+  @Test
+  void corruptPayloadIsRejectedOrStillUsable() throws IOException {
+    DustCsrBuilder builder = sampleBuilder();
+    Path file = tempDir.resolve("dust.fqdg");
+    DustGraphFile.write(builder.build(), builder.contentHash(), file);
+    byte[] original = Files.readAllBytes(file);
+
+    Path corrupt = tempDir.resolve("corrupt.fqdg");
+    for (int offset = 16; offset < original.length; offset++) {
+      for (int flip : new int[] {0x01, 0x80, 0xFF}) {
+        byte[] bytes = original.clone();
+        bytes[offset] ^= (byte) flip;
+        Files.write(corrupt, bytes);
+        String where = "byte " + offset + " ^ " + flip;
+        Optional<DustCsrGraph> mapped =
+            assertTimeoutPreemptively(
+                Duration.ofSeconds(5), () -> DustGraphFile.map(corrupt, builder.contentHash()));
+        // A flip that keeps the payload consistent (e.g. a weight) may map; it must then be usable.
+        mapped.ifPresent(
+            graph -> assertTimeoutPreemptively(Duration.ofSeconds(5), () -> walk(graph), where));
+      }
+    }
+  }
+
+  @Test
+  void failedWriteLeavesNoTemporaryFile() throws IOException {
+    DustCsrBuilder builder = sampleBuilder();
+    Path target = tempDir.resolve("occupied");
+    Files.createDirectories(target.resolve("child"));
+
+    assertThrows(
+        IOException.class,
+        () -> DustGraphFile.write(builder.build(), builder.contentHash(), target));
+    assertFalse(Files.exists(tempDir.resolve("occupied.tmp")));
+  }
+
+  @Test
+  void loadOrBuildRebuildsWhenInputsChange() throws IOException {
+    Path file = tempDir.resolve("cache").resolve("dust.fqdg");
+    DustCsrBuilder original = sampleBuilder();
+
+    DustCsrGraph first = DustGraphFile.loadOrBuild(file, original);
+    assertTrue(Files.exists(file));
+    DustCsrGraph reused = DustGraphFile.loadOrBuild(file, sampleBuilder());
+    assertArrayEquals(first.edgeTargets(), reused.edgeTargets());
+
+    DustCsrBuilder changed = sampleBuilder().addDust(BlockPos.of(9, 0, 1));
+    assertNotEquals(original.contentHash(), changed.contentHash());
+    DustCsrGraph rebuilt = DustGraphFile.loadOrBuild(file, changed);
+    assertEquals(changed.build().nodeCount(), rebuilt.nodeCount());
+    assertTrue(DustGraphFile.map(file, changed.contentHash()).isPresent());
+    assertEquals(Optional.empty(), DustGraphFile.map(file, original.contentHash()));
+  }
+
+  @Test
+  void contentHashIgnoresInsertionOrder() {
+    DustCsrBuilder forward = new DustCsrBuilder();
+    DustCsrBuilder backward = new DustCsrBuilder();
+    for (int x = 0; x < 10; x++) {
+      forward.addDust(BlockPos.of(x, 0, 0));
+      backward.addDust(BlockPos.of(9 - x, 0, 0));
+    }
+    assertEquals(forward.contentHash(), backward.contentHash());
+    assertNotEquals(forward.contentHash(), backward.reorderForLocality(true).contentHash());
+  }
+
+  private static void walk(DustCsrGraph graph) {
+    DustCsrGraph.EdgeCursor cursor = graph.edgeCursor();
+    for (int nodeId = 0; nodeId < graph.nodeCount(); nodeId++) {
+      assertTrue(graph.nodeAtKey(graph.nodePositionKey(nodeId)) < graph.nodeCount());
+      cursor.reset(nodeId);
+      while (cursor.next()) {
+        assertEquals(graph.islandId(nodeId), graph.islandId(cursor.targetNode()));
+      }
+    }
+    graph.positionToNode().forEach((pos, nodeId) -> assertTrue(nodeId < graph.nodeCount()));
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    for (DustPort port : graph.portToNode().keySet()) {
+      propagator.propagatePorts(List.of(DustPropagator.PortSource.of(port, 15)));
+    }
+  }
+
+  private static DustCsrBuilder sampleBuilder() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    for (int x = -3; x <= 9; x++) {
+      builder.addDust(BlockPos.of(x, 0, 0));
+    }
+    for (int z = 1; z <= 5; z++) {
+      builder.addDust(BlockPos.of(4, 0, z));
+    }
+    builder.addDust(BlockPos.of(20, 1, 20)).addDust(BlockPos.of(21, 1, 20));
+    builder.attachPort(new DustPort(1, 0), BlockPos.of(-3, 0, 0));
+    builder.attachPort(new DustPort(2, 0), BlockPos.of(9, 0, 0));
+    builder.attachPort(new DustPort(2, 1), BlockPos.of(4, 0, 5));
+    return builder;
+  }
+}
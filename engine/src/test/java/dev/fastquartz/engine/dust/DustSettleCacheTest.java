@@ -0,0 +1,61 @@
+package dev.fastquartz.engine.dust;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class DustSettleCacheTest {
+  @Test
+  void cyclingMoreStatesThanCapacityKeepsRetentionBounded() {
+    int[] nodes = {0, 1, 2, 3};
+    int[] sourceLevels = new int[nodes.length];
+    int[] settledLevels = new int[nodes.length];
+    DustChangeBuffer changes = new DustChangeBuffer();
+    DustSettleCache cache = new DustSettleCache(1, 1 << 20);
+    cache.reset(1, 1);
+
+    for (int state = 0; state < 2000; state++) {
+      sourceLevels[state % nodes.length] = 1 + state % 15;
+      changes.clear();
+      for (int nodeId : nodes) {
+        int level = (state + nodeId) % 16;
+        changes.add(nodeId, settledLevels[nodeId], level);
+        settledLevels[nodeId] = level;
+      }
+      DustSettleCache.Entry previous = cache.current(0);
+      cache.setCurrent(
+          0, cache.store(0, state, nodes, 0, sourceLevels, settledLevels, previous, changes, 0));
+      assertTrue(cache.retainedEntries() <= 1, "state " + state);
+    }
+
+    assertEquals(1999, cache.stats().evictions());
+    assertTrue(cache.stats().bytes() < 1024, "bytes " + cache.stats().bytes());
+  }
+
+  @Test
+  void deltasOnlyLinkEntriesThatAreStillCached() {
+    int[] nodes = {0, 1};
+    int[] sourceLevels = new int[2];
+    int[] settledLevels = new int[2];
+    DustChangeBuffer changes = new DustChangeBuffer();
+    DustSettleCache cache = new DustSettleCache(2, 1 << 20);
+    cache.reset(1, 1);
+
+    DustSettleCache.Entry first =
+        cache.store(0, 1, nodes, 0, sourceLevels, settledLevels, null, changes, 0);
+    sourceLevels[0] = 15;
+    settledLevels[0] = 15;
+    changes.add(0, 0, 15);
+    DustSettleCache.Entry second =
+        cache.store(0, 2, nodes, 0, sourceLevels, settledLevels, first, changes, 0);
+    assertSame(first, second.deltaFrom);
+
+    sourceLevels[1] = 15;
+    settledLevels[1] = 15;
+    DustSettleCache.Entry third =
+        cache.store(0, 3, nodes, 0, sourceLevels, settledLevels, first, changes, 0);
+    assertNull(third.deltaFrom, "the predecessor was evicted to make room");
+    assertNull(first.deltaFrom);
+    assertEquals(2, cache.retainedEntries());
+  }
+}
@@ -0,0 +1,158 @@
+package dev.fastquartz.engine.dust;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.ShadowWorld;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class DustWorldWriterTest {
+  private static final int DUST_BITS = 0x70;
+
+  @Test
+  void writesEveryPhysicalBlockOfChangedSegments() {
+    List<BlockPos> dust = new ArrayList<>();
+    for (int x = -20; x <= 20; x++) {
+      dust.add(BlockPos.of(x, 64, 3));
+    }
+    for (int z = 4; z <= 12; z++) {
+      dust.add(BlockPos.of(20, 64, z));
+      dust.add(BlockPos.of(-3, 64, z));
+    }
+    DustPort lever = new DustPort(1, 0);
+    DustCsrBuilder builder = new DustCsrBuilder().addAllDust(dust);
+    builder.attachPort(lever, BlockPos.of(-3, 64, 12));
+    DustCsrGraph graph = builder.build();
+    DustSegmentIndex segments = builder.buildSegmentIndex(graph);
+    assertEquals(dust.size(), graph.nodeCount() + segments.blockCount());
+
+    MapWorld backing = new MapWorld();
+    for (BlockPos pos : dust) {
+      backing.states.put(pos, DUST_BITS);
+    }
+    ShadowWorld world = new ShadowWorld(backing);
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    DustWorldWriter writer =
+        new DustWorldWriter(graph, segments, (bits, level) -> (bits & ~15) | level);
+
+    int[] changed = propagator.propagatePorts(List.of(DustPropagator.PortSource.of(lever, 15)));
+    assertTrue(writer.write(changed, propagator, world) > changed.length);
+    Map<BlockPos, Integer> expected = expectedLevels(dust, BlockPos.of(-3, 64, 12), 15);
+    for (BlockPos pos : dust) {
+      assertEquals(DUST_BITS | expected.get(pos), world.getBlockStateBits(pos), pos.toString());
+    }
+    world.commit();
+    int poweredWrites = backing.writes;
+
+    DustChangeBuffer off = new DustChangeBuffer();
+    propagator.propagatePorts(new int[] {propagator.portIndex(lever)}, new int[] {0}, 1, off);
+    writer.write(off, propagator, world);
+    world.commit();
+    for (BlockPos pos : dust) {
+      assertEquals(DUST_BITS, backing.states.get(pos), pos.toString());
+    }
+    assertEquals(2 * poweredWrites, backing.writes);
+  }
+
+  @Test
+  void batchesUpdatesAcrossManySections() {
+    DustCsrBuilder builder = new DustCsrBuilder();
+    List<BlockPos> dust = new ArrayList<>();
+    List<DustPropagator.PortSource> on = new ArrayList<>();
+    List<DustPropagator.PortSource> off = new ArrayList<>();
+    for (int piece = 0; piece < 40; piece++) {
+      int x = (piece % 8 - 4) * 37;
+      int y = (piece % 5) * 16 - 32;
+      int z = (piece / 8 - 2) * 29;
+      for (int step = 0; step < 3; step++) {
+        BlockPos pos = BlockPos.of(x + step, y, z);
+        builder.addDust(pos);
+        dust.add(pos);
+      }
+      DustPort lever = new DustPort(piece, 0);
+      builder.attachPort(lever, BlockPos.of(x, y, z));
+      on.add(DustPropagator.PortSource.of(lever, 15));
+      off.add(DustPropagator.PortSource.of(lever, 0));
+    }
+    DustCsrGraph graph = builder.build();
+    DustSegmentIndex segments = builder.buildSegmentIndex(graph);
+    MapWorld backing = new MapWorld();
+    for (BlockPos pos : dust) {
+      backing.states.put(pos, DUST_BITS);
+    }
+    ShadowWorld world = new ShadowWorld(backing);
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    DustWorldWriter writer =
+        new DustWorldWriter(graph, segments, (bits, level) -> (bits & ~15) | level);
+
+    for (int round = 0; round < 2; round++) {
+      writer.write(propagator.propagatePorts(on), propagator, world);
+      for (int i = 0; i < dust.size(); i++) {
+        assertEquals(DUST_BITS | (15 - i % 3), world.getBlockStateBits(dust.get(i)));
+      }
+      writer.write(propagator.propagatePorts(off), propagator, world);
+      for (BlockPos pos : dust) {
+        assertEquals(DUST_BITS, world.getBlockStateBits(pos), pos.toString());
+      }
+    }
+  }
+
+  private static Map<BlockPos, Integer> expectedLevels(
+      List<BlockPos> dust, BlockPos source, int level) {
+    Map<BlockPos, Integer> levels = new HashMap<>();
+    for (BlockPos pos : dust) {
+      levels.put(pos, 0);
+    }
+    Deque<BlockPos> queue = new ArrayDeque<>();
+    levels.put(source, level);
+    queue.add(source);
+    while (!queue.isEmpty()) {
+      BlockPos pos = queue.removeFirst();
+      int next = levels.get(pos) - 1;
+      for (int[] offset : new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}) {
+        BlockPos neighbour = BlockPos.of(pos.x() + offset[0], pos.y(), pos.z() + offset[1]);
+        Integer current = levels.get(neighbour);
+        if (current != null && next > current) {
+          levels.put(neighbour, next);
+          queue.addLast(neighbour);
+        }
+      }
+    }
+    return levels;
+  }
+
+  private static final class MapWorld implements ShadowWorld.Delegate {
+    private final Map<BlockPos, Integer> states = new HashMap<>();
+    private int writes;
+
+    @Override
+    public int getBlockStateBits(BlockPos pos) {
+      return states.getOrDefault(pos, 0);
+    }
+
+    @Override
+    public void setBlockStateBits(BlockPos pos, int stateBits) {
+      states.put(pos, stateBits);
+      writes++;
+    }
+
+    @Override
+    public void scheduleTick(BlockPos pos, int delayTicks, int priority) {}
+
+    @Override
+    public void markNeighborChanged(BlockPos pos, BlockPos source) {}
+
+    @Override
+    public int readContainerSignal(BlockPos pos) {
+      return 0;
+    }
+  }
+}
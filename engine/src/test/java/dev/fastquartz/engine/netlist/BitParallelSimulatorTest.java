@@ -0,0 +1,160 @@
+package dev.fastquartz.engine.netlist;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class BitParallelSimulatorTest {
+  private static final int LINES = 5;
+  private static final int LINE_LENGTH = 9;
+  private static final int TICKS = 12;
+
+  @Test
+  void everyLaneMatchesTheInterpreter() {
+    for (long seed = 1; seed <= 6; seed++) {
+      CompiledNetlist parallel = randomCircuit(seed, 12);
+      BitParallelSimulator simulator = new BitParallelSimulator(parallel);
+      int[] rows = new int[parallel.rowCount()];
+      for (int row = 0; row < rows.length; row++) {
+        rows[row] = row;
+      }
+      SplittableRandom random = new SplittableRandom(seed * 17);
+      long[] inputLanes = new long[simulator.inputCount()];
+      for (int i = 0; i < inputLanes.length; i++) {
+        inputLanes[i] = random.nextLong();
+      }
+
+      long[] outputs = simulator.evaluate(inputLanes, TICKS, rows);
+
+      for (int lane = 0; lane < BitParallelSimulator.LANES; lane++) {
+        CompiledNetlist netlist = randomCircuit(seed, 12);
+        List<DustPropagator.PortSource> levels = new ArrayList<>();
+        for (int i = 0; i < inputLanes.length; i++) {
+          int level = ((inputLanes[i] >>> lane) & 1) != 0 ? 15 : 0;
+          levels.add(DustPropagator.PortSource.of(simulator.inputs().get(i), level));
+        }
+        for (int node : netlist.propagator().propagatePorts(levels)) {
+          netlist.dustChanged(node);
+        }
+        for (int tick = 0; tick < TICKS; tick++) {
+          netlist.tick(null);
+        }
+        for (int row : rows) {
+          assertEquals(
+              netlist.powerOut(row) > 0,
+              ((outputs[row] >>> lane) & 1) != 0,
+              "seed " + seed + " lane " + lane + " row " + row);
+        }
+      }
+    }
+  }
+
+  @Test
+  void exhaustiveLanesEnumerateATruthTable() {
+    DustPort a = new DustPort(100, 0);
+    DustPort b = new DustPort(101, 0);
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .addDust(BlockPos.of(1, 0, 0))
+            .addDust(BlockPos.of(2, 0, 0))
+            .addDust(BlockPos.of(0, 0, 2))
+            .attachPort(a, BlockPos.of(0, 0, 0))
+            .attachPort(b, BlockPos.of(2, 0, 0))
+            .attachPort(new DustPort(0, 0), BlockPos.of(0, 0, 2))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int nor = builder.addTorch(BlockPos.of(1, 0, 1), 0);
+    int buffer = builder.addRepeater(BlockPos.of(1, 0, 3), 0, 2);
+    builder
+        .readDust(nor, BlockPos.of(2, 0, 0))
+        .drivePort(nor, new DustPort(0, 0))
+        .readDust(buffer, BlockPos.of(0, 0, 2));
+    BitParallelSimulator simulator = new BitParallelSimulator(builder.build(propagator));
+    assertEquals(List.of(a, b), simulator.inputs());
+
+    long[] lanes = {
+      BitParallelSimulator.exhaustiveLanes(0, 0), BitParallelSimulator.exhaustiveLanes(1, 0)
+    };
+    long[] afterOne = simulator.evaluate(lanes, 1, nor, buffer);
+    assertEquals(0b0001L, afterOne[0] & 0xF);
+    assertEquals(0L, afterOne[1] & 0xF);
+    long[] afterThree = simulator.evaluate(lanes, 3, nor, buffer);
+    assertEquals(0b0001L, afterThree[1] & 0xF);
+    assertEquals(afterThree[0], simulator.rowLanes(nor));
+    assertEquals(
+        afterThree[0], simulator.dustLanes(graph.nodeForPosition(BlockPos.of(0, 0, 2)).getAsInt()));
+  }
+
+  @Test
+  void exhaustiveLanesCoverInputsAboveTheLaneBits() {
+    assertEquals(0xAAAA_AAAA_AAAA_AAAAL, BitParallelSimulator.exhaustiveLanes(0, 3));
+    assertEquals(0xFFFF_FFFF_0000_0000L, BitParallelSimulator.exhaustiveLanes(5, 0));
+    assertEquals(0L, BitParallelSimulator.exhaustiveLanes(6, 0));
+    assertEquals(-1L, BitParallelSimulator.exhaustiveLanes(6, 1));
+    assertEquals(-1L, BitParallelSimulator.exhaustiveLanes(7, 2));
+    assertThrows(IllegalArgumentException.class, () -> BitParallelSimulator.exhaustiveLanes(-1, 0));
+  }
+
+  @Test
+  void analogRowsAreRejected() {
+    DustCsrGraph graph = new DustCsrBuilder().addDust(BlockPos.of(0, 0, 0)).build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    builder.readDust(builder.addComparator(BlockPos.of(1, 0, 0), 0, false), BlockPos.of(0, 0, 0));
+    CompiledNetlist netlist = builder.build(propagator);
+
+    assertThrows(IllegalArgumentException.class, () -> new BitParallelSimulator(netlist));
+  }
+
+  /**
+   * Five dust lines along X with a lever at x=0 and component ports at x=2, 4 and 6; torches and
+   * repeaters read dust at x=2, 4, 6 or 8, or an earlier row directly.
+   */
+  private static CompiledNetlist randomCircuit(long seed, int componentCount) {
+    DustCsrBuilder dust = new DustCsrBuilder();
+    for (int line = 0; line < LINES; line++) {
+      for (int x = 0; x < LINE_LENGTH; x++) {
+        dust.addDust(BlockPos.of(x, 0, 2 * line));
+      }
+      dust.attachPort(new DustPort(100 + line, 0), BlockPos.of(0, 0, 2 * line));
+    }
+    for (int row = 0; row < Math.max(componentCount, 3 * LINES); row++) {
+      dust.attachPort(
+          new DustPort(row, 0), BlockPos.of(2 + 2 * (row / LINES % 3), 0, 2 * (row % LINES)));
+    }
+    DustCsrGraph graph = dust.build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+
+    SplittableRandom random = new SplittableRandom(seed);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    for (int row = 0; row < componentCount; row++) {
+      BlockPos pos = BlockPos.of(20 + row, 0, 20);
+      int added =
+          random.nextBoolean()
+              ? builder.addTorch(pos, 0)
+              : builder.addRepeater(pos, 0, 1 + random.nextInt(4));
+      if (row > 0 && random.nextInt(4) == 0) {
+        builder.readComponent(added, random.nextInt(row));
+      } else {
+        builder.readDust(
+            added, BlockPos.of(2 + 2 * random.nextInt(4), 0, 2 * random.nextInt(LINES)));
+      }
+      builder.drivePort(added, new DustPort(row, 0));
+    }
+    return builder.build(propagator);
+  }
+}
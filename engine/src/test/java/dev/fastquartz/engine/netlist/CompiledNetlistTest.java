@@ -0,0 +1,221 @@
+package dev.fastquartz.engine.netlist;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.component.ComponentContext;
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.testing.ComponentFixtures;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompiledNetlistTest {
+  private static final DustPort LEVER = new DustPort(100, 0);
+  private static final DustPort REAR = new DustPort(101, 0);
+  private static final DustPort SIDE = new DustPort(102, 0);
+
+  @Test
+  void torchAndRepeaterFollowTheirInputsAfterTheirDelay() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .addDust(BlockPos.of(1, 0, 0))
+            .addDust(BlockPos.of(0, 0, 2))
+            .addDust(BlockPos.of(1, 0, 2))
+            .addDust(BlockPos.of(2, 0, 2))
+            .addDust(BlockPos.of(0, 0, 4))
+            .attachPort(LEVER, BlockPos.of(0, 0, 0))
+            .attachPort(new DustPort(0, 0), BlockPos.of(0, 0, 2))
+            .attachPort(new DustPort(1, 0), BlockPos.of(0, 0, 4))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int torch = builder.addTorch(BlockPos.of(2, 0, 0), 0);
+    int repeater = builder.addRepeater(BlockPos.of(3, 0, 2), 0, 2);
+    builder
+        .readDust(torch, BlockPos.of(1, 0, 0))
+        .drivePort(torch, new DustPort(0, 0))
+        .readDust(repeater, BlockPos.of(2, 0, 2))
+        .drivePort(repeater, new DustPort(1, 0));
+    CompiledNetlist netlist = builder.build(propagator);
+    int output = graph.nodeForPosition(BlockPos.of(0, 0, 4)).getAsInt();
+
+    assertEquals(1, netlist.tick(null));
+    assertEquals(torch, netlist.changedRow(0));
+    assertEquals(15, netlist.powerOut(torch));
+    assertEquals(13, propagator.powerLevel(graph.nodeForPosition(BlockPos.of(2, 0, 2)).getAsInt()));
+    assertEquals(0, netlist.tick(null));
+    assertEquals(13, netlist.powerIn(repeater));
+    assertEquals(0, netlist.powerOut(repeater));
+    assertEquals(1, netlist.tick(null));
+    assertEquals(15, netlist.powerOut(repeater));
+    assertEquals(15, propagator.powerLevel(output));
+    assertTrue(netlist.isIdle());
+
+    int[] changed = propagator.propagatePorts(List.of(DustPropagator.PortSource.of(LEVER, 15)));
+    for (int node : changed) {
+      netlist.dustChanged(node);
+    }
+    assertEquals(1, netlist.tick(null));
+    assertEquals(0, netlist.powerOut(torch));
+    assertEquals(0, netlist.tick(null));
+    assertEquals(15, netlist.powerOut(repeater));
+    assertEquals(1, netlist.tick(null));
+    assertEquals(0, netlist.powerOut(repeater));
+    assertEquals(0, propagator.powerLevel(output));
+    assertTrue(netlist.isIdle());
+  }
+
+  @Test
+  void comparatorsCompareAndSubtractTheirSideInput() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .addDust(BlockPos.of(0, 0, 2))
+            .attachPort(REAR, BlockPos.of(0, 0, 0))
+            .attachPort(SIDE, BlockPos.of(0, 0, 2))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int compare = builder.addComparator(BlockPos.of(1, 0, 0), 0, false);
+    int subtract = builder.addComparator(BlockPos.of(1, 0, 1), 0, true);
+    int repeater = builder.addRepeater(BlockPos.of(2, 0, 0), 0, 1);
+    builder
+        .readDust(compare, BlockPos.of(0, 0, 0))
+        .readSideDust(compare, BlockPos.of(0, 0, 2))
+        .readDust(subtract, BlockPos.of(0, 0, 0))
+        .readSideDust(subtract, BlockPos.of(0, 0, 2))
+        .readComponent(repeater, compare);
+    CompiledNetlist netlist = builder.build(propagator);
+
+    setLevels(propagator, netlist, 12, 5);
+    settle(netlist);
+    assertEquals(12, netlist.powerOut(compare));
+    assertEquals(7, netlist.powerOut(subtract));
+    assertEquals(15, netlist.powerOut(repeater));
+
+    setLevels(propagator, netlist, 12, 13);
+    settle(netlist);
+    assertEquals(0, netlist.powerOut(compare));
+    assertEquals(0, netlist.powerOut(subtract));
+    assertEquals(0, netlist.powerOut(repeater));
+  }
+
+  @Test
+  void adapterRowsRunOnlyWhenTheirInputsChange() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .addDust(BlockPos.of(0, 0, 2))
+            .attachPort(LEVER, BlockPos.of(0, 0, 0))
+            .attachPort(new DustPort(0, 0), BlockPos.of(0, 0, 2))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    List<String> calls = new ArrayList<>();
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int torch = builder.addTorch(BlockPos.of(1, 0, 0), 0);
+    int piston =
+        builder.addAdapter(
+            BlockPos.of(1, 0, 2), 7, (context, pos, bits) -> calls.add(pos + "/" + bits));
+    builder
+        .readDust(torch, BlockPos.of(0, 0, 0))
+        .drivePort(torch, new DustPort(0, 0))
+        .readDust(piston, BlockPos.of(0, 0, 2));
+    CompiledNetlist netlist = builder.build(propagator);
+    assertEquals(CompiledNetlist.NodeType.ADAPTER, netlist.type(piston));
+
+    ComponentContext context = ComponentFixtures.emptyContext();
+    assertEquals(1, netlist.tick(context));
+    assertEquals(List.of("BlockPos[x=1, y=0, z=2]/7"), calls);
+    assertEquals(0, netlist.tick(context));
+    assertEquals(2, calls.size());
+    assertTrue(netlist.isIdle());
+    assertEquals(0, netlist.powerOut(piston));
+
+    netlist.tick(context);
+    assertEquals(2, calls.size());
+  }
+
+  @Test
+  void rowsReadMidWireTaps() {
+    DustCsrBuilder dust = new DustCsrBuilder().attachPort(LEVER, BlockPos.of(0, 0, 0));
+    for (int x = 0; x <= 8; x++) {
+      dust.addDust(BlockPos.of(x, 0, 0));
+    }
+    BlockPos tap = BlockPos.of(5, 0, 0);
+    NetlistBuilder untapped = new NetlistBuilder(dust.build());
+    int torch = untapped.addTorch(BlockPos.of(5, 0, 1), 0);
+    assertThrows(IllegalArgumentException.class, () -> untapped.readDust(torch, tap));
+
+    DustCsrGraph graph = dust.addTap(tap).build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int comparator = builder.addComparator(BlockPos.of(5, 0, 1), 0, false);
+    builder.readDust(comparator, tap);
+    CompiledNetlist netlist = builder.build(propagator);
+    settle(netlist);
+
+    int[] changed = propagator.propagatePorts(List.of(DustPropagator.PortSource.of(LEVER, 15)));
+    for (int node : changed) {
+      netlist.dustChanged(node);
+    }
+    settle(netlist);
+    assertEquals(10, netlist.powerIn(comparator));
+    assertEquals(10, netlist.powerOut(comparator));
+  }
+
+  @Test
+  void builderRejectsEdgesItCannotModel() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .attachPort(LEVER, BlockPos.of(0, 0, 0))
+            .build();
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int torch = builder.addTorch(BlockPos.of(1, 0, 0), 0);
+    int adapter = builder.addAdapter(BlockPos.of(2, 0, 0), 0, ComponentFixtures.ignoringAdapter());
+
+    assertThrows(IllegalArgumentException.class, () -> builder.readComponent(torch, adapter));
+    assertThrows(IllegalArgumentException.class, () -> builder.drivePort(adapter, LEVER));
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.readSideDust(torch, BlockPos.of(0, 0, 0)));
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.readDust(torch, BlockPos.of(9, 0, 0)));
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.drivePort(torch, new DustPort(5, 0)));
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.addRepeater(BlockPos.of(3, 0, 0), 0, 0));
+
+    builder.drivePort(torch, LEVER);
+    assertThrows(IllegalArgumentException.class, () -> builder.drivePort(torch, LEVER));
+    assertThrows(IllegalStateException.class, () -> builder.build(new CpuDustPropagator()));
+  }
+
+  private static void setLevels(
+      CpuDustPropagator propagator, CompiledNetlist netlist, int rear, int side) {
+    int[] changed =
+        propagator.propagatePorts(
+            List.of(
+                DustPropagator.PortSource.of(REAR, rear),
+                DustPropagator.PortSource.of(SIDE, side)));
+    for (int node : changed) {
+      netlist.dustChanged(node);
+    }
+  }
+
+  private static void settle(CompiledNetlist netlist) {
+    for (int i = 0; i < 16 && !netlist.isIdle(); i++) {
+      netlist.tick(null);
+    }
+    assertTrue(netlist.isIdle());
+  }
+}
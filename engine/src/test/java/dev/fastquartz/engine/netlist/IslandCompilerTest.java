@@ -0,0 +1,293 @@
+package dev.fastquartz.engine.netlist;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.testing.ComponentFixtures;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class IslandCompilerTest {
+  private static final int LINES = 6;
+  private static final int LINE_LENGTH = 7;
+
+  @Test
+  void compiledIslandMatchesTheInterpreter() {
+    for (long seed = 1; seed <= 20; seed++) {
+      Circuit circuit = randomCircuit(seed, 14, false);
+      CompiledIsland island = new IslandCompiler().compile(circuit.netlist, 0);
+      assertTrue(island.isCompiledFrom(circuit.netlist));
+
+      SplittableRandom random = new SplittableRandom(seed * 31);
+      for (int tick = 0; tick < 120; tick++) {
+        if (random.nextInt(6) == 0) {
+          int line = random.nextInt(LINES);
+          int level = random.nextBoolean() ? 0 : 1 + random.nextInt(15);
+          circuit.setLever(line, level);
+          if (island.externalPorts().contains(lever(line))) {
+            island.setExternalLevel(lever(line), level);
+          }
+        }
+        circuit.netlist.tick(null);
+        island.tick();
+        for (int row : island.rows()) {
+          assertEquals(
+              circuit.netlist.powerOut(row),
+              island.powerOut(row),
+              "seed " + seed + " tick " + tick + " row " + row);
+        }
+        for (int node : island.nodes()) {
+          assertEquals(
+              circuit.propagator.powerLevel(node),
+              island.dustLevel(node),
+              "seed " + seed + " tick " + tick + " node " + node);
+        }
+      }
+    }
+  }
+
+  @Test
+  void islandStopsAtUnconnectedRowsAndResumesFromInterpreterState() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .addDust(BlockPos.of(0, 0, 2))
+            .attachPort(lever(0), BlockPos.of(0, 0, 0))
+            .attachPort(new DustPort(1, 0), BlockPos.of(0, 0, 2))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int first = builder.addRepeater(BlockPos.of(1, 0, 0), 0, 3);
+    int second = builder.addTorch(BlockPos.of(1, 0, 2), 0);
+    builder.readDust(first, BlockPos.of(0, 0, 0)).drivePort(second, new DustPort(1, 0));
+    CompiledNetlist netlist = builder.build(propagator);
+
+    propagator.propagatePorts(List.of(DustPropagator.PortSource.of(lever(0), 15)));
+    netlist.dustChanged(graph.nodeForPosition(BlockPos.of(0, 0, 0)).getAsInt());
+    netlist.tick(null);
+
+    CompiledIsland island = new IslandCompiler().compile(netlist, first);
+    assertArrayEquals(new int[] {first}, island.rows());
+    assertEquals(List.of(lever(0)), island.externalPorts());
+    island.copyStateFrom(netlist);
+    for (int tick = 0; tick < 3; tick++) {
+      netlist.tick(null);
+      island.tick();
+      assertEquals(netlist.powerOut(first), island.powerOut(first));
+    }
+    assertEquals(15, island.powerOut(first));
+    assertThrows(IllegalArgumentException.class, () -> island.powerOut(second));
+  }
+
+  @Test
+  void islandCompiledWhileAnInputIsPoweredMatchesTheInterpreter() {
+    for (long seed = 1; seed <= 10; seed++) {
+      Circuit circuit = randomCircuit(seed, 14, false);
+      for (int line = 0; line < LINES; line++) {
+        circuit.setLever(line, 15 - line);
+      }
+      for (int tick = 0; tick < 5; tick++) {
+        circuit.netlist.tick(null);
+      }
+      CompiledIsland island = new IslandCompiler().compile(circuit.netlist, 0);
+      island.copyStateFrom(circuit.netlist);
+      for (int node : island.nodes()) {
+        assertEquals(circuit.propagator.powerLevel(node), island.dustLevel(node), "seed " + seed);
+      }
+      for (int tick = 0; tick < 20; tick++) {
+        circuit.netlist.tick(null);
+        island.tick();
+        for (int row : island.rows()) {
+          assertEquals(
+              circuit.netlist.powerOut(row),
+              island.powerOut(row),
+              "seed " + seed + " tick " + tick + " row " + row);
+        }
+      }
+    }
+  }
+
+  @Test
+  void islandHandsItsStateBackToTheInterpreter() {
+    for (long seed = 1; seed <= 10; seed++) {
+      Circuit circuit = randomCircuit(seed, 14, false);
+      Circuit reference = randomCircuit(seed, 14, false);
+      CompiledIsland island = new IslandCompiler().compile(circuit.netlist, 0);
+      List<DustPort> ports = new ArrayList<>(island.externalPorts());
+      ports.sort(
+          Comparator.comparingInt(DustPort::componentId).thenComparingInt(DustPort::portIndex));
+      assertEquals(ports, island.externalPorts());
+
+      island.run(9);
+      for (int tick = 0; tick < 9; tick++) {
+        reference.netlist.tick(null);
+      }
+      island.copyStateTo(circuit.netlist);
+      for (int tick = 0; tick < 30; tick++) {
+        circuit.netlist.tick(null);
+        reference.netlist.tick(null);
+        for (int row : island.rows()) {
+          assertEquals(
+              reference.netlist.powerOut(row),
+              circuit.netlist.powerOut(row),
+              "seed " + seed + " tick " + tick + " row " + row);
+        }
+        for (int node : island.nodes()) {
+          assertEquals(
+              reference.propagator.powerLevel(node),
+              circuit.propagator.powerLevel(node),
+              "seed " + seed + " tick " + tick + " node " + node);
+        }
+      }
+    }
+  }
+
+  @Test
+  void invalidatedNetlistsStopTheirIslands() {
+    IslandCompiler compiler = new IslandCompiler();
+    Circuit circuit = randomCircuit(3, 10, false);
+    CompiledIsland island = compiler.compile(circuit.netlist, 0);
+    island.tick();
+    assertFalse(island.isStale());
+
+    circuit.netlist.invalidate();
+    assertTrue(island.isStale());
+    assertThrows(IllegalStateException.class, island::tick);
+    assertThrows(IllegalStateException.class, () -> island.run(1));
+    assertThrows(IllegalStateException.class, () -> island.copyStateFrom(circuit.netlist));
+    assertThrows(IllegalStateException.class, () -> island.copyStateTo(circuit.netlist));
+
+    CompiledIsland recompiled = compiler.compile(circuit.netlist, 0);
+    assertFalse(recompiled.isStale());
+    recompiled.copyStateFrom(circuit.netlist);
+    recompiled.tick();
+  }
+
+  @Test
+  void kernelCacheKeepsOnlyTheMostRecentPrograms() {
+    IslandCompiler compiler = new IslandCompiler(1);
+    CompiledIsland first = compiler.compile(randomCircuit(7, 10, false).netlist, 0);
+    CompiledIsland second = compiler.compile(randomCircuit(7, 10, true).netlist, 0);
+    assertEquals(1, compiler.kernelCount());
+    first.run(4);
+    second.run(4);
+    assertThrows(IllegalArgumentException.class, () -> new IslandCompiler(0));
+  }
+
+  @Test
+  void kernelsAreSharedUntilTheTopologyChanges() {
+    IslandCompiler compiler = new IslandCompiler();
+    Circuit circuit = randomCircuit(7, 10, false);
+    CompiledIsland first = compiler.compile(circuit.netlist, 0);
+    CompiledIsland again = compiler.compile(circuit.netlist, 0);
+    assertEquals(1, compiler.kernelCount());
+    assertNotSame(first, again);
+
+    Circuit rebuilt = randomCircuit(7, 10, false);
+    CompiledIsland unchanged = compiler.compile(rebuilt.netlist, 0);
+    assertEquals(1, compiler.kernelCount());
+    assertFalse(first.isCompiledFrom(rebuilt.netlist));
+    assertTrue(unchanged.isCompiledFrom(rebuilt.netlist));
+    assertThrows(IllegalArgumentException.class, () -> first.copyStateFrom(rebuilt.netlist));
+
+    Circuit grown = randomCircuit(7, 10, true);
+    compiler.compile(grown.netlist, 0);
+    assertEquals(2, compiler.kernelCount());
+  }
+
+  @Test
+  void islandsWithAdapterRowsAreNotCompiled() {
+    DustCsrGraph graph =
+        new DustCsrBuilder()
+            .addDust(BlockPos.of(0, 0, 0))
+            .attachPort(new DustPort(0, 0), BlockPos.of(0, 0, 0))
+            .build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    int torch = builder.addTorch(BlockPos.of(1, 0, 0), 0);
+    int adapter = builder.addAdapter(BlockPos.of(2, 0, 0), 0, ComponentFixtures.ignoringAdapter());
+    builder.drivePort(torch, new DustPort(0, 0)).readDust(adapter, BlockPos.of(0, 0, 0));
+    CompiledNetlist netlist = builder.build(propagator);
+
+    assertThrows(IllegalArgumentException.class, () -> new IslandCompiler().compile(netlist, 0));
+  }
+
+  /**
+   * Six dust lines along X. Each line has a lever port at x=0 and two component ports at x=2 and
+   * x=4, which stay external when fewer components are placed; components read dust at x=2, 4 or 6,
+   * or an earlier component directly. {@code extraReader} adds a torch reading row 0's dust.
+   */
+  private static Circuit randomCircuit(long seed, int componentCount, boolean extraReader) {
+    DustCsrBuilder dust = new DustCsrBuilder();
+    for (int line = 0; line < LINES; line++) {
+      for (int x = 0; x < LINE_LENGTH; x++) {
+        dust.addDust(BlockPos.of(x, 0, 2 * line));
+      }
+      dust.attachPort(lever(line), BlockPos.of(0, 0, 2 * line));
+    }
+    for (int row = 0; row < Math.max(componentCount, 2 * LINES); row++) {
+      dust.attachPort(new DustPort(row, 0), portPosition(row));
+    }
+    DustCsrGraph graph = dust.build();
+    CpuDustPropagator propagator = new CpuDustPropagator();
+    propagator.reset(graph);
+
+    SplittableRandom random = new SplittableRandom(seed);
+    NetlistBuilder builder = new NetlistBuilder(graph);
+    for (int row = 0; row < componentCount; row++) {
+      BlockPos pos = BlockPos.of(10 + row, 0, 20);
+      int kind = random.nextInt(4);
+      int added =
+          switch (kind) {
+            case 0 -> builder.addTorch(pos, 0);
+            case 1 -> builder.addRepeater(pos, 0, 1 + random.nextInt(4));
+            default -> builder.addComparator(pos, 0, kind == 3);
+          };
+      if (row > 0 && random.nextInt(4) == 0) {
+        builder.readComponent(added, random.nextInt(row));
+      } else {
+        builder.readDust(added, readPosition(random));
+      }
+      if (kind >= 2 && random.nextBoolean()) {
+        builder.readSideDust(added, readPosition(random));
+      }
+      builder.drivePort(added, new DustPort(row, 0));
+    }
+    if (extraReader) {
+      builder.readDust(builder.addTorch(BlockPos.of(0, 0, 30), 0), portPosition(0));
+    }
+    return new Circuit(propagator, builder.build(propagator));
+  }
+
+  private static BlockPos readPosition(SplittableRandom random) {
+    return BlockPos.of(2 + 2 * random.nextInt(3), 0, 2 * random.nextInt(LINES));
+  }
+
+  private static BlockPos portPosition(int row) {
+    return BlockPos.of(2 + 2 * (row / LINES % 2), 0, 2 * (row % LINES));
+  }
+
+  private static DustPort lever(int line) {
+    return new DustPort(100 + line, 0);
+  }
+
+  private record Circuit(CpuDustPropagator propagator, CompiledNetlist netlist) {
+    void setLever(int line, int level) {
+      int[] changed =
+          propagator.propagatePorts(List.of(DustPropagator.PortSource.of(lever(line), level)));
+      for (int node : changed) {
+        netlist.dustChanged(node);
+      }
+    }
+  }
+}
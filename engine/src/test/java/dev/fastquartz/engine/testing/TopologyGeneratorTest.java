@@ -0,0 +1,97 @@
+package dev.fastquartz.engine.testing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.fastquartz.engine.dust.CpuDustPropagator;
+import dev.fastquartz.engine.dust.DustCsrGraph;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.dust.DustPropagator;
+import dev.fastquartz.engine.world.ShadowWorld;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TopologyGeneratorTest {
+  @Test
+  void equalSeedsProduceEqualLayouts() {
+    for (TopologyGenerator.Kind kind : TopologyGenerator.Kind.values()) {
+      SyntheticTopology first = new TopologyGenerator(42L).generate(kind, 2_000);
+      SyntheticTopology second = new TopologyGenerator(42L).generate(kind, 2_000);
+      assertEquals(first.dust(), second.dust(), kind.name());
+      assertEquals(first.components(), second.components(), kind.name());
+      assertEquals(
+          first.newBuilder().contentHash(), second.newBuilder().contentHash(), kind.name());
+    }
+    assertNotEquals(
+        new TopologyGenerator(1L).dustGrid(32, 32).dust(),
+        new TopologyGenerator(2L).dustGrid(32, 32).dust());
+  }
+
+  @Test
+  void everyKindReachesTheRequestedSizeAndBuilds() {
+    TopologyGenerator generator = new TopologyGenerator(7L);
+    for (TopologyGenerator.Kind kind : TopologyGenerator.Kind.values()) {
+      for (int blocks : new int[] {300, 20_000}) {
+        SyntheticTopology topology = generator.generate(kind, blocks);
+        assertTrue(topology.blockCount() >= blocks, kind + " produced " + topology.blockCount());
+        assertTrue(topology.blockCount() < blocks * 3, kind + " produced " + topology.blockCount());
+
+        DustCsrGraph graph = topology.newBuilder().build();
+        assertTrue(graph.nodeCount() > 0, kind.name());
+        for (ComponentPlacement component : topology.components()) {
+          assertTrue(
+              graph.nodeForPort(new DustPort(component.componentId(), 0)).isPresent(),
+              kind + " component " + component.componentId());
+        }
+      }
+    }
+  }
+
+  @Test
+  void worldHoldsEveryPlacedBlock() {
+    SyntheticTopology topology = new TopologyGenerator(3L).clockFarm(40);
+    InMemoryWorld world = topology.newWorld();
+    assertEquals(topology.blockCount(), world.blockCount());
+    topology
+        .dust()
+        .forEach(
+            pos ->
+                assertEquals(SyntheticBlock.DUST, SyntheticBlock.of(world.getBlockStateBits(pos))));
+    for (ComponentPlacement component : topology.components()) {
+      int stateBits = world.getBlockStateBits(component.pos());
+      assertEquals(component.kind(), SyntheticBlock.of(stateBits));
+      assertEquals(component.delay(), SyntheticBlock.value(stateBits));
+    }
+
+    ShadowWorld shadow = new ShadowWorld(world);
+    ComponentPlacement first = topology.components().get(0);
+    shadow.setBlockStateBits(first.output(), SyntheticBlock.DUST.stateBits(0, 15));
+    shadow.commit();
+    assertEquals(15, SyntheticBlock.power(world.getBlockStateBits(first.output())));
+    assertEquals(0, SyntheticBlock.power(topology.newWorld().getBlockStateBits(first.output())));
+  }
+
+  @Test
+  void generatedMemoryArraySettlesTheSameInOneOrManyBatches() {
+    SyntheticTopology topology = new TopologyGenerator(11L).memoryArray(6, 6);
+    DustCsrGraph graph = topology.newBuilder().build();
+    DustPropagator batched = new CpuDustPropagator();
+    DustPropagator oneShot = new CpuDustPropagator();
+    batched.reset(graph);
+    oneShot.reset(graph);
+
+    List<DustPropagator.PortSource> finalLevels = new ArrayList<>();
+    for (ComponentPlacement component : topology.components()) {
+      DustPort port = new DustPort(component.componentId(), 0);
+      batched.propagatePorts(List.of(DustPropagator.PortSource.of(port, 15)));
+      finalLevels.add(DustPropagator.PortSource.of(port, component.componentId() % 16));
+    }
+    batched.propagatePorts(finalLevels);
+    oneShot.propagatePorts(finalLevels);
+    for (int node = 0; node < graph.nodeCount(); node++) {
+      assertEquals(oneShot.powerLevel(node), batched.powerLevel(node));
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package dev.fastquartz.engine.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class BlockPosTest {
+  @Test
+  void packingRoundTripsAcrossRange() {
+    int[][] samples = {
+      {0, 0, 0},
+      {-1, -1, -1},
+      {33_554_431, 2047, -33_554_432},
+      {-33_554_432, -2048, 33_554_431},
+      {12, -64, -300},
+    };
+    for (int[] sample : samples) {
+      BlockPos pos = BlockPos.of(sample[0], sample[1], sample[2]);
+      long packed = pos.asLong();
+      assertEquals(pos, BlockPos.fromLong(packed));
+      assertEquals(sample[0], BlockPos.unpackX(packed));
+      assertEquals(sample[1], BlockPos.unpackY(packed));
+      assertEquals(sample[2], BlockPos.unpackZ(packed));
+    }
+    assertNotEquals(BlockPos.of(1, 0, 0).asLong(), BlockPos.of(0, 0, 1).asLong());
+  }
+
+  @Test
+  void outOfRangeCoordinatesAreRejected() {
+    assertFalse(BlockPos.isPackable(1 << 25, 0, 0));
+    assertFalse(BlockPos.isPackable(0, 2048, 0));
+    assertThrows(IllegalArgumentException.class, () -> BlockPos.of(0, 0, -(1 << 25) - 1).asLong());
+  }
+}
@@ -0,0 +1,43 @@
+package dev.fastquartz.engine.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ContainerSignalCacheTest {
+  @Test
+  void matchesAMapUnderRandomPutsAndInvalidations() {
+    Random random = new Random(0xC0FFEEL);
+    ContainerSignalCache cache = new ContainerSignalCache();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int step = 0; step < 50_000; step++) {
+      // A small coordinate range keeps probe chains long so backward-shift deletion is exercised.
+      long key = BlockPos.asLong(random.nextInt(64), random.nextInt(4), random.nextInt(64));
+      switch (random.nextInt(3)) {
+        case 0 -> {
+          int signal = random.nextInt(16);
+          cache.put(key, signal);
+          expected.put(key, signal);
+        }
+        case 1 -> {
+          cache.invalidate(key);
+          expected.remove(key);
+        }
+        default -> assertEquals(
+            expected.getOrDefault(key, ContainerSignalCache.ABSENT),
+            cache.get(key),
+            "step " + step);
+      }
+      assertEquals(expected.size(), cache.size());
+    }
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), cache.get(entry.getKey()));
+    }
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+}
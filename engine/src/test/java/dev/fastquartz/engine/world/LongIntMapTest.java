@@ -0,0 +1,87 @@
+package dev.fastquartz.engine.world;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LongIntMapTest {
+  @Test
+  void matchesAMapUnderRandomPutsRemovesAndClears() {
+    Random random = new Random(0x5EEDL);
+    LongIntMap map = new LongIntMap();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int step = 0; step < 50_000; step++) {
+      // Few distinct keys keep probe chains long so backward shifting and regrowth are exercised.
+      long key = random.nextInt(512) - 256L;
+      switch (random.nextInt(8)) {
+        case 0, 1, 2 -> {
+          int value = random.nextInt();
+          map.put(key, value);
+          expected.put(key, value);
+        }
+        case 3, 4 -> assertEquals(expected.remove(key) != null, map.remove(key), "step " + step);
+        case 5 -> {
+          if (random.nextInt(64) == 0) {
+            map.clear();
+            expected.clear();
+          }
+        }
+        default -> assertEquals(
+            expected.getOrDefault(key, Integer.MIN_VALUE),
+            map.get(key, Integer.MIN_VALUE),
+            "step " + step);
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey(), Integer.MIN_VALUE));
+    }
+  }
+
+  @Test
+  void storesEveryKeyIncludingMinValue() {
+    LongIntMap map = new LongIntMap();
+    map.put(Long.MIN_VALUE, 7);
+    map.put(0L, 3);
+
+    assertEquals(7, map.get(Long.MIN_VALUE, -1));
+    assertEquals(3, map.get(0L, -1));
+    assertTrue(map.remove(Long.MIN_VALUE));
+    assertFalse(map.containsKey(Long.MIN_VALUE));
+    assertEquals(3, map.get(0L, -1));
+  }
+
+  @Test
+  void slotsReadAndUpdateValuesInPlace() {
+    LongIntMap map = new LongIntMap();
+    assertEquals(LongIntMap.NO_SLOT, map.find(42L));
+    map.put(42L, 1);
+
+    int slot = map.find(42L);
+    assertEquals(1, map.valueAt(slot));
+    map.setValueAt(slot, 2);
+    assertEquals(2, map.get(42L, -1));
+  }
+
+  @Test
+  void clearDropsEveryKeyAndCopiesStayIndependent() {
+    LongIntMap map = new LongIntMap(4);
+    for (long key = 0; key < 100; key++) {
+      map.put(key, (int) key);
+    }
+    LongIntMap copy = map.copy();
+    map.clear();
+
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(5L));
+    map.put(5L, 50);
+    assertEquals(100, copy.size());
+    assertEquals(5, copy.get(5L, -1));
+    assertEquals(50, map.get(5L, -1));
+  }
+}
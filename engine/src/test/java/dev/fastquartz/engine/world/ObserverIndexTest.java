@@ -0,0 +1,93 @@
+package dev.fastquartz.engine.world;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ObserverIndexTest {
+  // Test encoding: state bits 1..6 are an observer facing one of the six neighbours.
+  private static final int[][] FACINGS = {
+    {0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}, {-1, 0, 0}, {1, 0, 0}
+  };
+
+  private static long observed(long key, int stateBits) {
+    if (stateBits < 1 || stateBits > 6) {
+      return ObserverIndex.NOT_OBSERVER;
+    }
+    int[] facing = FACINGS[stateBits - 1];
+    return BlockPos.asLong(
+        BlockPos.unpackX(key) + facing[0],
+        BlockPos.unpackY(key) + facing[1],
+        BlockPos.unpackZ(key) + facing[2]);
+  }
+
+  @Test
+  void observersAreReturnedInBlockOrder() {
+    ObserverIndex index = new ObserverIndex(ObserverIndexTest::observed);
+    BlockPos target = BlockPos.of(0, 64, 0);
+    // Every neighbour of the target faces it.
+    for (int face = 0; face < 6; face++) {
+      int[] facing = FACINGS[face];
+      BlockPos observer = BlockPos.of(-facing[0], 64 - facing[1], -facing[2]);
+      index.onBlockLoaded(observer.asLong(), face + 1);
+    }
+    long[] out = new long[6];
+    assertEquals(6, index.observersOf(target.asLong(), out));
+    for (int i = 1; i < out.length; i++) {
+      BlockPos a = BlockPos.fromLong(out[i - 1]);
+      BlockPos b = BlockPos.fromLong(out[i]);
+      assertTrue(
+          a.y() < b.y() || (a.y() == b.y() && (a.z() < b.z() || (a.z() == b.z() && a.x() < b.x()))),
+          a + " before " + b);
+    }
+    assertEquals(6, index.observersOf(target.asLong(), new long[2]));
+  }
+
+  @Test
+  void matchesBruteForceUnderRandomBlockChanges() {
+    Random random = new Random(0x0B5E7L);
+    ObserverIndex index = new ObserverIndex(ObserverIndexTest::observed);
+    Map<Long, Integer> states = new HashMap<>();
+    for (int step = 0; step < 20_000; step++) {
+      long key = BlockPos.asLong(random.nextInt(12), 60 + random.nextInt(3), random.nextInt(12));
+      int oldBits = states.getOrDefault(key, 0);
+      int newBits = random.nextInt(9);
+      states.put(key, newBits);
+      index.onBlockChanged(key, oldBits, newBits);
+
+      long probe = BlockPos.asLong(random.nextInt(12), 60 + random.nextInt(3), random.nextInt(12));
+      List<Long> expected = new ArrayList<>();
+      for (Map.Entry<Long, Integer> entry : states.entrySet()) {
+        if (observed(entry.getKey(), entry.getValue()) == probe) {
+          expected.add(entry.getKey());
+        }
+      }
+      expected.sort(
+          (a, b) -> {
+            BlockPos pa = BlockPos.fromLong(a);
+            BlockPos pb = BlockPos.fromLong(b);
+            int result = Integer.compare(pa.y(), pb.y());
+            result = result != 0 ? result : Integer.compare(pa.z(), pb.z());
+            return result != 0 ? result : Integer.compare(pa.x(), pb.x());
+          });
+      long[] out = new long[6];
+      int count = index.observersOf(probe, out);
+      assertEquals(expected.size(), count, "step " + step);
+      assertArrayEquals(
+          expected.stream().mapToLong(Long::longValue).toArray(), Arrays.copyOf(out, count));
+      assertEquals(!expected.isEmpty(), index.isObserved(probe));
+    }
+    index.clear();
+    assertEquals(0, index.observerCount());
+    assertFalse(index.isObserved(BlockPos.asLong(0, 60, 0)));
+  }
+}
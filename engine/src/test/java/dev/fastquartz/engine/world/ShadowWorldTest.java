@@ -135,11 +135,147 @@ class ShadowWorldTest {
     assertEquals(writesAfterFirst, world.writes.size());
   }
 
+  @Test
+  void updateSectionRewritesBlocksInOnePass() {
+    RecordingWorld world = new RecordingWorld();
+    world.prime(BlockPos.of(-16, 64, 5), 0x30);
+    world.prime(BlockPos.of(-15, 64, 5), 0x31);
+    ShadowWorld overlay = new ShadowWorld(world);
+    overlay.setBlockStateBits(BlockPos.of(-14, 64, 5), 0x22);
+
+    int[] localIndices = {(0 << 8) | (5 << 4), (0 << 8) | (5 << 4) | 1, (0 << 8) | (5 << 4) | 2};
+    int[] levels = {7, 1, 0};
+    overlay.updateSection(-1, 4, 0, localIndices, levels, 3, (bits, level) -> (bits & ~15) | level);
+
+    assertEquals(0x37, overlay.getBlockStateBits(BlockPos.of(-16, 64, 5)));
+    assertEquals(0x31, overlay.getBlockStateBits(BlockPos.of(-15, 64, 5)));
+    assertEquals(0x20, overlay.getBlockStateBits(BlockPos.of(-14, 64, 5)));
+
+    overlay.commit();
+    assertEquals(
+        List.of(
+            new BlockWrite(BlockPos.of(-16, 64, 5), 0x37),
+            new BlockWrite(BlockPos.of(-14, 64, 5), 0x20)),
+        world.writes);
+  }
+
+  @Test
+  void containerSignalsStayCachedUntilInvalidated() {
+    RecordingWorld world = new RecordingWorld();
+    BlockPos chest = BlockPos.of(3, 64, 3);
+    world.containerSignals.put(chest, 5);
+    ContainerSignalCache cache = new ContainerSignalCache();
+    ShadowWorld overlay = new ShadowWorld(world, cache);
+
+    assertEquals(5, overlay.readContainerSignal(chest));
+    world.containerSignals.put(chest, 9);
+    assertEquals(5, overlay.readContainerSignal(chest));
+    assertEquals(1, world.containerReads);
+
+    // A reported inventory change drops the entry; the next tick sees the new contents.
+    cache.invalidate(chest);
+    assertEquals(9, overlay.readContainerSignal(chest));
+    assertEquals(2, world.containerReads);
+
+    // Replacing the block through the overlay invalidates at commit.
+    world.containerSignals.put(chest, 0);
+    overlay.setBlockStateBits(chest, 77);
+    assertEquals(9, overlay.readContainerSignal(chest));
+    overlay.commit();
+    assertEquals(0, overlay.readContainerSignal(chest));
+    assertEquals(3, world.containerReads);
+  }
+
+  @Test
+  void commitFansChangesOutOnlyToFacingObservers() {
+    RecordingWorld world = new RecordingWorld();
+    // Test encoding: state 100 + d is an observer watching the block d steps along +X.
+    ObserverIndex index =
+        new ObserverIndex(
+            (key, stateBits) ->
+                stateBits > 100
+                    ? BlockPos.asLong(
+                        BlockPos.unpackX(key) + stateBits - 100,
+                        BlockPos.unpackY(key),
+                        BlockPos.unpackZ(key))
+                    : ObserverIndex.NOT_OBSERVER);
+    BlockPos observer = BlockPos.of(0, 64, 0);
+    BlockPos watched = BlockPos.of(1, 64, 0);
+    BlockPos unwatched = BlockPos.of(5, 64, 0);
+    world.prime(observer, 101);
+    index.onBlockLoaded(observer.asLong(), 101);
+
+    List<String> fired = new ArrayList<>();
+    ShadowWorld overlay = new ShadowWorld(world);
+    overlay.enableObserverFanOut(
+        index,
+        (observerPos, observedPos, oldBits, newBits) ->
+            fired.add(observerPos + " saw " + observedPos + " " + oldBits + "->" + newBits));
+
+    overlay.setBlockStateBits(watched, 7);
+    overlay.setBlockStateBits(unwatched, 8);
+    overlay.commit();
+    assertEquals(List.of(observer + " saw " + watched + " 0->7"), fired);
+
+    // Turning the observer re-targets it within the same commit.
+    fired.clear();
+    overlay.setBlockStateBits(observer, 105);
+    overlay.setBlockStateBits(watched, 9);
+    overlay.setBlockStateBits(unwatched, 10);
+    overlay.commit();
+    assertEquals(List.of(observer + " saw " + unwatched + " 8->10"), fired);
+    assertEquals(1, index.observerCount());
+  }
+
+  @Test
+  void observersPlacedInCommitSeeEarlierSectionsAlongNegativeAxes() {
+    RecordingWorld world = new RecordingWorld();
+    // Test encoding: state 200 watches the block at -X, state 201 the block at -Z.
+    ObserverIndex index =
+        new ObserverIndex(
+            (key, stateBits) -> {
+              int x = BlockPos.unpackX(key);
+              int y = BlockPos.unpackY(key);
+              int z = BlockPos.unpackZ(key);
+              if (stateBits == 200) {
+                return BlockPos.asLong(x - 1, y, z);
+              }
+              if (stateBits == 201) {
+                return BlockPos.asLong(x, y, z - 1);
+              }
+              return ObserverIndex.NOT_OBSERVER;
+            });
+    List<String> fired = new ArrayList<>();
+    ShadowWorld overlay = new ShadowWorld(world);
+    overlay.enableObserverFanOut(
+        index,
+        (observerPos, observedPos, oldBits, newBits) ->
+            fired.add(observerPos + " saw " + observedPos + " " + oldBits + "->" + newBits));
+
+    // Both watched blocks sit in the section before their observer's, so they commit first.
+    BlockPos westObserver = BlockPos.of(0, 64, 0);
+    BlockPos west = BlockPos.of(-1, 64, 0);
+    BlockPos northObserver = BlockPos.of(32, 64, 16);
+    BlockPos north = BlockPos.of(32, 64, 15);
+    overlay.setBlockStateBits(westObserver, 200);
+    overlay.setBlockStateBits(west, 7);
+    overlay.setBlockStateBits(northObserver, 201);
+    overlay.setBlockStateBits(north, 8);
+    overlay.commit();
+
+    assertEquals(
+        List.of(westObserver + " saw " + west + " 0->7", northObserver + " saw " + north + " 0->8"),
+        fired);
+    assertEquals(2, index.observerCount());
+  }
+
   private static final class RecordingWorld implements ShadowWorld.Delegate {
     private final Map<BlockPos, Integer> states = new HashMap<>();
     private final List<BlockWrite> writes = new ArrayList<>();
     private final List<NeighborCall> neighbourNotifications = new ArrayList<>();
     private final List<ScheduledTickCall> scheduledTicks = new ArrayList<>();
+    private final Map<BlockPos, Integer> containerSignals = new HashMap<>();
+    private int containerReads;
 
     @Override
     public int getBlockStateBits(BlockPos pos) {
@@ -164,7 +300,8 @@ class ShadowWorldTest {
 
     @Override
     public int readContainerSignal(BlockPos pos) {
-      return 0;
+      containerReads++;
+      return containerSignals.getOrDefault(pos, 0);
     }
 
     void prime(BlockPos pos, int stateBits) {
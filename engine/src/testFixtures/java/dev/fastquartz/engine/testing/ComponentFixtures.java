@@ -0,0 +1,31 @@
+package dev.fastquartz.engine.testing;
+
+import dev.fastquartz.engine.component.ComponentAdapters;
+import dev.fastquartz.engine.component.ComponentContext;
+import dev.fastquartz.engine.component.ContainerSnapshotRegistry;
+import dev.fastquartz.engine.component.ObserverPulseTracker;
+import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.ShadowWorld;
+
+/** Component contexts and adapters for tests that only need something to hand to a component. */
+public final class ComponentFixtures {
+  private ComponentFixtures() {}
+
+  /** Context over an empty {@link InMemoryWorld} at game time 0. */
+  public static ComponentContext emptyContext() {
+    return new ComponentContext(
+        new ShadowWorld(new InMemoryWorld()),
+        new ContainerSnapshotRegistry(),
+        new ObserverPulseTracker(),
+        0L);
+  }
+
+  /** Adapter that does nothing. */
+  public static ComponentAdapters.ComponentAdapter ignoringAdapter() {
+    return ComponentFixtures::ignore;
+  }
+
+  private static void ignore(ComponentContext context, BlockPos pos, int stateBits) {
+    // Nothing to apply.
+  }
+}
@@ -0,0 +1,31 @@
+package dev.fastquartz.engine.testing;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.Objects;
+
+/**
+ * A component placed by {@link TopologyGenerator}. The component reads power from {@code input}
+ * (dust, a container or another component; {@code null} for free-running sources) and drives the
+ * dust block at {@code output} through {@code DustPort(componentId, 0)}.
+ */
+public record ComponentPlacement(
+    int componentId,
+    SyntheticBlock kind,
+    BlockPos pos,
+    BlockPos input,
+    BlockPos output,
+    int delay) {
+  public ComponentPlacement {
+    Objects.requireNonNull(kind, "kind");
+    Objects.requireNonNull(pos, "pos");
+    Objects.requireNonNull(output, "output");
+    if (kind != SyntheticBlock.TORCH
+        && kind != SyntheticBlock.REPEATER
+        && kind != SyntheticBlock.COMPARATOR) {
+      throw new IllegalArgumentException("Not a component kind: " + kind);
+    }
+    if (delay < 0 || delay > 15) {
+      throw new IllegalArgumentException("delay must be in [0, 15]");
+    }
+  }
+}
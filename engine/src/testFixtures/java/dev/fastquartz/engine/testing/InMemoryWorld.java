@@ -0,0 +1,94 @@
+package dev.fastquartz.engine.testing;
+
+import dev.fastquartz.engine.world.BlockPos;
+import dev.fastquartz.engine.world.LongIntMap;
+import dev.fastquartz.engine.world.ShadowWorld;
+import java.util.Objects;
+
+/**
+ * {@link ShadowWorld.Delegate} backed by a {@link LongIntMap} of packed positions, so generated
+ * worlds of millions of blocks stay compact. Unset positions read as {@link SyntheticBlock#AIR};
+ * scheduled ticks and neighbour notifications are only counted.
+ */
+public final class InMemoryWorld implements ShadowWorld.Delegate {
+  private static final int MIN_CAPACITY = 16;
+
+  private final LongIntMap blocks;
+  private long writes;
+  private long scheduledTicks;
+  private long neighborNotifications;
+
+  public InMemoryWorld() {
+    this(MIN_CAPACITY);
+  }
+
+  public InMemoryWorld(int expectedBlocks) {
+    this(new LongIntMap(Math.max(expectedBlocks, MIN_CAPACITY)));
+  }
+
+  private InMemoryWorld(LongIntMap blocks) {
+    this.blocks = blocks;
+  }
+
+  /** Returns an independent copy with the same blocks and zeroed counters. */
+  public InMemoryWorld copy() {
+    return new InMemoryWorld(blocks.copy());
+  }
+
+  /** Returns the number of non-air blocks. */
+  public int blockCount() {
+    return blocks.size();
+  }
+
+  public boolean contains(BlockPos pos) {
+    Objects.requireNonNull(pos, "pos");
+    return blocks.containsKey(pos.asLong());
+  }
+
+  public long writes() {
+    return writes;
+  }
+
+  public long scheduledTicks() {
+    return scheduledTicks;
+  }
+
+  public long neighborNotifications() {
+    return neighborNotifications;
+  }
+
+  @Override
+  public int getBlockStateBits(BlockPos pos) {
+    Objects.requireNonNull(pos, "pos");
+    return blocks.get(pos.asLong(), 0);
+  }
+
+  @Override
+  public void setBlockStateBits(BlockPos pos, int stateBits) {
+    Objects.requireNonNull(pos, "pos");
+    writes++;
+    put(pos.asLong(), stateBits);
+  }
+
+  @Override
+  public void scheduleTick(BlockPos pos, int delayTicks, int priority) {
+    scheduledTicks++;
+  }
+
+  @Override
+  public void markNeighborChanged(BlockPos pos, BlockPos source) {
+    neighborNotifications++;
+  }
+
+  @Override
+  public int readContainerSignal(BlockPos pos) {
+    int stateBits = getBlockStateBits(pos);
+    return SyntheticBlock.of(stateBits) == SyntheticBlock.CONTAINER
+        ? SyntheticBlock.value(stateBits)
+        : 0;
+  }
+
+  void put(long key, int stateBits) {
+    blocks.put(key, stateBits);
+  }
+}
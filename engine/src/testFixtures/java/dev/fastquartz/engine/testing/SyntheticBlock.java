@@ -0,0 +1,59 @@
+package dev.fastquartz.engine.testing;
+
+/**
+ * Block kinds placed by {@link TopologyGenerator}, with the state bit layout used by {@link
+ * InMemoryWorld}: bits 0–3 hold the power level, bits 4–7 a kind-specific value (repeater delay,
+ * container signal) and bits 8–11 the kind.
+ */
+public enum SyntheticBlock {
+  AIR(0),
+  DUST(1),
+  TORCH(2),
+  REPEATER(3),
+  COMPARATOR(4),
+  CONTAINER(5);
+
+  private static final SyntheticBlock[] BY_CODE = new SyntheticBlock[16];
+  private static final int KIND_SHIFT = 8;
+  private static final int VALUE_SHIFT = 4;
+  private static final int NIBBLE = 0xF;
+
+  static {
+    for (SyntheticBlock block : values()) {
+      BY_CODE[block.code] = block;
+    }
+  }
+
+  private final int code;
+
+  SyntheticBlock(int code) {
+    this.code = code;
+  }
+
+  /** Returns the 4-bit kind code stored in bits 8–11. */
+  public int code() {
+    return code;
+  }
+
+  /** Returns the state bits of this kind holding {@code value} and {@code power}. */
+  public int stateBits(int value, int power) {
+    if ((value & ~NIBBLE) != 0 || (power & ~NIBBLE) != 0) {
+      throw new IllegalArgumentException("value and power must be in [0, 15]");
+    }
+    return (code << KIND_SHIFT) | (value << VALUE_SHIFT) | power;
+  }
+
+  /** Decodes the kind from state bits written by {@link #stateBits(int, int)}. */
+  public static SyntheticBlock of(int stateBits) {
+    SyntheticBlock block = BY_CODE[(stateBits >>> KIND_SHIFT) & NIBBLE];
+    return block != null ? block : AIR;
+  }
+
+  public static int value(int stateBits) {
+    return (stateBits >>> VALUE_SHIFT) & NIBBLE;
+  }
+
+  public static int power(int stateBits) {
+    return stateBits & NIBBLE;
+  }
+}
@@ -0,0 +1,48 @@
+package dev.fastquartz.engine.testing;
+
+import dev.fastquartz.engine.dust.DustCsrBuilder;
+import dev.fastquartz.engine.dust.DustPort;
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.List;
+
+/** Generated layout: dust positions, component placements and the world holding both. */
+public final class SyntheticTopology {
+  private final List<BlockPos> dust;
+  private final List<ComponentPlacement> components;
+  private final InMemoryWorld world;
+
+  SyntheticTopology(List<BlockPos> dust, List<ComponentPlacement> components, InMemoryWorld world) {
+    this.dust = List.copyOf(dust);
+    this.components = List.copyOf(components);
+    this.world = world;
+  }
+
+  /** Dust positions in placement order. */
+  public List<BlockPos> dust() {
+    return dust;
+  }
+
+  /** Components in placement order; component ids are their indices. */
+  public List<ComponentPlacement> components() {
+    return components;
+  }
+
+  /** Total number of placed blocks: dust, components and containers. */
+  public int blockCount() {
+    return world.blockCount();
+  }
+
+  /** Returns a builder holding every dust block, with each component's output port attached. */
+  public DustCsrBuilder newBuilder() {
+    DustCsrBuilder builder = new DustCsrBuilder().addAllDust(dust);
+    for (ComponentPlacement component : components) {
+      builder.attachPort(new DustPort(component.componentId(), 0), component.output());
+    }
+    return builder;
+  }
+
+  /** Returns a fresh copy of the generated world, so every run starts from the same blocks. */
+  public InMemoryWorld newWorld() {
+    return world.copy();
+  }
+}
@@ -0,0 +1,383 @@
+package dev.fastquartz.engine.testing;
+
+import dev.fastquartz.engine.world.BlockPos;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of synthetic redstone builds for benchmarks and scaling tests.
+ *
+ * <p>Every layout sits on non-negative coordinates in the {@code y = 0..2} band. Equal seeds always
+ * produce equal layouts, independent of call order, and {@link #generate(Kind, int)} tiles copies
+ * of a small unit (or widens the layout) until the requested block count is reached, so the same
+ * shapes scale from hundreds to millions of blocks.
+ */
+public final class TopologyGenerator {
+  private static final int TILE_GAP = 2;
+  private static final int REPEATER_SPACING = 15;
+
+  /** Layout families understood by {@link #generate(Kind, int)}. */
+  public enum Kind {
+    DUST_GRID,
+    BUSES,
+    BINARY_TREE,
+    RIPPLE_CARRY_ADDER,
+    MEMORY_ARRAY,
+    CLOCK_FARM
+  }
+
+  private final long seed;
+
+  public TopologyGenerator(long seed) {
+    this.seed = seed;
+  }
+
+  /** Generates a layout of {@code kind} with at least {@code minBlocks} placed blocks. */
+  public SyntheticTopology generate(Kind kind, int minBlocks) {
+    Objects.requireNonNull(kind, "kind");
+    if (minBlocks <= 0) {
+      throw new IllegalArgumentException("minBlocks must be positive");
+    }
+    return switch (kind) {
+      case DUST_GRID -> grid(minBlocks);
+      case BUSES -> buses(Math.max(1, (minBlocks + 255) / 256), 256);
+      case BINARY_TREE -> tiled(kind, minBlocks, 64, 21, layout -> tree(layout, 5));
+      case RIPPLE_CARRY_ADDER -> tiled(kind, minBlocks, 16 * 8, 13, layout -> adder(layout, 16));
+      case MEMORY_ARRAY -> {
+        // Every cell places exactly 15 blocks; keep the array roughly square up to 64 columns.
+        int cells = (minBlocks + 14) / 15;
+        int columns = Math.min(64, (int) Math.ceil(Math.sqrt(cells)));
+        yield memoryArray((cells + columns - 1) / columns, columns);
+      }
+      case CLOCK_FARM -> clockFarm(Math.max(1, (minBlocks + 13) / 14));
+    };
+  }
+
+  /** A sheet of dust with about one block in ten missing, fed by a torch every eight columns. */
+  public SyntheticTopology dustGrid(int width, int depth) {
+    requirePositive(width, "width");
+    requirePositive(depth, "depth");
+    Layout layout = new Layout(random(Kind.DUST_GRID), width * depth);
+    for (int z = 1; z <= depth; z++) {
+      for (int x = 0; x < width; x++) {
+        if (layout.random.nextInt(10) != 0 || z == 1) {
+          layout.dust(x, 0, z);
+        }
+      }
+    }
+    for (int x = 0; x < width; x += 8) {
+      layout.component(SyntheticBlock.TORCH, x, 0, 0, null, BlockPos.of(x, 0, 1), 0);
+    }
+    return layout.finish();
+  }
+
+  /** Parallel buses driven by a repeater each and refreshed by a repeater every 15 blocks. */
+  public SyntheticTopology buses(int busCount, int length) {
+    requirePositive(busCount, "busCount");
+    requirePositive(length, "length");
+    Layout layout = new Layout(random(Kind.BUSES), busCount * length);
+    for (int bus = 0; bus < busCount; bus++) {
+      int z = bus * 2;
+      layout.component(
+          SyntheticBlock.REPEATER, 0, 0, z, null, BlockPos.of(1, 0, z), 1 + layout.delay());
+      for (int x = 1; x <= length; x++) {
+        if (x % (REPEATER_SPACING + 1) == 0 && x < length) {
+          layout.component(
+              SyntheticBlock.REPEATER,
+              x,
+              0,
+              z,
+              BlockPos.of(x - 1, 0, z),
+              BlockPos.of(x + 1, 0, z),
+              1 + layout.delay());
+        } else {
+          layout.dust(x, 0, z);
+        }
+      }
+    }
+    return layout.finish();
+  }
+
+  /** A fan-out tree: every branch point splits into two wires, each re-driven by a repeater. */
+  public SyntheticTopology binaryTree(int depth) {
+    requirePositive(depth, "depth");
+    if (depth > 20) {
+      throw new IllegalArgumentException("depth must be at most 20");
+    }
+    Layout layout = new Layout(random(Kind.BINARY_TREE), 8 << depth);
+    tree(layout, depth);
+    return layout.finish();
+  }
+
+  /** A chain of adder cells: two torch-inverted inputs, a comparator and a repeater carry. */
+  public SyntheticTopology rippleCarryAdder(int bits) {
+    requirePositive(bits, "bits");
+    Layout layout = new Layout(random(Kind.RIPPLE_CARRY_ADDER), bits * 32);
+    adder(layout, bits);
+    return layout.finish();
+  }
+
+  /**
+   * A grid of repeater latches: a word line per row, two repeaters and a storage wire per cell, and
+   * a bit line per column one level up.
+   */
+  public SyntheticTopology memoryArray(int rows, int columns) {
+    requirePositive(rows, "rows");
+    requirePositive(columns, "columns");
+    Layout layout = new Layout(random(Kind.MEMORY_ARRAY), rows * columns * 16);
+    int depth = rows * 5;
+    for (int row = 0; row < rows; row++) {
+      int z = row * 5;
+      for (int x = 0; x < columns * 4; x++) {
+        layout.dust(x, 0, z);
+      }
+      for (int column = 0; column < columns; column++) {
+        int x = column * 4;
+        layout.component(
+            SyntheticBlock.REPEATER,
+            x + 1,
+            0,
+            z + 1,
+            BlockPos.of(x + 1, 0, z),
+            BlockPos.of(x + 1, 0, z + 2),
+            1 + layout.delay());
+        layout.dust(x + 1, 0, z + 2);
+        layout.dust(x + 2, 0, z + 2);
+        layout.component(
+            SyntheticBlock.REPEATER,
+            x + 3,
+            0,
+            z + 2,
+            BlockPos.of(x + 2, 0, z + 2),
+            BlockPos.of(x + 3, 0, z + 3),
+            1);
+        layout.dust(x + 3, 0, z + 3);
+        layout.dust(x + 3, 1, z + 3);
+      }
+    }
+    for (int column = 0; column < columns; column++) {
+      for (int z = 0; z < depth; z++) {
+        layout.dust(column * 4 + 3, 2, z);
+      }
+    }
+    return layout.finish();
+  }
+
+  /** Independent torch-repeater clocks; every fourth one also has a comparator on a container. */
+  public SyntheticTopology clockFarm(int clocks) {
+    requirePositive(clocks, "clocks");
+    Layout layout = new Layout(random(Kind.CLOCK_FARM), clocks * 16);
+    int columns = Math.max(1, (int) Math.ceil(Math.sqrt(clocks)));
+    for (int clock = 0; clock < clocks; clock++) {
+      layout.originX = (clock % columns) * 8;
+      layout.originZ = (clock / columns) * 4;
+      clock(layout, clock % 4 == 3);
+    }
+    return layout.finish();
+  }
+
+  // Holes are random, so the sheet grows a row and column at a time until it is large enough.
+  private SyntheticTopology grid(int minBlocks) {
+    int side = Math.max(2, (int) Math.ceil(Math.sqrt(minBlocks / 0.9)));
+    SyntheticTopology topology = dustGrid(side, side);
+    while (topology.blockCount() < minBlocks) {
+      side++;
+      topology = dustGrid(side, side);
+    }
+    return topology;
+  }
+
+  private SyntheticTopology tiled(
+      Kind kind, int minBlocks, int width, int depth, UnitPlacer placer) {
+    Layout layout = new Layout(random(kind), minBlocks);
+    // Place one unit to learn its size, then lay the rest out on a square-ish grid.
+    placer.place(layout);
+    int unitBlocks = layout.world.blockCount();
+    int units = Math.max(1, (minBlocks + unitBlocks - 1) / unitBlocks);
+    int columns = Math.max(1, (int) Math.ceil(Math.sqrt(units)));
+    for (int unit = 1; unit < units; unit++) {
+      layout.originX = (unit % columns) * (width + TILE_GAP);
+      layout.originZ = (unit / columns) * (depth + TILE_GAP);
+      placer.place(layout);
+    }
+    return layout.finish();
+  }
+
+  private static void tree(Layout layout, int depth) {
+    branch(layout, 1 << depth, 0, 1 << (depth - 1));
+  }
+
+  // Subtrees of half-width h stay strictly within (cx - 2h, cx + 2h), so siblings never touch.
+  private static void branch(Layout layout, int cx, int z, int half) {
+    if (half == 0) {
+      layout.dust(cx, 0, z);
+      return;
+    }
+    for (int x = cx - half; x <= cx + half; x++) {
+      layout.dust(x, 0, z);
+    }
+    for (int side = -1; side <= 1; side += 2) {
+      int x = cx + side * half;
+      layout.dust(x, 0, z + 1);
+      layout.dust(x, 0, z + 2);
+      layout.component(
+          SyntheticBlock.REPEATER,
+          x,
+          0,
+          z + 3,
+          BlockPos.of(x, 0, z + 2),
+          BlockPos.of(x, 0, z + 4),
+          1 + layout.delay());
+      branch(layout, x, z + 4, half / 2);
+    }
+  }
+
+  // Each cell is 8 blocks wide; the carry repeater at local x = 7 drives the next cell's carry
+  // wire.
+  private static void adder(Layout layout, int bits) {
+    for (int bit = 0; bit < bits; bit++) {
+      int x = bit * 8;
+      for (int z = 0; z < 4; z++) {
+        layout.dust(x + 1, 0, z);
+        layout.dust(x + 3, 0, z);
+      }
+      layout.component(
+          SyntheticBlock.TORCH, x + 1, 0, 4, BlockPos.of(x + 1, 0, 3), BlockPos.of(x + 1, 0, 5), 0);
+      layout.component(
+          SyntheticBlock.TORCH, x + 3, 0, 4, BlockPos.of(x + 3, 0, 3), BlockPos.of(x + 3, 0, 5), 0);
+      for (int dx = 1; dx <= 5; dx++) {
+        layout.dust(x + dx, 0, 5);
+      }
+      layout.component(
+          SyntheticBlock.TORCH, x + 2, 0, 6, BlockPos.of(x + 2, 0, 5), BlockPos.of(x + 2, 0, 7), 0);
+      for (int z = 7; z <= 9; z++) {
+        layout.dust(x + 2, 0, z);
+      }
+      layout.component(
+          SyntheticBlock.COMPARATOR,
+          x + 5,
+          0,
+          6,
+          BlockPos.of(x + 5, 0, 5),
+          BlockPos.of(x + 5, 0, 7),
+          layout.random.nextInt(2));
+      for (int z = 7; z <= 11; z++) {
+        layout.dust(x + 5, 0, z);
+      }
+      for (int dx = 0; dx <= 6; dx++) {
+        layout.dust(x + dx, 0, 12);
+      }
+      if (bit + 1 < bits) {
+        layout.component(
+            SyntheticBlock.REPEATER,
+            x + 7,
+            0,
+            12,
+            BlockPos.of(x + 6, 0, 12),
+            BlockPos.of(x + 8, 0, 12),
+            1);
+      }
+    }
+  }
+
+  // A loop: dust west and south sides, a repeater on the north-east corner and an inverting torch.
+  private static void clock(Layout layout, boolean hopperClock) {
+    for (int x = 0; x <= 3; x++) {
+      layout.dust(x, 0, 0);
+    }
+    layout.component(
+        SyntheticBlock.REPEATER,
+        4,
+        0,
+        0,
+        BlockPos.of(3, 0, 0),
+        BlockPos.of(4, 0, 1),
+        1 + layout.delay());
+    layout.dust(4, 0, 1);
+    layout.dust(4, 0, 2);
+    layout.component(SyntheticBlock.TORCH, 3, 0, 2, BlockPos.of(4, 0, 2), BlockPos.of(2, 0, 2), 0);
+    layout.dust(2, 0, 2);
+    layout.dust(1, 0, 2);
+    layout.dust(0, 0, 2);
+    layout.dust(0, 0, 1);
+    layout.component(
+        SyntheticBlock.REPEATER, 5, 0, 2, BlockPos.of(4, 0, 2), BlockPos.of(6, 0, 2), 1);
+    layout.dust(6, 0, 2);
+    if (hopperClock) {
+      layout.container(6, 0, 0, layout.random.nextInt(16));
+      layout.component(
+          SyntheticBlock.COMPARATOR, 6, 0, 1, BlockPos.of(6, 0, 0), BlockPos.of(6, 0, 2), 0);
+    }
+  }
+
+  private SplittableRandom random(Kind kind) {
+    return new SplittableRandom(seed * 31 + kind.name().hashCode() * 0x9E3779B97F4A7C15L);
+  }
+
+  private static void requirePositive(int value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+  }
+
+  @FunctionalInterface
+  private interface UnitPlacer {
+    void place(Layout layout);
+  }
+
+  /** Accumulates blocks relative to a movable origin and rejects overlapping placements. */
+  private static final class Layout {
+    final SplittableRandom random;
+    final InMemoryWorld world;
+    final List<BlockPos> dust = new ArrayList<>();
+    final List<ComponentPlacement> components = new ArrayList<>();
+    int originX;
+    int originZ;
+
+    Layout(SplittableRandom random, int expectedBlocks) {
+      this.random = random;
+      this.world = new InMemoryWorld(expectedBlocks);
+    }
+
+    int delay() {
+      return random.nextInt(4);
+    }
+
+    void dust(int x, int y, int z) {
+      BlockPos pos = place(x, y, z, SyntheticBlock.DUST.stateBits(0, 0));
+      dust.add(pos);
+    }
+
+    void container(int x, int y, int z, int signal) {
+      place(x, y, z, SyntheticBlock.CONTAINER.stateBits(signal, 0));
+    }
+
+    void component(
+        SyntheticBlock kind, int x, int y, int z, BlockPos input, BlockPos output, int delay) {
+      BlockPos pos = place(x, y, z, kind.stateBits(delay, 0));
+      components.add(
+          new ComponentPlacement(components.size(), kind, pos, shift(input), shift(output), delay));
+    }
+
+    SyntheticTopology finish() {
+      return new SyntheticTopology(dust, components, world);
+    }
+
+    private BlockPos place(int x, int y, int z, int stateBits) {
+      BlockPos pos = BlockPos.of(originX + x, y, originZ + z);
+      if (world.contains(pos)) {
+        throw new IllegalStateException("Overlapping placement at " + pos);
+      }
+      world.put(pos.asLong(), stateBits);
+      return pos;
+    }
+
+    private BlockPos shift(BlockPos relative) {
+      return relative == null
+          ? null
+          : BlockPos.of(originX + relative.x(), relative.y(), originZ + relative.z());
+    }
+  }
+}
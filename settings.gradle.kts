@@ -37,3 +37,4 @@ plugins {
 }
 include("engine")
 include("mod")
+include("bench")